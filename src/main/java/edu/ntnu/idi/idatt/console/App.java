@@ -1,13 +1,46 @@
 package edu.ntnu.idi.idatt.console;
 
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.persistence.Journal;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 /**
  * The initializing of Food Conservation Application.
  *
- * <p>Run this class to start the Food Conservation Application.</p>
+ * <p>Run this class to start the Food Conservation Application. Run it with
+ * {@code --batch [--journal <path> | --dry-run] [file]} to run the commands of a file,
+ * or of standard input when no file is given, without the menu. See {@link BatchRunner}
+ * for the commands.</p>
+ *
+ * <p>By default the batch runs on the same journal as the menu, so every change it makes
+ * is kept and shows up the next time the application is started. Use {@code --journal} to
+ * run on another journal instead, or {@code --dry-run} to run on an empty storage and
+ * cookbook that are thrown away when the batch is done.</p>
  *
  * @author TriLe
  */
 public class App {
+  private static final String BATCH_OPTION = "--batch";
+  private static final String JOURNAL_OPTION = "--journal";
+  private static final String DRY_RUN_OPTION = "--dry-run";
+  private static final String BATCH_USAGE = "Usage: --batch [--journal <path> | --dry-run] "
+      + "[file]" + System.lineSeparator()
+      + "  Runs the commands of the file, or of standard input, on the journal "
+      + UserInterface.JOURNAL_FILE + "," + System.lineSeparator()
+      + "  so the changes are kept for the application. --journal uses another journal,"
+      + System.lineSeparator()
+      + "  and --dry-run keeps no changes.";
+  private static final int BUFFER_SIZE = 1 << 16;
   
   /**
    * It initializes the {@link UserInterface}
@@ -16,8 +49,71 @@ public class App {
    * @param args Command-line arguments passed to the application.
    */
   public static void main(String[] args) {
+    if (args.length > 0 && args[0].equals(BATCH_OPTION)) {
+      System.exit(runBatch(args));
+    }
     UserInterface userInterface = new UserInterface();
-    userInterface.init();
+    try {
+      userInterface.init();
+    } catch (IllegalStateException e) {
+      System.out.println(e.getMessage());
+      System.exit(2);
+    }
     userInterface.start();
   }
+  
+  /**
+   * Reads the batch options and runs the commands.
+   *
+   * @param args the command-line arguments, starting with {@code --batch}
+   * @return the exit status, which is 0 only if every command succeeded
+   */
+  private static int runBatch(String[] args) {
+    Path journalFile = Path.of(UserInterface.JOURNAL_FILE);
+    String file = null;
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].equals(JOURNAL_OPTION) && i + 1 < args.length) {
+        journalFile = Path.of(args[++i]);
+      } else if (args[i].equals(DRY_RUN_OPTION)) {
+        journalFile = null;
+      } else if (file == null && (args[i].equals("-") || !args[i].startsWith("-"))) {
+        file = args[i];
+      } else {
+        System.out.println(BATCH_USAGE);
+        return 2;
+      }
+    }
+    return runBatch(journalFile, file);
+  }
+  
+  /**
+   * Runs the commands of a file or of standard input on the storage and cookbook of a
+   * journal, and closes the journal when all commands have run.
+   *
+   * @param journalFile the journal to run on, or null to keep no changes
+   * @param file        the path of the command file, or null or "-" for standard input
+   * @return the exit status, which is 0 only if every command succeeded
+   */
+  private static int runBatch(Path journalFile, String file) {
+    FoodStorage foodStorage = new FoodStorage();
+    Cookbook cookbook = new Cookbook();
+    foodStorage.setDensityTable(DensityTable.withCommonDensities());
+    PrintWriter out = new PrintWriter(new BufferedWriter(
+        new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE));
+    try {
+      Journal journal = journalFile == null
+          ? null : Journal.open(journalFile, foodStorage, cookbook);
+      try (journal;
+          BufferedReader in = file == null || file.equals("-")
+              ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8),
+                  BUFFER_SIZE)
+              : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+        return new BatchRunner(foodStorage, cookbook).run(in, out) == 0 ? 0 : 1;
+      }
+    } catch (IOException | RuntimeException e) {
+      out.println("Batch stopped: " + e.getMessage());
+      out.flush();
+      return 2;
+    }
+  }
 }
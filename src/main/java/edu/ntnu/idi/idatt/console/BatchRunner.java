@@ -0,0 +1,204 @@
+package edu.ntnu.idi.idatt.console;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.RateTable;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs commands from a file or a stream without prompts or banners, one command per line.
+ *
+ * <p>This is the non-interactive way into the application, for scripted work like nightly
+ * stock imports. The commands are:</p>
+ * <pre>
+ * add &lt;name&gt; &lt;quantity&gt; &lt;unit&gt; &lt;expiration date or -&gt; &lt;price&gt;
+ * remove &lt;name&gt; &lt;quantity&gt; [&lt;unit&gt;]
+ * cook &lt;recipe&gt; &lt;portions&gt;
+ * value
+ * </pre>
+ *
+ * <p>Units are given by their code, like {@code L} or {@code kg}, dates as {@code yyyy-MM-dd}
+ * and prices in the {@link RateTable#BASE_CURRENCY base currency}. The unit of a removal
+ * may be left out when the ingredient is stored in one unit type. A name with spaces is put
+ * in double quotes. Blank lines and lines starting with {@code #} are skipped.</p>
+ *
+ * <p>The lines are read and the results are written through buffered streams given by the
+ * caller. A command that fails is reported with its line number, and the run goes on with
+ * the next line. The run ends with a summary of the number of commands and the throughput.</p>
+ *
+ * @author TriLe
+ */
+public class BatchRunner {
+  private static final double NANOS_PER_SECOND = 1e9;
+  private static final double NANOS_PER_MILLI = 1e6;
+  
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  
+  /**
+   * Constructs a runner for a food storage and a cookbook.
+   *
+   * @param foodStorage the food storage to run the commands on
+   * @param cookbook    the cookbook to find recipes to cook in
+   * @throws IllegalArgumentException if the food storage or the cookbook is null
+   */
+  public BatchRunner(FoodStorage foodStorage, Cookbook cookbook) {
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+  }
+  
+  /**
+   * Runs every command of a reader and writes one result line for each command and a
+   * summary at the end. The output is flushed but not closed.
+   *
+   * @param in  the commands, one per line
+   * @param out where the results are written
+   * @return the number of commands that failed
+   * @throws IOException if the commands cannot be read
+   */
+  public int run(BufferedReader in, PrintWriter out) throws IOException {
+    long start = System.nanoTime();
+    int commands = 0;
+    int failed = 0;
+    int lineNumber = 0;
+    String line;
+    while ((line = in.readLine()) != null) {
+      lineNumber++;
+      String trimmed = line.strip();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+      commands++;
+      try {
+        out.println(lineNumber + ": OK " + execute(tokenize(trimmed)));
+      } catch (IllegalArgumentException | DateTimeParseException e) {
+        failed++;
+        out.println(lineNumber + ": ERROR " + e.getMessage());
+      }
+    }
+    long elapsed = Math.max(1, System.nanoTime() - start);
+    out.printf("Ran %d commands in %.1f ms (%.0f commands/s): %d succeeded, %d failed%n",
+        commands, elapsed / NANOS_PER_MILLI, commands * NANOS_PER_SECOND / elapsed,
+        commands - failed, failed);
+    out.flush();
+    return failed;
+  }
+  
+  /**
+   * Runs one command.
+   *
+   * @param tokens the command and its arguments
+   * @return a short description of the result
+   * @throws IllegalArgumentException if the command is unknown, has the wrong arguments,
+   *                                  or the storage rejects it
+   */
+  private String execute(List<String> tokens) {
+    String command = tokens.getFirst().toLowerCase();
+    switch (command) {
+      case "add" -> {
+        requireArguments(tokens, 5, "add <name> <quantity> <unit> <date or -> <price>");
+        Unit unit = Unit.fromCode(tokens.get(3));
+        if (unit.getType() == Unit.UnitType.CURRENCY) {
+          throw new IllegalArgumentException("Invalid unit: " + tokens.get(3));
+        }
+        String name = tokens.get(1);
+        double quantity = Double.parseDouble(tokens.get(2));
+        double price = Double.parseDouble(tokens.get(5));
+        Ingredient ingredient = tokens.get(4).equals("-")
+            ? new Ingredient(name, quantity, unit, price)
+            : new Ingredient(name, quantity, unit, LocalDate.parse(tokens.get(4)), price);
+        foodStorage.addIngredientToFoodStorage(ingredient);
+        return "added " + ingredient.getQuantity() + " " + unit.getSymbol() + " "
+            + ingredient.getName();
+      }
+      case "remove" -> {
+        if (tokens.size() == 4) {
+          Unit unit = Unit.fromCode(tokens.get(3));
+          double removed = foodStorage.removeIngredientFromFoodStorage(tokens.get(1),
+              Double.parseDouble(tokens.get(2)), unit);
+          return "removed " + removed + " " + unit.getSymbol() + " " + tokens.get(1);
+        }
+        requireArguments(tokens, 2, "remove <name> <quantity> [<unit>]");
+        double removed = foodStorage.removeIngredientFromFoodStorage(tokens.get(1),
+            Double.parseDouble(tokens.get(2)));
+        return "removed " + removed + " " + tokens.get(1);
+      }
+      case "cook" -> {
+        requireArguments(tokens, 2, "cook <recipe> <portions>");
+        Recipe recipe = cookbook.searchForRecipeInCookbook(tokens.get(1))
+            .orElseThrow(() -> new IllegalArgumentException(
+                "Recipe " + tokens.get(1) + " does not exist in the cookbook."))
+            .getValue();
+        double portions = Double.parseDouble(tokens.get(2));
+        foodStorage.cook(recipe, portions);
+        return "cooked " + portions + " portions of " + recipe.getName();
+      }
+      case "value" -> {
+        requireArguments(tokens, 0, "value");
+        return "total value "
+            + new Money(foodStorage.getTotalValueMinorUnits(), RateTable.BASE_CURRENCY);
+      }
+      default -> throw new IllegalArgumentException("Unknown command: " + tokens.getFirst());
+    }
+  }
+  
+  /**
+   * Checks that a command has the number of arguments it needs.
+   *
+   * @param tokens    the command and its arguments
+   * @param arguments the number of arguments
+   * @param usage     the usage of the command, for the error message
+   * @throws IllegalArgumentException if the number of arguments is wrong
+   */
+  private static void requireArguments(List<String> tokens, int arguments, String usage) {
+    if (tokens.size() != arguments + 1) {
+      throw new IllegalArgumentException("Usage: " + usage);
+    }
+  }
+  
+  /**
+   * Splits a line into tokens at whitespace. Text in double quotes is one token.
+   *
+   * @param line the line to split
+   * @return the tokens of the line
+   * @throws IllegalArgumentException if a quote is not closed
+   */
+  private static List<String> tokenize(String line) {
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < line.length()) {
+      char c = line.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '"') {
+        int end = line.indexOf('"', i + 1);
+        if (end < 0) {
+          throw new IllegalArgumentException("Missing closing quote");
+        }
+        tokens.add(line.substring(i + 1, end));
+        i = end + 1;
+      } else {
+        int end = i;
+        while (end < line.length() && !Character.isWhitespace(line.charAt(end))) {
+          end++;
+        }
+        tokens.add(line.substring(i, end));
+        i = end;
+      }
+    }
+    return tokens;
+  }
+}
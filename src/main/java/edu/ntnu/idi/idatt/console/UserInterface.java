@@ -1,13 +1,19 @@
 package edu.ntnu.idi.idatt.console;
 
 import edu.ntnu.idi.idatt.data.DummyData;
-import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.model.RateTable;
 import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.persistence.Journal;
+import edu.ntnu.idi.idatt.persistence.RateTableFile;
 import edu.ntnu.idi.idatt.service.CookbookService;
 import edu.ntnu.idi.idatt.service.FoodStorageService;
 import edu.ntnu.idi.idatt.storage.Cookbook;
 import edu.ntnu.idi.idatt.storage.FoodStorage;
 import edu.ntnu.idi.idatt.utils.ConsoleInputManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.InputMismatchException;
 import java.util.Scanner;
 
@@ -20,14 +26,26 @@ import java.util.Scanner;
  * @author trile
  */
 public class UserInterface {
+  static final String JOURNAL_FILE = "food-storage.journal";
+  private static final String RATES_FILE = "currency-rates.txt";
   
   private FoodStorageService foodStorageService;
   private CookbookService cookbookService;
   private Scanner scanner;
   private Unit unit;
+  private Journal journal;
+  private RateTableFile rateTableFile;
   
   /**
    * Initializes the user interface by setting up services and loading dummy data.
+   * The food storage and cookbook are restored from the journal file, and the dummy data
+   * is only loaded when the journal is new.
+   *
+   * <p>The application does not start when the journal cannot be opened or replayed.
+   * Running without it would lose every change of the session, and starting over with an
+   * empty storage could overwrite the history in the file.</p>
+   *
+   * @throws IllegalStateException if the journal cannot be opened or replayed
    */
   public void init() {
     scanner = new Scanner(System.in);
@@ -35,14 +53,24 @@ public class UserInterface {
     
     FoodStorage foodStorage = new FoodStorage();
     Cookbook cookbook = new Cookbook();
+    foodStorage.setDensityTable(DensityTable.withCommonDensities());
     
-    DummyData.loadDummyData(foodStorage, cookbook);
+    try {
+      journal = Journal.open(Path.of(JOURNAL_FILE), foodStorage, cookbook);
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException("Could not open the journal " + JOURNAL_FILE
+          + ", so the application was not started: " + e.getMessage(), e);
+    }
+    if (journal.getReplayedRecordCount() == 0) {
+      DummyData.loadDummyData(foodStorage, cookbook);
+    }
     
     unit = Unit.KR;
-    unit.setSymbol("NOK");
+    rateTableFile = new RateTableFile(Path.of(RATES_FILE));
+    reloadRates();
     
     foodStorageService =
-        new FoodStorageService(foodStorage, inputManager, unit);
+        new FoodStorageService(foodStorage, inputManager, unit, rateTableFile::current);
     cookbookService =
         new CookbookService(cookbook, foodStorage, inputManager);
   }
@@ -77,10 +105,13 @@ public class UserInterface {
         case 12 -> cookbookService.handleDisplayCookbook();
         case 13 -> cookbookService.handleRemoveRecipe();
         case 16 -> chooseCurrency();
+        case 17 -> cookbookService.handleCookRecipe();
         case 14 -> displayHelp();
         case 15 ->
           {
             displayGoodbyeMessage();
+            foodStorageService.close();
+            closeJournal();
             running = false;
           }
         default -> System.out.println("\u001B[31mInvalid choice. "
@@ -90,16 +121,51 @@ public class UserInterface {
     scanner.close();
   }
   
+  /**
+   * Writes the last changes to the journal and closes it.
+   */
+  private void closeJournal() {
+    if (journal == null) {
+      return;
+    }
+    try {
+      journal.close();
+    } catch (IOException e) {
+      System.out.println("Could not save the last changes: " + e.getMessage());
+    }
+  }
+  
+  /**
+   * Reads the rate file again if it exists, so changed rates are used from the next request.
+   * The built-in rates are kept when there is no file or it cannot be read.
+   */
+  private void reloadRates() {
+    if (!Files.exists(rateTableFile.getPath())) {
+      return;
+    }
+    try {
+      if (rateTableFile.reload()) {
+        System.out.println("Loaded currency rates version "
+            + rateTableFile.current().getVersion());
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      System.out.println("Could not load the currency rates, keeping version "
+          + rateTableFile.current().getVersion() + ": " + e.getMessage());
+    }
+  }
+  
   /**
    * Displays a list of available currencies for selection and prompts the user to choose one.
-   * Updates the symbol of the selected currency if the input is valid.
+   * The rate file is read again first, and only currencies with a rate can be chosen.
    *
    * @throws IllegalArgumentException if the entered currency is invalid or not found in the list.
    */
   public void chooseCurrency() {
+    reloadRates();
+    RateTable rates = rateTableFile.current();
     System.out.println("Currency to choose from:");
     for (Unit unit : Unit.values()) {
-      if (unit.getType() == Unit.UnitType.CURRENCY) {
+      if (rates.hasRate(unit)) {
         System.out.println(" -" + unit.name()
             + " (" + unit.getSymbol() + ") - " + unit.getCountry());
       }
@@ -112,15 +178,15 @@ public class UserInterface {
       
       try {
         selectedUnit = Unit.valueOf(choice);
-        if (selectedUnit.getType() == Unit.UnitType.CURRENCY) {
+        if (rates.hasRate(selectedUnit)) {
           break;
         } else {
-          System.out.println("The selected unit is not a currency. Please try again.");
+          System.out.println("The selected unit is not a currency with a rate. Please try again.");
         }
       } catch (IllegalArgumentException e) {
         System.out.println("Invalid currency entered. Valid options are:");
         for (Unit unit : Unit.values()) {
-          if (unit.getType() == Unit.UnitType.CURRENCY) {
+          if (rates.hasRate(unit)) {
             System.out.println(" -" + unit.name() + " (" + unit.getSymbol() + ")");
           }
         }
@@ -128,7 +194,6 @@ public class UserInterface {
     } while (true);
     
     unit = selectedUnit;
-    Ingredient.setUnitCurrency(selectedUnit);
     foodStorageService.setUnit(selectedUnit);
     System.out.println("Chosen unit: " + selectedUnit.getSymbol());
   }
@@ -159,6 +224,7 @@ public class UserInterface {
     System.out.println(" 11  View suggested recipes from the cookbook");
     System.out.println(" 12  Display all recipes in the cookbook");
     System.out.println(" 13  Remove a recipe from the cookbook");
+    System.out.println(" 17  Cook a recipe and use up its ingredients");
     
     System.out.println("\u001B[36m⚙️ General Options:\u001B[0m");
     System.out.println(" 14  Help");
@@ -232,6 +298,8 @@ public class UserInterface {
         + "   - Browse all your saved recipes.");
     System.out.println("  \u001B[34m13: Remove Recipe\u001B[0m     "
         + "  - Delete a recipe you no longer need.");
+    System.out.println("  \u001B[34m17: Cook Recipe\u001B[0m       "
+        + "  - Take the ingredients of a recipe from your storage.");
     
     System.out.println("\u001B[36m⚙️ General Options:\u001B[0m");
     System.out.println("  \u001B[35m14: Help\u001B[0m             "
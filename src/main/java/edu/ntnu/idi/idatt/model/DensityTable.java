@@ -0,0 +1,221 @@
+package edu.ntnu.idi.idatt.model;
+
+import edu.ntnu.idi.idatt.utils.InputValidator;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable table of the densities of ingredients, used to compare quantities of the same
+ * ingredient given by mass and by volume.
+ *
+ * <p>The densities are keyed by ingredient name in any case. When the table is made, every
+ * density is compiled into a conversion vector for the id of its name in the
+ * {@link NameDictionary}: the factor from the base unit of every {@link Unit.UnitType} to the
+ * base unit of every other type. Converting a quantity is then one array lookup and one
+ * multiplication. A pair of types that cannot be converted has {@link Unit#INCOMPATIBLE}
+ * as its factor instead of throwing an exception, and a quantity that cannot be converted
+ * counts as 0.</p>
+ *
+ * @author TriLe
+ */
+public final class DensityTable {
+  private static final int TYPES = Unit.UnitType.values().length;
+  private static final double[] SAME_TYPE_ONLY = compileVector(Double.NaN);
+  
+  /**
+   * A table without densities, where only quantities of the same unit type are compared.
+   */
+  public static final DensityTable EMPTY = new DensityTable(Map.of());
+  
+  private final Map<String, Double> densities;
+  private final double[][] vectorsByNameId;
+  
+  /**
+   * Constructs a table from the densities of some ingredients.
+   *
+   * @param kilogramsPerLitre the density of each ingredient by name, in kilograms per litre
+   * @throws IllegalArgumentException if the map is null, a name is blank, or a density
+   *                                  is not positive
+   */
+  public DensityTable(Map<String, Double> kilogramsPerLitre) {
+    if (kilogramsPerLitre == null) {
+      throw new IllegalArgumentException("Densities cannot be null");
+    }
+    Map<String, Double> normalized = new HashMap<>();
+    Map<Integer, double[]> vectors = new HashMap<>();
+    int maxNameId = -1;
+    for (Map.Entry<String, Double> entry : kilogramsPerLitre.entrySet()) {
+      InputValidator.validateString(entry.getKey(), "Name");
+      Double density = entry.getValue();
+      if (density == null || !(density > 0) || Double.isInfinite(density)) {
+        throw new IllegalArgumentException("Density of " + entry.getKey()
+            + " must be positive");
+      }
+      int nameId = NameDictionary.idOf(entry.getKey());
+      normalized.put(NameDictionary.keyOf(nameId), density);
+      vectors.put(nameId, compileVector(density));
+      maxNameId = Math.max(maxNameId, nameId);
+    }
+    this.densities = Map.copyOf(normalized);
+    this.vectorsByNameId = new double[maxNameId + 1][];
+    vectors.forEach((nameId, vector) -> vectorsByNameId[nameId] = vector);
+  }
+  
+  /**
+   * Creates a table with the densities of some common ingredients.
+   *
+   * @return a table of common densities
+   */
+  public static DensityTable withCommonDensities() {
+    return new DensityTable(Map.of(
+        "Water", 1.0,
+        "Milk", 1.03,
+        "Flour", 0.53,
+        "Sugar", 0.85,
+        "Butter", 0.91,
+        "Oil", 0.92,
+        "Salt", 1.2,
+        "Rice", 0.85,
+        "Honey", 1.42));
+  }
+  
+  /**
+   * Creates a table with the densities of this table and one more, which replaces the
+   * density of the ingredient if it already has one.
+   *
+   * @param name              the name of the ingredient
+   * @param kilogramsPerLitre the density of the ingredient, in kilograms per litre
+   * @return a new table with the density
+   * @throws IllegalArgumentException if the name is blank or the density is not positive
+   */
+  public DensityTable with(String name, double kilogramsPerLitre) {
+    InputValidator.validateString(name, "Name");
+    Map<String, Double> extended = new HashMap<>(densities);
+    extended.put(NameDictionary.keyOf(NameDictionary.idOf(name)), kilogramsPerLitre);
+    return new DensityTable(extended);
+  }
+  
+  /**
+   * Compiles the factors between the base units of every pair of unit types
+   * for an ingredient with a density.
+   *
+   * @param kilogramsPerLitre the density, or NaN for an ingredient without one
+   * @return the factors, where {@code [from * TYPES + to]} converts from one type to the other
+   */
+  private static double[] compileVector(double kilogramsPerLitre) {
+    double[] vector = new double[TYPES * TYPES];
+    Arrays.fill(vector, Unit.INCOMPATIBLE);
+    for (int type = 0; type < TYPES; type++) {
+      vector[type * TYPES + type] = 1.0;
+    }
+    if (!Double.isNaN(kilogramsPerLitre)) {
+      int mass = Unit.UnitType.MASS.ordinal();
+      int volume = Unit.UnitType.VOLUME.ordinal();
+      double volumeToMass = kilogramsPerLitre * Unit.UnitType.MASS.getFixedPointScale()
+          / Unit.UnitType.VOLUME.getFixedPointScale();
+      vector[volume * TYPES + mass] = volumeToMass;
+      vector[mass * TYPES + volume] = 1 / volumeToMass;
+    }
+    return vector;
+  }
+  
+  /**
+   * Retrieves the conversion vector of an ingredient.
+   *
+   * @param nameId the id of the name of the ingredient
+   * @return the vector of the ingredient
+   */
+  private double[] vectorOf(int nameId) {
+    double[] vector = nameId >= 0 && nameId < vectorsByNameId.length
+        ? vectorsByNameId[nameId] : null;
+    return vector == null ? SAME_TYPE_ONLY : vector;
+  }
+  
+  /**
+   * Retrieves the density of an ingredient.
+   *
+   * @param name the name of the ingredient, in any case
+   * @return the density in kilograms per litre, or NaN if the ingredient has none
+   */
+  public double getDensity(String name) {
+    int nameId = NameDictionary.find(name);
+    return nameId < 0 ? Double.NaN
+        : densities.getOrDefault(NameDictionary.keyOf(nameId), Double.NaN);
+  }
+  
+  /**
+   * Gets the factor that converts a quantity of an ingredient in the base unit of one type
+   * to the base unit of another.
+   *
+   * @param nameId the id of the name of the ingredient
+   * @param from   the type to convert from
+   * @param to     the type to convert to
+   * @return the factor, or {@link Unit#INCOMPATIBLE} if the ingredient cannot be converted
+   */
+  public double factor(int nameId, Unit.UnitType from, Unit.UnitType to) {
+    return vectorOf(nameId)[from.ordinal() * TYPES + to.ordinal()];
+  }
+  
+  /**
+   * Converts a quantity of an ingredient in the base unit of one type to the base unit of
+   * another, rounded down so a converted quantity is never more than there is.
+   *
+   * @param nameId       the id of the name of the ingredient
+   * @param baseQuantity the quantity in the base unit of the type to convert from
+   * @param from         the type to convert from
+   * @param to           the type to convert to
+   * @return the quantity in the base unit of the other type, or 0 if it cannot be converted
+   */
+  public long convertBaseQuantity(int nameId, long baseQuantity, Unit.UnitType from,
+      Unit.UnitType to) {
+    if (from == to) {
+      return baseQuantity;
+    }
+    double factor = factor(nameId, from, to);
+    return Double.isNaN(factor) ? 0 : (long) Math.floor(baseQuantity * factor);
+  }
+  
+  /**
+   * Finds how much of an ingredient in the base unit of one type covers a quantity in the
+   * base unit of another, rounded up so the quantity is always covered.
+   *
+   * @param nameId       the id of the name of the ingredient
+   * @param baseQuantity the quantity to cover, in the base unit of its type
+   * @param type         the type of the quantity to cover
+   * @param coveringType the type to give the covering quantity in
+   * @return the covering quantity, or {@link Long#MAX_VALUE} if it cannot be converted
+   */
+  public long coveringBaseQuantity(int nameId, long baseQuantity, Unit.UnitType type,
+      Unit.UnitType coveringType) {
+    if (type == coveringType) {
+      return baseQuantity;
+    }
+    double factor = factor(nameId, type, coveringType);
+    return Double.isNaN(factor) ? Long.MAX_VALUE : (long) Math.ceil(baseQuantity * factor);
+  }
+  
+  /**
+   * Sums the quantities of an ingredient of every unit type that can be converted to one
+   * type, with one pass over its conversion vector.
+   *
+   * @param nameId         the id of the name of the ingredient
+   * @param baseQuantities the quantity of each unit type in its base unit,
+   *                       indexed by the ordinal of the type
+   * @param type           the type to give the quantity in
+   * @return the total quantity in the base unit of the type
+   */
+  public long convertibleBaseQuantity(int nameId, long[] baseQuantities, Unit.UnitType type) {
+    double[] vector = vectorOf(nameId);
+    int to = type.ordinal();
+    long total = baseQuantities[to];
+    for (int from = 0; from < TYPES; from++) {
+      double factor = vector[from * TYPES + to];
+      if (from != to && baseQuantities[from] != 0 && !Double.isNaN(factor)) {
+        total += (long) Math.floor(baseQuantities[from] * factor);
+      }
+    }
+    return total;
+  }
+}
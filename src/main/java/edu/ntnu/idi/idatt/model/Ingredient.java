@@ -1,6 +1,9 @@
 package edu.ntnu.idi.idatt.model;
 
 import edu.ntnu.idi.idatt.utils.InputValidator;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.time.LocalDate;
 
 /**
@@ -10,17 +13,40 @@ import java.time.LocalDate;
  * <p>Provides a constructor to create a train departure and a functionality for validation.
  * Also include mutator methods for expiration date and quantity</p>
  *
+ * <p>The quantity is stored as a fixed-point {@code long} in the canonical base unit of the
+ * unit type, see {@link Unit#toFixedPoint(double)}, and is only converted to a {@code double}
+ * in the unit of the ingredient when it is read. The price is likewise stored as a whole
+ * number of minor units, see {@link Money}.</p>
+ *
+ * <p>The name is only given an id in the {@link NameDictionary} the first time the id is
+ * needed, so ingredients that are only made to look something up do not add their name
+ * to it.</p>
+ *
+ * <p>The quantity can be read and changed from several threads. Changes that add to the
+ * quantity are done with a compare-and-set, so no change is lost.</p>
+ *
  * @author TriLe
  * @version 1.2.1
  */
 public class Ingredient {
+  private static final VarHandle BASE_QUANTITY;
   private static Unit unitCurrency = Unit.KR;
   private final String name;
+  private int nameId;
   private final Unit unitMeasurement;
-  private final double price;
-  private double quantity;
+  private final long priceMinorUnits;
+  private volatile long baseQuantity;
   private final LocalDate expirationDate;
   
+  static {
+    try {
+      BASE_QUANTITY = MethodHandles.lookup()
+          .findVarHandle(Ingredient.class, "baseQuantity", long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+  
   /**
    * Initialize an Ingredient instance with the specified attributes and performs validation.
    *
@@ -37,11 +63,12 @@ public class Ingredient {
     InputValidator.validationEnum(unitMeasurement);
     InputValidator.validateDouble(price, "Price");
     InputValidator.validateDate(expirationDate, false);
+    this.unitMeasurement = unitMeasurement;
     setQuantity(quantity);
     this.expirationDate = expirationDate;
     this.name = name;
-    this.unitMeasurement = unitMeasurement;
-    this.price = price;
+    this.nameId = NameDictionary.UNKNOWN;
+    this.priceMinorUnits = Money.toMinorUnits(price);
   }
   
   /**
@@ -57,13 +84,57 @@ public class Ingredient {
     InputValidator.validateString(name, "Name");
     InputValidator.validationEnum(unitMeasurement);
     InputValidator.validateDouble(price, "Price");
+    this.unitMeasurement = unitMeasurement;
     setQuantity(quantity);
     this.name = name;
-    this.unitMeasurement = unitMeasurement;
-    this.price = price;
+    this.nameId = NameDictionary.UNKNOWN;
+    this.priceMinorUnits = Money.toMinorUnits(price);
     this.expirationDate = null;
   }
   
+  /**
+   * Initialize an Ingredient instance from the exact values it stores, without a quantity.
+   *
+   * @param name            the name of the ingredient
+   * @param unitMeasurement the unit of measurement for the ingredient
+   * @param expirationDate  expiration date for the Ingredient, or {@code null} if none
+   * @param priceMinorUnits the price of the ingredient in minor units
+   * @throws IllegalArgumentException if any input validation fails
+   */
+  private Ingredient(String name, Unit unitMeasurement, LocalDate expirationDate,
+                     long priceMinorUnits) {
+    InputValidator.validateString(name, "Name");
+    InputValidator.validationEnum(unitMeasurement);
+    if (priceMinorUnits < 0) {
+      throw new IllegalArgumentException("Price cannot be negative or NaN");
+    }
+    this.unitMeasurement = unitMeasurement;
+    this.expirationDate = expirationDate;
+    this.name = name;
+    this.nameId = NameDictionary.UNKNOWN;
+    this.priceMinorUnits = priceMinorUnits;
+  }
+  
+  /**
+   * Creates an Ingredient from the exact values it stores, for example when it is read back
+   * from a file, so neither the quantity nor the price is rounded on the way.
+   *
+   * @param name            the name of the ingredient
+   * @param baseQuantity    the quantity in the canonical base unit of the unit type
+   * @param unitMeasurement the unit of measurement for the ingredient
+   * @param expirationDate  expiration date for the Ingredient, or {@code null} if none
+   * @param priceMinorUnits the price of the ingredient in minor units
+   * @return the new Ingredient
+   * @throws IllegalArgumentException if any input validation fails
+   */
+  public static Ingredient ofExactValues(String name, long baseQuantity, Unit unitMeasurement,
+                                         LocalDate expirationDate, long priceMinorUnits) {
+    Ingredient ingredient = new Ingredient(name, unitMeasurement, expirationDate,
+        priceMinorUnits);
+    ingredient.setBaseQuantity(baseQuantity);
+    return ingredient;
+  }
+  
   /**
    * Retrieves the name of the Ingredient.
    *
@@ -73,13 +144,53 @@ public class Ingredient {
     return name;
   }
   
+  /**
+   * Retrieves the id of the name of the Ingredient in the {@link NameDictionary},
+   * giving the name an id if it has none yet.
+   * Ingredients whose names differ only in case or spacing have the same id.
+   *
+   * @return the id of the name
+   */
+  public int getNameId() {
+    int id = nameId;
+    if (id == NameDictionary.UNKNOWN) {
+      id = NameDictionary.idOf(name);
+      nameId = id;
+    }
+    return id;
+  }
+  
+  /**
+   * Retrieves the id of the name of the Ingredient in the {@link NameDictionary}
+   * without giving the name an id. Used when the ingredient is only looked up.
+   *
+   * @return the id of the name, or {@link NameDictionary#UNKNOWN} if the name has no id
+   */
+  public int findNameId() {
+    int id = nameId;
+    if (id == NameDictionary.UNKNOWN) {
+      id = NameDictionary.find(name);
+      nameId = id;
+    }
+    return id;
+  }
+  
   /**
    * Retrieves the quantity of the Ingredient.
    *
    * @return the quantity of the Ingredient
    */
   public double getQuantity() {
-    return quantity;
+    return unitMeasurement.fromFixedPoint(baseQuantity);
+  }
+  
+  /**
+   * Retrieves the quantity of the Ingredient in the canonical base unit of its unit type.
+   *
+   * @return the quantity as a fixed-point value
+   */
+  public long getBaseQuantity() {
+    return baseQuantity;
   }
   
   /**
@@ -90,7 +201,41 @@ public class Ingredient {
    */
   public void setQuantity(double quantity) {
     InputValidator.validateDouble(quantity, "Quantity");
-    this.quantity = quantity;
+    this.baseQuantity = unitMeasurement.toFixedPoint(quantity);
+  }
+  
+  /**
+   * Sets the quantity of the ingredient in the canonical base unit of its unit type.
+   *
+   * @param baseQuantity the new quantity as a fixed-point value
+   * @throws IllegalArgumentException if the quantity is not positive
+   */
+  public void setBaseQuantity(long baseQuantity) {
+    if (baseQuantity <= 0) {
+      throw new IllegalArgumentException("Quantity cannot be negative or NaN");
+    }
+    this.baseQuantity = baseQuantity;
+  }
+  
+  /**
+   * Adds to the quantity of the ingredient in the canonical base unit of its unit type.
+   * The change is made atomically, so changes from several threads are never lost.
+   *
+   * @param delta the quantity to add as a fixed-point value, negative to take away
+   * @return the new quantity as a fixed-point value
+   * @throws IllegalArgumentException if the new quantity would not be positive
+   */
+  public long addBaseQuantity(long delta) {
+    long current;
+    long updated;
+    do {
+      current = baseQuantity;
+      updated = current + delta;
+      if (updated <= 0) {
+        throw new IllegalArgumentException("Quantity cannot be negative or NaN");
+      }
+    } while (!BASE_QUANTITY.compareAndSet(this, current, updated));
+    return updated;
   }
   
   /**
@@ -117,7 +262,25 @@ public class Ingredient {
    * @return the price of the ingredient.
    */
   public double getPrice() {
-    return price;
+    return Money.toMajorUnits(priceMinorUnits);
+  }
+  
+  /**
+   * Retrieves the price of the ingredient as a whole number of minor units.
+   *
+   * @return the price in minor units
+   */
+  public long getPriceMinorUnits() {
+    return priceMinorUnits;
+  }
+  
+  /**
+   * Retrieves the price of the ingredient in the {@link RateTable#BASE_CURRENCY}.
+   *
+   * @return the price as money
+   */
+  public Money getPriceAsMoney() {
+    return new Money(priceMinorUnits, RateTable.BASE_CURRENCY);
   }
   
   /**
@@ -128,11 +291,13 @@ public class Ingredient {
    */
   public void updateQuantity(double quantity) {
     InputValidator.validateDouble(quantity, "Quantity");
-    this.quantity += quantity;
+    addBaseQuantity(unitMeasurement.toFixedPoint(quantity));
   }
   
   /**
-   * Retrieves the current unit currency for price display.
+   * Retrieves the current unit currency for price display in {@link #toString()}.
+   * It is shared by every thread, so code that serves several users formats with
+   * {@link #format(Money)} and a currency of its own instead.
    *
    * @return the current unit currency
    */
@@ -162,10 +327,25 @@ public class Ingredient {
    */
   @Override
   public String toString() {
-    // TODO Auto-generated method stub
+    return format(new Money(priceMinorUnits, unitCurrency));
+  }
+  
+  /**
+   * Returns a string representation of the ingredient like {@link #toString()}, but with
+   * the given price, for example the price converted to the currency of a request.
+   *
+   * @param price the price to show
+   * @return a string representation of the ingredient
+   * @throws IllegalArgumentException if the price is null
+   */
+  public String format(Money price) {
+    if (price == null) {
+      throw new IllegalArgumentException("Price cannot be null");
+    }
     String expirationDateOutput = (expirationDate != null) ? " Expires: " + expirationDate : "";
     
-    return name + " (" + quantity + " " + unitMeasurement.getSymbol() + ")" + expirationDateOutput
-        + " Price: " + price + " " + unitCurrency.getSymbol();
+    return name + " (" + getQuantity() + " " + unitMeasurement.getSymbol() + ")"
+        + expirationDateOutput + " Price: " + price.getAmount() + " "
+        + price.currency().getSymbol();
   }
 }
\ No newline at end of file
@@ -0,0 +1,141 @@
+package edu.ntnu.idi.idatt.model;
+
+/**
+ * An amount of money as a whole number of minor units (øre, cents) of a currency.
+ *
+ * <p>Every currency is counted in hundredths, so one major unit is
+ * {@value #MINOR_UNITS_PER_MAJOR} minor units, also for currencies that have no coins
+ * smaller than the major unit. Amounts are added and compared as {@code long} values,
+ * which is exact, and are only converted to a {@code double} when they are read as one.</p>
+ *
+ * @param minorUnits the amount in minor units, negative for a debt
+ * @param currency   the currency of the amount
+ * @author TriLe
+ */
+public record Money(long minorUnits, Unit currency) implements Comparable<Money> {
+  /**
+   * The number of minor units in one major unit of every currency.
+   */
+  public static final long MINOR_UNITS_PER_MAJOR = 100;
+  
+  /**
+   * Validates the currency of the amount.
+   *
+   * @throws IllegalArgumentException if the currency is null or not a currency unit
+   */
+  public Money {
+    if (currency == null || currency.getType() != Unit.UnitType.CURRENCY) {
+      throw new IllegalArgumentException("Invalid currency unit.");
+    }
+  }
+  
+  /**
+   * Creates an amount from a number of major units, rounded to the nearest minor unit.
+   *
+   * @param amount   the amount in major units
+   * @param currency the currency of the amount
+   * @return the amount as money
+   * @throws IllegalArgumentException if the currency is null or not a currency unit
+   */
+  public static Money of(double amount, Unit currency) {
+    return new Money(toMinorUnits(amount), currency);
+  }
+  
+  /**
+   * Converts an amount in major units to minor units, rounded to the nearest minor unit.
+   *
+   * @param amount the amount in major units
+   * @return the amount in minor units
+   */
+  public static long toMinorUnits(double amount) {
+    return Math.round(amount * MINOR_UNITS_PER_MAJOR);
+  }
+  
+  /**
+   * Converts an amount in minor units to major units.
+   *
+   * @param minorUnits the amount in minor units
+   * @return the amount in major units
+   */
+  public static double toMajorUnits(long minorUnits) {
+    return minorUnits / (double) MINOR_UNITS_PER_MAJOR;
+  }
+  
+  /**
+   * Retrieves the amount in major units.
+   *
+   * @return the amount in major units
+   */
+  public double getAmount() {
+    return toMajorUnits(minorUnits);
+  }
+  
+  /**
+   * Adds an amount in the same currency.
+   *
+   * @param other the amount to add
+   * @return the sum of the amounts
+   * @throws IllegalArgumentException if the other amount is null or in another currency
+   * @throws ArithmeticException if the sum does not fit in a {@code long}
+   */
+  public Money plus(Money other) {
+    requireSameCurrency(other);
+    return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+  }
+  
+  /**
+   * Subtracts an amount in the same currency.
+   *
+   * @param other the amount to subtract
+   * @return the difference of the amounts
+   * @throws IllegalArgumentException if the other amount is null or in another currency
+   * @throws ArithmeticException if the difference does not fit in a {@code long}
+   */
+  public Money minus(Money other) {
+    requireSameCurrency(other);
+    return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+  }
+  
+  /**
+   * Checks that another amount is in the currency of this amount.
+   *
+   * @param other the other amount
+   * @throws IllegalArgumentException if the other amount is null or in another currency
+   */
+  private void requireSameCurrency(Money other) {
+    if (other == null) {
+      throw new IllegalArgumentException("Money cannot be null");
+    }
+    if (other.currency != currency) {
+      throw new IllegalArgumentException("Cannot combine " + currency.getCode()
+          + " with " + other.currency.getCode());
+    }
+  }
+  
+  /**
+   * Compares two amounts in the same currency.
+   *
+   * @param other the amount to compare with
+   * @return a negative number, zero or a positive number if this amount is less than,
+   *      equal to or greater than the other
+   * @throws IllegalArgumentException if the other amount is null or in another currency
+   */
+  @Override
+  public int compareTo(Money other) {
+    requireSameCurrency(other);
+    return Long.compare(minorUnits, other.minorUnits);
+  }
+  
+  /**
+   * Formats the amount with two decimals and the symbol of the currency, like "12.50 NOK".
+   *
+   * @return the formatted amount
+   */
+  @Override
+  public String toString() {
+    long whole = Math.abs(minorUnits / MINOR_UNITS_PER_MAJOR);
+    long cents = Math.abs(minorUnits % MINOR_UNITS_PER_MAJOR);
+    return (minorUnits < 0 ? "-" : "") + whole + (cents < 10 ? ".0" : ".") + cents
+        + " " + currency.getSymbol();
+  }
+}
@@ -0,0 +1,212 @@
+package edu.ntnu.idi.idatt.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, versioned table of currency rates.
+ *
+ * <p>Every price is stored in the {@link #BASE_CURRENCY}, and the rate of a currency is the
+ * amount of it that one unit of the base currency is worth. The table never changes after it
+ * is made, so a new table with a higher version is made when the rates change, and readers
+ * that hold the old table keep a consistent set of rates.</p>
+ *
+ * <p>A table is read from lines like these, where lines starting with {@code #} and blank
+ * lines are skipped:</p>
+ * <pre>
+ * version=3
+ * USD=0.091
+ * EUR=0.086
+ * </pre>
+ *
+ * @author TriLe
+ */
+public final class RateTable {
+  /**
+   * The currency that every price is stored in, which always has the rate 1.
+   */
+  public static final Unit BASE_CURRENCY = Unit.KR;
+  
+  private static final Unit[] UNITS = Unit.values();
+  private static final RateTable DEFAULTS = createDefaults();
+  
+  private final long version;
+  private final double[] rates;
+  
+  /**
+   * Constructs a table from the rates of some currencies. The base currency is added
+   * with the rate 1 if it is missing.
+   *
+   * @param version the version of the table, which is never negative
+   * @param rates   the rate of each currency
+   * @throws IllegalArgumentException if the version is negative, a unit is not a currency,
+   *                                  a rate is not positive, or the base rate is not 1
+   */
+  public RateTable(long version, Map<Unit, Double> rates) {
+    if (version < 0) {
+      throw new IllegalArgumentException("Version cannot be negative");
+    }
+    if (rates == null) {
+      throw new IllegalArgumentException("Rates cannot be null");
+    }
+    this.version = version;
+    this.rates = new double[UNITS.length];
+    Arrays.fill(this.rates, Double.NaN);
+    this.rates[BASE_CURRENCY.ordinal()] = 1.0;
+    rates.forEach((currency, rate) -> {
+      if (currency == null || currency.getType() != Unit.UnitType.CURRENCY) {
+        throw new IllegalArgumentException("Invalid currency unit.");
+      }
+      if (rate == null || !(rate > 0) || Double.isInfinite(rate)) {
+        throw new IllegalArgumentException("Rate of " + currency.getCode()
+            + " must be positive");
+      }
+      if (currency == BASE_CURRENCY && rate != 1.0) {
+        throw new IllegalArgumentException("Rate of the base currency "
+            + BASE_CURRENCY.getCode() + " must be 1");
+      }
+      this.rates[currency.ordinal()] = rate;
+    });
+  }
+  
+  /**
+   * Creates the table of the rates built into the {@link Unit} currencies.
+   *
+   * @return the default table, with version 0
+   */
+  private static RateTable createDefaults() {
+    Map<Unit, Double> rates = new EnumMap<>(Unit.class);
+    for (Unit unit : UNITS) {
+      if (unit.getType() == Unit.UnitType.CURRENCY) {
+        rates.put(unit, unit.getConversionFactor());
+      }
+    }
+    return new RateTable(0, rates);
+  }
+  
+  /**
+   * Retrieves the table of the rates built into the {@link Unit} currencies.
+   *
+   * @return the default table, with version 0
+   */
+  public static RateTable defaults() {
+    return DEFAULTS;
+  }
+  
+  /**
+   * Reads a table from lines of {@code key=value}. The key {@code version} gives the version,
+   * and every other key is the ISO 4217 code of a currency with its rate.
+   *
+   * @param lines the lines to read
+   * @return the table of the lines
+   * @throws IllegalArgumentException if a line cannot be read, a currency is unknown,
+   *                                  or there is no version
+   */
+  public static RateTable parse(List<String> lines) {
+    if (lines == null) {
+      throw new IllegalArgumentException("Lines cannot be null");
+    }
+    long version = -1;
+    Map<Unit, Double> rates = new EnumMap<>(Unit.class);
+    for (String line : lines) {
+      String trimmed = line.strip();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+      int separator = trimmed.indexOf('=');
+      if (separator <= 0) {
+        throw new IllegalArgumentException("Invalid rate line: " + line);
+      }
+      String key = trimmed.substring(0, separator).strip();
+      String value = trimmed.substring(separator + 1).strip();
+      try {
+        if (key.equalsIgnoreCase("version")) {
+          version = Long.parseLong(value);
+        } else {
+          rates.put(Unit.fromCode(key), Double.parseDouble(value));
+        }
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid rate line: " + line);
+      }
+    }
+    if (version < 0) {
+      throw new IllegalArgumentException("Rate table has no version");
+    }
+    return new RateTable(version, rates);
+  }
+  
+  /**
+   * Retrieves the version of the table. A newer table has a higher version.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return version;
+  }
+  
+  /**
+   * Checks if the table has a rate for a currency.
+   *
+   * @param currency the currency
+   * @return true if the currency has a rate, false otherwise
+   */
+  public boolean hasRate(Unit currency) {
+    return currency != null && !Double.isNaN(rates[currency.ordinal()]);
+  }
+  
+  /**
+   * Retrieves the rate of a currency.
+   *
+   * @param currency the currency
+   * @return the amount of the currency that one unit of the base currency is worth
+   * @throws IllegalArgumentException if the table has no rate for the currency
+   */
+  public double getRate(Unit currency) {
+    if (!hasRate(currency)) {
+      throw new IllegalArgumentException("No rate for currency "
+          + (currency == null ? null : currency.getCode()));
+    }
+    return rates[currency.ordinal()];
+  }
+  
+  /**
+   * Converts an amount to another currency, rounded to the nearest minor unit.
+   *
+   * @param money    the amount to convert
+   * @param currency the currency to convert to
+   * @return the amount in the other currency
+   * @throws IllegalArgumentException if the amount is null or a currency has no rate
+   */
+  public Money convert(Money money, Unit currency) {
+    if (money == null) {
+      throw new IllegalArgumentException("Money cannot be null");
+    }
+    double factor = getRate(currency) / getRate(money.currency());
+    return money.currency() == currency
+        ? money : new Money(Math.round(money.minorUnits() * factor), currency);
+  }
+  
+  /**
+   * Converts an amount to every currency in a collection.
+   *
+   * @param money      the amount to convert
+   * @param currencies the currencies to convert to
+   * @return an unmodifiable map from currency to the converted amount
+   * @throws IllegalArgumentException if the amount or the currencies are null,
+   *                                  or a currency has no rate
+   */
+  public Map<Unit, Money> convertAll(Money money, Collection<Unit> currencies) {
+    if (currencies == null) {
+      throw new IllegalArgumentException("Currencies cannot be null");
+    }
+    Map<Unit, Money> converted = new EnumMap<>(Unit.class);
+    for (Unit currency : currencies) {
+      converted.put(currency, convert(money, currency));
+    }
+    return Collections.unmodifiableMap(converted);
+  }
+}
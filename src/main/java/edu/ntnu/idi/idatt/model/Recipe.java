@@ -90,8 +90,8 @@ public class Recipe {
   }
   
   /**
-   * Adds an ingredient to the recipe. If the ingredient already exists (by name),
-   * its quantity is updated. Otherwise, it is added to the list.
+   * Adds an ingredient to the recipe. If the ingredient already exists (by name id,
+   * so in any case), its quantity is updated. Otherwise, it is added to the list.
    * Optional used to handle the possibility if a matching ingredient
    * might not be found in the ingredientsList.
    *
@@ -105,7 +105,7 @@ public class Recipe {
       }
       Optional<Ingredient> existingIngredient = ingredientsList.stream()
           .filter(ingredientInRegister ->
-              ingredientInRegister.getName().equals(ingredient.getName()))
+              ingredientInRegister.getNameId() == ingredient.getNameId())
           .findAny();
       
       if (existingIngredient.isPresent()) {
@@ -1,7 +1,11 @@
 package edu.ntnu.idi.idatt.model;
 
 import edu.ntnu.idi.idatt.utils.InputValidator;
-import java.util.Arrays;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Represents different units of measurement used in the system.
@@ -9,6 +13,23 @@ import java.util.Arrays;
  * <p>Each unit is associated with a symbol, a type (e.g., mass, volume, or number) for readability,
  * and a conversion factor for unit conversion. </p>
  *
+ * <p>The factors between every pair of units are computed once into a table, so
+ * {@link #convert(double, Unit)} is a single lookup and multiplication on primitive values.
+ * A pair of units of different types has {@link #INCOMPATIBLE} (NaN) as its factor,
+ * instead of throwing an exception.</p>
+ *
+ * <p>Units are parsed through hash indexes of case-folded symbols and codes. The code of a
+ * currency is its ISO 4217 code and the code of a measurement unit is its symbol.
+ * A symbol can be shared by several units, like "¥" for both CNY and JPY, so all candidates
+ * for a symbol can be looked up, and a strict lookup accepts codes only. Symbols never
+ * change, so the same input is always parsed and printed the same way.</p>
+ *
+ * <p>Quantities are stored as {@code long} fixed-point values in the canonical base unit of
+ * their {@link UnitType}: milligrams, microlitres and thousandths of a piece. Every unit knows
+ * how many base units it is, so {@link #toFixedPoint(double)} and
+ * {@link #fromFixedPoint(long)} are the only places a quantity is converted, and sums and
+ * comparisons of quantities of the same type are exact integer arithmetic.</p>
+ *
  * @author TriLe
  *
  */
@@ -23,26 +44,39 @@ public enum Unit {
   /**
    * Currencies for countries known for high food waste.
    */
-  KR("NOK", UnitType.CURRENCY, 1.0, "Norway"),
-  USD("$", UnitType.CURRENCY, 0.090, "United States"),
-  CNY("¥", UnitType.CURRENCY, 0.66, "China"),
-  INR("₹", UnitType.CURRENCY, 7.5, "India"),
-  JPY("¥", UnitType.CURRENCY, 12.0, "Japan"),
-  GBP("£", UnitType.CURRENCY, 0.075, "United Kingdom"),
-  EUR("€", UnitType.CURRENCY, 0.085, "European Union"),
-  AUD("A$", UnitType.CURRENCY, 0.14, "Australia"),
-  ZAR("R", UnitType.CURRENCY, 1.7, "South Africa"),
-  BRL("R$", UnitType.CURRENCY, 0.46, "Brazil"),
-  MXN("MX$", UnitType.CURRENCY, 0.054, "Mexico"),
-  IDR("Rp", UnitType.CURRENCY, 140.0, "Indonesia"),
-  RUS("₽", UnitType.CURRENCY, 9.0, "Russia"),
-  ITL("₤", UnitType.CURRENCY, 0.08, "Italy");
+  KR("NOK", UnitType.CURRENCY, 1.0, "Norway", "NOK"),
+  USD("$", UnitType.CURRENCY, 0.090, "United States", "USD"),
+  CNY("¥", UnitType.CURRENCY, 0.66, "China", "CNY"),
+  INR("₹", UnitType.CURRENCY, 7.5, "India", "INR"),
+  JPY("¥", UnitType.CURRENCY, 12.0, "Japan", "JPY"),
+  GBP("£", UnitType.CURRENCY, 0.075, "United Kingdom", "GBP"),
+  EUR("€", UnitType.CURRENCY, 0.085, "European Union", "EUR"),
+  AUD("A$", UnitType.CURRENCY, 0.14, "Australia", "AUD"),
+  ZAR("R", UnitType.CURRENCY, 1.7, "South Africa", "ZAR"),
+  BRL("R$", UnitType.CURRENCY, 0.46, "Brazil", "BRL"),
+  MXN("MX$", UnitType.CURRENCY, 0.054, "Mexico", "MXN"),
+  IDR("Rp", UnitType.CURRENCY, 140.0, "Indonesia", "IDR"),
+  RUS("₽", UnitType.CURRENCY, 9.0, "Russia", "RUB"),
+  ITL("₤", UnitType.CURRENCY, 0.08, "Italy", "ITL");
+  
+  /**
+   * The conversion factor and result of a conversion between units of different types.
+   */
+  public static final double INCOMPATIBLE = Double.NaN;
+  
+  private static final double[][] CONVERSION_FACTORS = computeConversionFactors();
+  
+  private static final Map<String, Unit> CODE_INDEX = buildCodeIndex();
+  
+  private static final Map<String, List<Unit>> SYMBOL_INDEX = buildSymbolIndex();
   
   private final UnitType type;
-  private final Double conversionNumber;
+  private final double conversionNumber;
+  private final long fixedPointFactor;
   private final InputValidator inputValidator = new InputValidator();
   private final String country;
-  private String symbol;
+  private final String code;
+  private final String symbol;
   
   /**
    * Constructor to initialize a currency unit.
@@ -51,12 +85,16 @@ public enum Unit {
    * @param type             the type of the unit.
    * @param conversionNumber the conversion factor for the unit relative to its base unit.
    * @param country          the country associated with the currency.
+   * @param code             the ISO 4217 code of the currency.
    */
-  Unit(String symbol, UnitType type, double conversionNumber, String country) {
-    setSymbol(symbol);
+  Unit(String symbol, UnitType type, double conversionNumber, String country, String code) {
+    InputValidator.validateString(symbol, "Unit symbol");
+    this.symbol = symbol;
     this.type = type;
     this.conversionNumber = conversionNumber;
+    this.fixedPointFactor = Math.round(conversionNumber * type.getFixedPointScale());
     this.country = country;
+    this.code = code;
   }
   
   /**
@@ -66,25 +104,113 @@ public enum Unit {
    * @param type             the type of the unit (e.g., mass, volume).
    * @param conversionNumber the conversion factor for the unit relative to its base unit.
    */
-  Unit(String symbol, UnitType type, Double conversionNumber) {
-    setSymbol(symbol);
+  Unit(String symbol, UnitType type, double conversionNumber) {
+    InputValidator.validateString(symbol, "Unit symbol");
+    this.symbol = symbol;
     this.type = type;
     this.conversionNumber = conversionNumber;
+    this.fixedPointFactor = Math.round(conversionNumber * type.getFixedPointScale());
     this.country = "N/A";
+    this.code = symbol;
+  }
+  
+  /**
+   * Computes the factor between every pair of units.
+   *
+   * @return a table where {@code [from][to]} is the factor to convert from one unit
+   *      to the other, indexed by ordinal.
+   */
+  private static double[][] computeConversionFactors() {
+    Unit[] units = values();
+    double[][] factors = new double[units.length][units.length];
+    for (Unit from : units) {
+      for (Unit to : units) {
+        factors[from.ordinal()][to.ordinal()] = from.type == to.type
+            ? from.conversionNumber / to.conversionNumber : INCOMPATIBLE;
+      }
+    }
+    return factors;
+  }
+  
+  /**
+   * Builds the index from case-folded code to unit.
+   *
+   * @return an immutable map from code to unit.
+   */
+  private static Map<String, Unit> buildCodeIndex() {
+    Map<String, Unit> index = new HashMap<>();
+    for (Unit unit : values()) {
+      index.put(NameNormalizer.normalize(unit.code), unit);
+    }
+    return Map.copyOf(index);
+  }
+  
+  /**
+   * Builds the index from case-folded symbol or code to the units that use it,
+   * in the order the units are declared.
+   *
+   * @return an immutable map from symbol or code to units.
+   */
+  private static Map<String, List<Unit>> buildSymbolIndex() {
+    Map<String, List<Unit>> index = new HashMap<>();
+    for (Unit unit : values()) {
+      for (String key : List.of(unit.symbol, unit.code)) {
+        List<Unit> candidates = index.computeIfAbsent(
+            NameNormalizer.normalize(key), k -> new ArrayList<>());
+        if (!candidates.contains(unit)) {
+          candidates.add(unit);
+        }
+      }
+    }
+    index.replaceAll((key, candidates) -> List.copyOf(candidates));
+    return Map.copyOf(index);
   }
   
   /**
-   * Finds the corresponding unit based on a symbol.
+   * Finds the corresponding unit based on a symbol or code.
+   * If several units share the symbol, the first declared is returned.
    *
-   * @param input the symbol representing the unit (case-insensitive).
+   * @param input the symbol or code representing the unit (case-insensitive).
    * @return the matching Unit.
    * @throws IllegalArgumentException if no matching unit is found.
+   * @see #candidatesFromSymbol(String)
    */
   public static Unit fromSymbol(String input) {
-    return Arrays.stream(Unit.values())
-        .filter(unit -> unit.symbol.equalsIgnoreCase(input))
-        .findFirst()
-        .orElseThrow(() -> new IllegalArgumentException("Invalid unit: " + input));
+    List<Unit> candidates = candidatesFromSymbol(input);
+    if (candidates.isEmpty()) {
+      throw new IllegalArgumentException("Invalid unit: " + input);
+    }
+    return candidates.getFirst();
+  }
+  
+  /**
+   * Finds every unit that uses a symbol or code.
+   *
+   * @param input the symbol or code (case-insensitive).
+   * @return an immutable list of the matching units in declaration order,
+   *      empty if no unit matches.
+   */
+  public static List<Unit> candidatesFromSymbol(String input) {
+    if (input == null) {
+      return List.of();
+    }
+    return SYMBOL_INDEX.getOrDefault(NameNormalizer.normalize(input), List.of());
+  }
+  
+  /**
+   * Finds the unit with a code, ignoring display symbols (strict mode).
+   * Currencies are found by their ISO 4217 code, for example "NOK" or "RUB".
+   *
+   * @param input the code of the unit (case-insensitive).
+   * @return the matching Unit.
+   * @throws IllegalArgumentException if no unit has the code.
+   */
+  public static Unit fromCode(String input) {
+    Unit unit = input == null ? null : CODE_INDEX.get(NameNormalizer.normalize(input));
+    if (unit == null) {
+      throw new IllegalArgumentException("Invalid unit code: " + input);
+    }
+    return unit;
   }
   
   /**
@@ -97,15 +223,13 @@ public enum Unit {
   }
   
   /**
-   * Sets the symbol for this unit. Validates the input to ensure it is a non-null,
-   * non-empty string before setting the symbol.
+   * Gets the code of the unit, which is the ISO 4217 code for currencies
+   * and the symbol for units of measurement.
    *
-   * @param symbol the new symbol to assign to the unit. Must be a valid string.
-   * @throws IllegalArgumentException if the symbol is null or empty.
+   * @return the code of the unit.
    */
-  public void setSymbol(String symbol) {
-    InputValidator.validateString(symbol, "Unit symbol");
-    this.symbol = symbol;
+  public String getCode() {
+    return code;
   }
   
   /**
@@ -120,6 +244,69 @@ public enum Unit {
     return conversionNumber;
   }
   
+  /**
+   * Gets the conversion factor of the unit relative to its base type, without boxing.
+   *
+   * @return the conversion factor of the unit.
+   */
+  public double getConversionFactor() {
+    return conversionNumber;
+  }
+  
+  /**
+   * Gets the number of canonical base units of the type in one of this unit,
+   * for example 1000 milligrams in a gram.
+   *
+   * @return the number of base units in one of this unit.
+   */
+  public long getFixedPointFactor() {
+    return fixedPointFactor;
+  }
+  
+  /**
+   * Converts a quantity in this unit to a fixed-point quantity in the canonical base unit
+   * of the type. The result is rounded to the nearest base unit.
+   *
+   * @param quantity the quantity in this unit.
+   * @return the quantity in base units.
+   */
+  public long toFixedPoint(double quantity) {
+    return Math.round(quantity * fixedPointFactor);
+  }
+  
+  /**
+   * Converts a fixed-point quantity in the canonical base unit of the type to this unit.
+   *
+   * @param baseQuantity the quantity in base units.
+   * @return the quantity in this unit.
+   */
+  public double fromFixedPoint(long baseQuantity) {
+    return baseQuantity / (double) fixedPointFactor;
+  }
+  
+  /**
+   * Gets the factor that converts a value in this unit to the target unit.
+   * The target unit is not validated, so it must not be null.
+   *
+   * @param targetUnit the unit to convert to.
+   * @return the conversion factor, or {@link #INCOMPATIBLE} if the units have different types.
+   */
+  public double conversionFactorTo(Unit targetUnit) {
+    return CONVERSION_FACTORS[ordinal()][targetUnit.ordinal()];
+  }
+  
+  /**
+   * Converts a value from this unit to a target unit, using the precomputed factor table.
+   * The target unit is not validated, so it must not be null.
+   *
+   * @param value      the value to be converted (in the current unit).
+   * @param targetUnit the target unit for conversion.
+   * @return the converted value, or {@link #INCOMPATIBLE} if the units have different types.
+   */
+  public double convert(double value, Unit targetUnit) {
+    return value * CONVERSION_FACTORS[ordinal()][targetUnit.ordinal()];
+  }
+  
   /**
    * Converts a given value from the current unit to a target unit.
    *
@@ -134,7 +321,7 @@ public enum Unit {
   public Double convertValue(Double value, Unit targetUnit) {
     InputValidator.validationEnum(targetUnit);
     inputValidator.validationEnumUnitType(this.type, targetUnit.type);
-    return (value * this.conversionNumber) / targetUnit.conversionNumber;
+    return convert(value, targetUnit);
   }
   
   /**
@@ -154,9 +341,25 @@ public enum Unit {
    * Defines types of units used for categorizing measurement units.
    */
   public enum UnitType {
-    MASS,
-    VOLUME,
-    NUMBER,
-    CURRENCY
+    MASS(1_000_000),
+    VOLUME(1_000_000),
+    NUMBER(1_000),
+    CURRENCY(1_000_000);
+    
+    private final long fixedPointScale;
+    
+    UnitType(long fixedPointScale) {
+      this.fixedPointScale = fixedPointScale;
+    }
+    
+    /**
+     * Gets the number of canonical base units in the unit with conversion factor 1,
+     * for example 1 000 000 milligrams in a kilogram.
+     *
+     * @return the number of base units in the reference unit of the type.
+     */
+    public long getFixedPointScale() {
+      return fixedPointScale;
+    }
   }
 }
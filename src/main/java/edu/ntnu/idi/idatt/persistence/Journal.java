@@ -0,0 +1,548 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.CookbookListener;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import edu.ntnu.idi.idatt.storage.FoodStorageListener;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An append-only write-ahead log of the changes to a {@link FoodStorage} and a {@link Cookbook}.
+ *
+ * <p>When a journal is opened, the records already in the file are replayed into the given
+ * storage and cookbook. After that the journal listens to both and appends a compact binary
+ * record (see {@link JournalCodec}) for every ingredient added, every quantity taken from a
+ * batch and every recipe added or removed. A removal or a cooked recipe is logged as the
+ * exact quantity taken from each batch, so replaying it rebuilds the same batches.</p>
+ *
+ * <p>Records are first appended to an in-memory buffer. The buffer is written to the file and
+ * forced to disk (group commit) on a background thread when {@code syncBatchSize} records
+ * are waiting and every {@code syncIntervalMillis} milliseconds, and by the caller on
+ * {@link #sync()} and on {@link #close()}. The storage tells the journal about a change while
+ * the batches of the ingredient are locked, so appending only copies the record into the
+ * buffer and never waits for the disk. While one group is being forced, new records are
+ * collected in a second buffer. A crash can lose the records that were not yet forced, but
+ * never corrupts the records before them.</p>
+ *
+ * <p>A crash can leave a record that was only partly written at the end of the file.
+ * Replaying stops at the first record that is cut off or has a wrong checksum, and the file is
+ * truncated there, so new records are appended after the last complete one. The file is
+ * read in chunks of {@value #REPLAY_CHUNK_SIZE} bytes, so a journal of any size can be
+ * replayed.</p>
+ *
+ * <p>The file has a single writer. An open journal holds an exclusive lock on its file until
+ * it is closed, so opening the same file again, from this or another process, fails instead
+ * of interleaving two writers.</p>
+ *
+ * @author TriLe
+ */
+public final class Journal implements FoodStorageListener, CookbookListener, AutoCloseable {
+  /**
+   * The default number of records that are forced to disk together.
+   */
+  public static final int DEFAULT_SYNC_BATCH_SIZE = 64;
+  
+  /**
+   * The default longest time, in milliseconds, a record waits before it is forced to disk.
+   */
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 50;
+  
+  private static final int MAGIC = 0x46534a4e;
+  private static final short VERSION = 4;
+  private static final int HEADER_SIZE = Integer.BYTES + Short.BYTES;
+  private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+  private static final int REPLAY_CHUNK_SIZE = 1024 * 1024;
+  
+  private final FileChannel channel;
+  private final FoodStorage foodStorage;
+  private final Cookbook cookbook;
+  private final int syncBatchSize;
+  private final ScheduledExecutorService flusher;
+  private final ReentrantLock appendLock;
+  private final ReentrantLock commitLock;
+  private final int replayedRecords;
+  private ByteBuffer pending;
+  private ByteBuffer committing;
+  private int pendingRecords;
+  private boolean syncRequested;
+  private IOException failure;
+  private boolean closed;
+  
+  /**
+   * Opens a journal with the default sync settings.
+   *
+   * @param path        the journal file, which is created if it does not exist
+   * @param foodStorage the food storage to replay into and log
+   * @param cookbook    the cookbook to replay into and log
+   * @return the open journal
+   * @throws IOException if the file cannot be read or written, or is not a journal
+   * @see #open(Path, FoodStorage, Cookbook, int, long)
+   */
+  public static Journal open(Path path, FoodStorage foodStorage, Cookbook cookbook)
+      throws IOException {
+    return open(path, foodStorage, cookbook, DEFAULT_SYNC_BATCH_SIZE,
+        DEFAULT_SYNC_INTERVAL_MILLIS);
+  }
+  
+  /**
+   * Opens a journal, replays its records into the food storage and the cookbook,
+   * and starts logging their changes.
+   *
+   * @param path               the journal file, which is created if it does not exist
+   * @param foodStorage        the food storage to replay into and log
+   * @param cookbook           the cookbook to replay into and log
+   * @param syncBatchSize      the number of records that are forced to disk together
+   * @param syncIntervalMillis the longest time a record waits before it is forced to disk,
+   *                           or 0 to only force full batches
+   * @return the open journal
+   * @throws IOException              if the file cannot be read or written, is not a journal,
+   *                                  or is already open as a journal
+   * @throws IllegalArgumentException if an argument is null or a sync setting is invalid
+   */
+  public static Journal open(Path path, FoodStorage foodStorage, Cookbook cookbook,
+      int syncBatchSize, long syncIntervalMillis) throws IOException {
+    if (path == null) {
+      throw new IllegalArgumentException("Journal path cannot be null");
+    }
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    if (syncBatchSize <= 0) {
+      throw new IllegalArgumentException("Sync batch size must be positive");
+    }
+    if (syncIntervalMillis < 0) {
+      throw new IllegalArgumentException("Sync interval cannot be negative");
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      lockExclusively(channel, path);
+      int replayedRecords = replay(channel, foodStorage, cookbook);
+      return new Journal(channel, foodStorage, cookbook, syncBatchSize, syncIntervalMillis,
+          replayedRecords);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+  
+  /**
+   * Takes an exclusive lock on a journal file, which is released when the channel is closed.
+   *
+   * @param channel the journal file
+   * @param path    the path of the file, for the message
+   * @throws IOException if the file cannot be locked or is already locked by another writer
+   */
+  private static void lockExclusively(FileChannel channel, Path path) throws IOException {
+    FileLock lock;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    }
+    if (lock == null) {
+      throw new IOException("Journal " + path + " is already in use by another writer");
+    }
+  }
+  
+  /**
+   * Creates a journal on a channel positioned after the last complete record,
+   * and registers it as a listener.
+   *
+   * @param channel            the journal file
+   * @param foodStorage        the food storage to log
+   * @param cookbook           the cookbook to log
+   * @param syncBatchSize      the number of records that are forced to disk together
+   * @param syncIntervalMillis the interval of the background sync, or 0 for none
+   * @param replayedRecords    the number of records that were replayed
+   */
+  private Journal(FileChannel channel, FoodStorage foodStorage, Cookbook cookbook,
+      int syncBatchSize, long syncIntervalMillis, int replayedRecords) {
+    this.channel = channel;
+    this.foodStorage = foodStorage;
+    this.cookbook = cookbook;
+    this.syncBatchSize = syncBatchSize;
+    this.replayedRecords = replayedRecords;
+    this.appendLock = new ReentrantLock();
+    this.commitLock = new ReentrantLock();
+    this.pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.committing = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "journal-sync");
+      thread.setDaemon(true);
+      return thread;
+    });
+    
+    if (syncIntervalMillis > 0) {
+      flusher.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis,
+          syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    foodStorage.addListener(this);
+    cookbook.addListener(this);
+  }
+  
+  /**
+   * Checks the header of the file, or writes it if the file is empty, and applies
+   * every complete record. The file is truncated after the last complete record.
+   *
+   * @param channel     the journal file
+   * @param foodStorage the food storage to replay into
+   * @param cookbook    the cookbook to replay into
+   * @return the number of records that were replayed
+   * @throws IOException if the file cannot be read or written, or is not a journal
+   */
+  private static int replay(FileChannel channel, FoodStorage foodStorage, Cookbook cookbook)
+      throws IOException {
+    long size = channel.size();
+    if (size == 0) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort(VERSION);
+      writeFully(channel, header.flip(), 0);
+      channel.force(true);
+      channel.position(HEADER_SIZE);
+      return 0;
+    }
+    ChunkReader reader = new ChunkReader(channel);
+    ByteBuffer header = reader.require(HEADER_SIZE);
+    if (header == null || header.getInt() != MAGIC) {
+      throw new IOException("Not a journal file");
+    }
+    short version = header.getShort();
+    if (version != VERSION) {
+      throw new IOException("Unsupported journal version: " + version);
+    }
+    
+    int records = 0;
+    long end = reader.position();
+    ByteBuffer record;
+    while ((record = reader.require(Integer.BYTES)) != null) {
+      int length = record.getInt(record.position());
+      if (length <= 0 || length > Integer.MAX_VALUE - JournalCodec.RECORD_OVERHEAD
+          || end + JournalCodec.RECORD_OVERHEAD + length > size) {
+        break;
+      }
+      record = reader.require(length + JournalCodec.RECORD_OVERHEAD);
+      int bodyStart = record.position() + Integer.BYTES;
+      int checksum = record.getInt(bodyStart + length);
+      if (checksum != JournalCodec.checksum(record, bodyStart, length)) {
+        break;
+      }
+      apply(record.slice(bodyStart, length), foodStorage, cookbook);
+      record.position(bodyStart + length + Integer.BYTES);
+      end = reader.position();
+      records++;
+    }
+    
+    if (end < size) {
+      channel.truncate(end);
+      channel.force(true);
+    }
+    channel.position(end);
+    return records;
+  }
+  
+  /**
+   * Reads a file from the start in chunks of {@value #REPLAY_CHUNK_SIZE} bytes, so only the
+   * chunk around the next record is in memory. A chunk grows when a record does not fit.
+   */
+  private static final class ChunkReader {
+    private final FileChannel channel;
+    private ByteBuffer chunk;
+    private long chunkStart;
+    
+    /**
+     * Creates a reader at the start of a file.
+     *
+     * @param channel the file to read
+     */
+    ChunkReader(FileChannel channel) {
+      this.channel = channel;
+      this.chunk = ByteBuffer.allocate(REPLAY_CHUNK_SIZE).limit(0);
+    }
+    
+    /**
+     * Retrieves the position in the file of the next byte that has not been read.
+     *
+     * @return the position in the file
+     */
+    long position() {
+      return chunkStart + chunk.position();
+    }
+    
+    /**
+     * Makes sure the next bytes of the file are in the chunk, reading more of the file if
+     * they are not.
+     *
+     * @param bytes the number of bytes that are needed
+     * @return the chunk positioned at the next byte, or {@code null} if the file ends first
+     * @throws IOException if the file cannot be read
+     */
+    ByteBuffer require(int bytes) throws IOException {
+      if (chunk.remaining() >= bytes) {
+        return chunk;
+      }
+      chunkStart += chunk.position();
+      chunk.compact();
+      if (chunk.capacity() < bytes) {
+        chunk = ByteBuffer.allocate(bytes).put(chunk.flip());
+      }
+      while (chunk.hasRemaining()
+          && channel.read(chunk, chunkStart + chunk.position()) >= 0) {
+        // Reads until the chunk is full or the file ends
+      }
+      chunk.flip();
+      return chunk.remaining() >= bytes ? chunk : null;
+    }
+  }
+  
+  /**
+   * Applies one record to the food storage or the cookbook.
+   *
+   * @param body        the body of the record
+   * @param foodStorage the food storage to apply to
+   * @param cookbook    the cookbook to apply to
+   * @throws IOException if the record type is unknown
+   */
+  private static void apply(ByteBuffer body, FoodStorage foodStorage, Cookbook cookbook)
+      throws IOException {
+    byte type = body.get();
+    switch (type) {
+      case JournalCodec.ADD_INGREDIENT ->
+          foodStorage.addIngredientToFoodStorage(JournalCodec.getIngredient(body));
+      case JournalCodec.CONSUME_BATCH ->
+          foodStorage.consumeBatch(JournalCodec.getIngredient(body));
+      case JournalCodec.ADD_RECIPE -> cookbook.addRecipeToCookbook(JournalCodec.getRecipe(body));
+      case JournalCodec.REMOVE_RECIPE ->
+          cookbook.removeRecipeFromCookbook(JournalCodec.getString(body));
+      default -> throw new IOException("Unknown journal record type: " + type);
+    }
+  }
+  
+  /**
+   * Retrieves the number of records that were replayed when the journal was opened.
+   *
+   * @return the number of replayed records
+   */
+  public int getReplayedRecordCount() {
+    return replayedRecords;
+  }
+  
+  @Override
+  public void beforeStockChange() {
+    requireWritable();
+  }
+  
+  @Override
+  public void beforeRecipesChange() {
+    requireWritable();
+  }
+  
+  /**
+   * Rejects a change before it is made if its record could not be appended.
+   *
+   * @throws UncheckedIOException  if an earlier write to the file failed
+   * @throws IllegalStateException if the journal is closed
+   */
+  private void requireWritable() {
+    appendLock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Journal is closed");
+      }
+      if (failure != null) {
+        throw new UncheckedIOException("Journal write failed earlier, so the change was "
+            + "not made", failure);
+      }
+    } finally {
+      appendLock.unlock();
+    }
+  }
+  
+  @Override
+  public void ingredientChanged(String ingredientKey) {
+    // The records are written by ingredientAdded and batchConsumed
+  }
+  
+  @Override
+  public void ingredientAdded(Ingredient ingredient) {
+    append(JournalCodec.addIngredient(ingredient));
+  }
+  
+  @Override
+  public void batchConsumed(Ingredient taken) {
+    append(JournalCodec.consumeBatch(taken));
+  }
+  
+  @Override
+  public void recipeAdded(Recipe recipe) {
+    append(JournalCodec.addRecipe(recipe));
+  }
+  
+  @Override
+  public void recipeRemoved(Recipe recipe) {
+    append(JournalCodec.removeRecipe(recipe.getName()));
+  }
+  
+  /**
+   * Appends a record to the pending buffer, and asks the background thread to force the
+   * pending records to disk if a batch is full. Never waits for the disk.
+   *
+   * <p>The change has already been made when its record is appended. A failure that is
+   * known before the change is rejected by {@link #requireWritable()}, so this only throws
+   * when a background sync fails in between, and then the exception says that the change
+   * was applied but is not durable.</p>
+   *
+   * @param body the body of the record
+   * @throws UncheckedIOException     if an earlier write to the file failed
+   * @throws IllegalStateException    if the journal is closed
+   */
+  private void append(byte[] body) {
+    boolean requestSync;
+    appendLock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Journal is closed");
+      }
+      if (failure != null) {
+        throw new UncheckedIOException("Journal write failed earlier, so the change was "
+            + "applied but is not durable", failure);
+      }
+      int recordSize = body.length + JournalCodec.RECORD_OVERHEAD;
+      if (pending.remaining() < recordSize) {
+        pending = grow(pending, recordSize);
+      }
+      pending.putInt(body.length);
+      int bodyStart = pending.position();
+      pending.put(body);
+      pending.putInt(JournalCodec.checksum(pending, bodyStart, body.length));
+      requestSync = ++pendingRecords >= syncBatchSize && !syncRequested;
+      syncRequested |= requestSync;
+    } finally {
+      appendLock.unlock();
+    }
+    if (requestSync) {
+      flusher.execute(this::syncQuietly);
+    }
+  }
+  
+  /**
+   * Copies a buffer into a larger one that has room for a record.
+   *
+   * @param buffer     the full buffer
+   * @param recordSize the size of the record that must fit
+   * @return the new buffer, positioned after the copied content
+   */
+  private static ByteBuffer grow(ByteBuffer buffer, int recordSize) {
+    int capacity = Math.max(buffer.capacity() * 2, buffer.position() + recordSize);
+    return ByteBuffer.allocate(capacity).put(buffer.flip());
+  }
+  
+  /**
+   * Writes the pending records to the file and forces them to disk.
+   * Records appended while the disk is being forced are kept for the next sync.
+   *
+   * @throws IOException if the records cannot be written
+   */
+  public void sync() throws IOException {
+    commitLock.lock();
+    try {
+      appendLock.lock();
+      try {
+        if (failure != null) {
+          throw failure;
+        }
+        syncRequested = false;
+        if (pendingRecords == 0) {
+          return;
+        }
+        ByteBuffer group = pending;
+        pending = committing;
+        committing = group;
+        pendingRecords = 0;
+      } finally {
+        appendLock.unlock();
+      }
+      
+      try {
+        committing.flip();
+        while (committing.hasRemaining()) {
+          channel.write(committing);
+        }
+        channel.force(false);
+      } catch (IOException e) {
+        appendLock.lock();
+        try {
+          failure = e;
+        } finally {
+          appendLock.unlock();
+        }
+        throw e;
+      } finally {
+        committing.clear();
+      }
+    } finally {
+      commitLock.unlock();
+    }
+  }
+  
+  /**
+   * Syncs from the background thread. A failure is kept and reported on the next append.
+   */
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (IOException e) {
+      // Kept in failure and thrown from the next append
+    }
+  }
+  
+  /**
+   * Stops logging, forces the pending records to disk and closes the file.
+   *
+   * @throws IOException if the pending records cannot be written
+   */
+  @Override
+  public void close() throws IOException {
+    foodStorage.removeListener(this);
+    cookbook.removeListener(this);
+    flusher.shutdown();
+    try {
+      sync();
+    } finally {
+      appendLock.lock();
+      try {
+        closed = true;
+      } finally {
+        appendLock.unlock();
+      }
+      channel.close();
+    }
+  }
+  
+  /**
+   * Writes a whole buffer at a position in a file.
+   *
+   * @param channel  the file to write to
+   * @param buffer   the bytes to write
+   * @param position the position in the file
+   * @throws IOException if the bytes cannot be written
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer buffer, long position)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+}
@@ -0,0 +1,224 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary encoding of the records in a {@link Journal}.
+ *
+ * <p>A record is written as:
+ * <ul>
+ *   <li>the length of the body as an int</li>
+ *   <li>the body: the record type as a byte followed by its fields</li>
+ *   <li>a CRC-32C checksum of the body as an int</li>
+ * </ul>
+ * Strings are written as their UTF-8 length followed by the bytes, units by their ordinal,
+ * and dates as epoch days with {@link #NO_DATE} for a missing date. Quantities of
+ * ingredients are written as the exact fixed-point value in the base unit of their type,
+ * see {@link Ingredient#getBaseQuantity()}, and prices as whole minor units, see
+ * {@link Ingredient#getPriceMinorUnits()}, so a replayed batch has exactly the quantity
+ * and price of the batch that was added.</p>
+ *
+ * @author TriLe
+ */
+final class JournalCodec {
+  static final byte ADD_INGREDIENT = 1;
+  static final byte CONSUME_BATCH = 2;
+  static final byte ADD_RECIPE = 3;
+  static final byte REMOVE_RECIPE = 4;
+  
+  /**
+   * The number of bytes around the body of a record: the length and the checksum.
+   */
+  static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+  
+  private static final long NO_DATE = Long.MIN_VALUE;
+  private static final Unit[] UNITS = Unit.values();
+  
+  /**
+   * Encodes the addition of an ingredient to the storage.
+   *
+   * @param ingredient the ingredient that was added
+   * @return the record body
+   */
+  static byte[] addIngredient(Ingredient ingredient) {
+    byte[] name = utf8(ingredient.getName());
+    ByteBuffer body = ByteBuffer.allocate(1 + ingredientSize(name));
+    body.put(ADD_INGREDIENT);
+    putIngredient(body, name, ingredient);
+    return body.array();
+  }
+  
+  /**
+   * Encodes a quantity taken from one batch in the storage, by a removal or by cooking.
+   * The batch is identified by its name, unit type, expiration date and price, so replaying
+   * the record takes the same quantity from the same batch.
+   *
+   * @param taken the quantity that was taken, as a batch
+   * @return the record body
+   */
+  static byte[] consumeBatch(Ingredient taken) {
+    byte[] name = utf8(taken.getName());
+    ByteBuffer body = ByteBuffer.allocate(1 + ingredientSize(name));
+    body.put(CONSUME_BATCH);
+    putIngredient(body, name, taken);
+    return body.array();
+  }
+  
+  /**
+   * Encodes the addition of a recipe, with its ingredients, to the cookbook.
+   *
+   * @param recipe the recipe that was added
+   * @return the record body
+   */
+  static byte[] addRecipe(Recipe recipe) {
+    byte[] name = utf8(recipe.getName());
+    byte[] description = utf8(recipe.getDescription());
+    byte[] procedure = utf8(recipe.getProcedure());
+    List<Ingredient> ingredients = recipe.getIngredientsList();
+    byte[][] ingredientNames = new byte[ingredients.size()][];
+    int size = 1 + 3 * Integer.BYTES + name.length + description.length + procedure.length
+        + Double.BYTES + Integer.BYTES;
+    for (int i = 0; i < ingredientNames.length; i++) {
+      ingredientNames[i] = utf8(ingredients.get(i).getName());
+      size += ingredientSize(ingredientNames[i]);
+    }
+    
+    ByteBuffer body = ByteBuffer.allocate(size);
+    body.put(ADD_RECIPE);
+    putString(body, name);
+    putString(body, description);
+    putString(body, procedure);
+    body.putDouble(recipe.getPortions());
+    body.putInt(ingredientNames.length);
+    for (int i = 0; i < ingredientNames.length; i++) {
+      putIngredient(body, ingredientNames[i], ingredients.get(i));
+    }
+    return body.array();
+  }
+  
+  /**
+   * Encodes the removal of a recipe from the cookbook.
+   *
+   * @param recipeName the name of the recipe that was removed
+   * @return the record body
+   */
+  static byte[] removeRecipe(String recipeName) {
+    byte[] name = utf8(recipeName);
+    ByteBuffer body = ByteBuffer.allocate(1 + Integer.BYTES + name.length);
+    body.put(REMOVE_RECIPE);
+    putString(body, name);
+    return body.array();
+  }
+  
+  /**
+   * Calculates the checksum of a record body.
+   *
+   * @param body   the buffer holding the body
+   * @param offset the position of the body in the buffer
+   * @param length the length of the body
+   * @return the checksum
+   */
+  static int checksum(ByteBuffer body, int offset, int length) {
+    CRC32C crc = new CRC32C();
+    crc.update(body.slice(offset, length));
+    return (int) crc.getValue();
+  }
+  
+  /**
+   * Reads an ingredient written by {@link #putIngredient}.
+   *
+   * @param body the buffer positioned at the ingredient
+   * @return the ingredient
+   */
+  static Ingredient getIngredient(ByteBuffer body) {
+    String name = getString(body);
+    long baseQuantity = body.getLong();
+    Unit unit = UNITS[body.get()];
+    long epochDay = body.getLong();
+    long priceMinorUnits = body.getLong();
+    return Ingredient.ofExactValues(name, baseQuantity, unit,
+        epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), priceMinorUnits);
+  }
+  
+  /**
+   * Reads a recipe written by {@link #addRecipe}, after the record type.
+   *
+   * @param body the buffer positioned after the record type
+   * @return the recipe with its ingredients
+   */
+  static Recipe getRecipe(ByteBuffer body) {
+    Recipe recipe = new Recipe(getString(body), getString(body), getString(body),
+        body.getDouble());
+    int ingredientCount = body.getInt();
+    for (int i = 0; i < ingredientCount; i++) {
+      recipe.addIngredientToRecipe(getIngredient(body));
+    }
+    return recipe;
+  }
+  
+  /**
+   * Reads a string written by {@link #putString}.
+   *
+   * @param body the buffer positioned at the string
+   * @return the string
+   */
+  static String getString(ByteBuffer body) {
+    byte[] bytes = new byte[body.getInt()];
+    body.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * Encodes a string as UTF-8.
+   *
+   * @param value the string to encode
+   * @return the UTF-8 bytes
+   */
+  private static byte[] utf8(String value) {
+    return value.getBytes(StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * Calculates the number of bytes {@link #putIngredient} writes.
+   *
+   * @param name the encoded name of the ingredient
+   * @return the size of the encoded ingredient
+   */
+  private static int ingredientSize(byte[] name) {
+    return Integer.BYTES + name.length + Long.BYTES + 1 + Long.BYTES + Long.BYTES;
+  }
+  
+  /**
+   * Writes an encoded string with its length.
+   *
+   * @param body  the buffer to write to
+   * @param bytes the UTF-8 bytes of the string
+   */
+  private static void putString(ByteBuffer body, byte[] bytes) {
+    body.putInt(bytes.length);
+    body.put(bytes);
+  }
+  
+  /**
+   * Writes the fields of an ingredient.
+   *
+   * @param body       the buffer to write to
+   * @param name       the encoded name of the ingredient
+   * @param ingredient the ingredient to write
+   */
+  private static void putIngredient(ByteBuffer body, byte[] name, Ingredient ingredient) {
+    putString(body, name);
+    body.putLong(ingredient.getBaseQuantity());
+    body.put((byte) ingredient.getUnitMeasurement().ordinal());
+    LocalDate expirationDate = ingredient.getExpirationDate();
+    body.putLong(expirationDate == null ? NO_DATE : expirationDate.toEpochDay());
+    body.putLong(ingredient.getPriceMinorUnits());
+  }
+}
@@ -0,0 +1,193 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32C;
+
+/**
+ * A file mapped into memory as a sequence of {@link MappedByteBuffer} chunks.
+ *
+ * <p>A single {@code MappedByteBuffer} can not be larger than 2 GB, so larger files are mapped
+ * in chunks of {@value #CHUNK_SIZE} bytes and addressed with {@code long} positions.
+ * Numbers are read and written at positions that are a multiple of their size, so they never
+ * cross the border between two chunks. Byte arrays can cross it and are copied in parts.</p>
+ *
+ * @author TriLe
+ */
+final class MappedFile {
+  private static final int CHUNK_SHIFT = 30;
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+  private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+  
+  private final MappedByteBuffer[] chunks;
+  private final long size;
+  
+  /**
+   * Maps a file in chunks.
+   *
+   * @param channel the file to map
+   * @param mode    the mapping mode
+   * @param size    the number of bytes to map, the file is extended if it is shorter
+   * @throws IOException if the file cannot be mapped
+   */
+  MappedFile(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+    this.size = size;
+    this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT)];
+    for (int i = 0; i < chunks.length; i++) {
+      long start = (long) i << CHUNK_SHIFT;
+      chunks[i] = channel.map(mode, start, Math.min(CHUNK_SIZE, size - start));
+    }
+  }
+  
+  /**
+   * Retrieves the number of mapped bytes.
+   *
+   * @return the size of the mapping
+   */
+  long size() {
+    return size;
+  }
+  
+  /**
+   * Reads a byte.
+   *
+   * @param position the position of the value
+   * @return the value
+   */
+  byte getByte(long position) {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].get((int) (position & CHUNK_MASK));
+  }
+  
+  /**
+   * Writes a byte.
+   *
+   * @param position the position of the value
+   * @param value    the value to write
+   */
+  void putByte(long position, byte value) {
+    chunks[(int) (position >>> CHUNK_SHIFT)].put((int) (position & CHUNK_MASK), value);
+  }
+  
+  /**
+   * Reads an int.
+   *
+   * @param position the position of the value
+   * @return the value
+   */
+  int getInt(long position) {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].getInt((int) (position & CHUNK_MASK));
+  }
+  
+  /**
+   * Writes an int.
+   *
+   * @param position the position of the value
+   * @param value    the value to write
+   */
+  void putInt(long position, int value) {
+    chunks[(int) (position >>> CHUNK_SHIFT)].putInt((int) (position & CHUNK_MASK), value);
+  }
+  
+  /**
+   * Reads a long.
+   *
+   * @param position the position of the value
+   * @return the value
+   */
+  long getLong(long position) {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].getLong((int) (position & CHUNK_MASK));
+  }
+  
+  /**
+   * Writes a long.
+   *
+   * @param position the position of the value
+   * @param value    the value to write
+   */
+  void putLong(long position, long value) {
+    chunks[(int) (position >>> CHUNK_SHIFT)].putLong((int) (position & CHUNK_MASK), value);
+  }
+  
+  /**
+   * Reads a double.
+   *
+   * @param position the position of the value
+   * @return the value
+   */
+  double getDouble(long position) {
+    return chunks[(int) (position >>> CHUNK_SHIFT)].getDouble((int) (position & CHUNK_MASK));
+  }
+  
+  /**
+   * Writes a double.
+   *
+   * @param position the position of the value
+   * @param value    the value to write
+   */
+  void putDouble(long position, double value) {
+    chunks[(int) (position >>> CHUNK_SHIFT)].putDouble((int) (position & CHUNK_MASK), value);
+  }
+  
+  /**
+   * Copies bytes from the mapping into an array.
+   *
+   * @param position the position of the first byte
+   * @param target   the array to fill
+   */
+  void getBytes(long position, byte[] target) {
+    int copied = 0;
+    while (copied < target.length) {
+      long current = position + copied;
+      int offset = (int) (current & CHUNK_MASK);
+      int length = Math.min(target.length - copied, CHUNK_SIZE - offset);
+      chunks[(int) (current >>> CHUNK_SHIFT)].get(offset, target, copied, length);
+      copied += length;
+    }
+  }
+  
+  /**
+   * Copies bytes from an array into the mapping.
+   *
+   * @param position the position of the first byte
+   * @param source   the bytes to copy
+   */
+  void putBytes(long position, byte[] source) {
+    int copied = 0;
+    while (copied < source.length) {
+      long current = position + copied;
+      int offset = (int) (current & CHUNK_MASK);
+      int length = Math.min(source.length - copied, CHUNK_SIZE - offset);
+      chunks[(int) (current >>> CHUNK_SHIFT)].put(offset, source, copied, length);
+      copied += length;
+    }
+  }
+  
+  /**
+   * Calculates the CRC-32C checksum of a range of the mapping.
+   *
+   * @param from the position of the first byte
+   * @param to   the position after the last byte
+   * @return the checksum
+   */
+  int checksum(long from, long to) {
+    CRC32C crc = new CRC32C();
+    long position = from;
+    while (position < to) {
+      int offset = (int) (position & CHUNK_MASK);
+      int length = (int) Math.min(to - position, CHUNK_SIZE - offset);
+      crc.update(chunks[(int) (position >>> CHUNK_SHIFT)].slice(offset, length));
+      position += length;
+    }
+    return (int) crc.getValue();
+  }
+  
+  /**
+   * Forces changes to the mapping to be written to disk.
+   */
+  void force() {
+    for (MappedByteBuffer chunk : chunks) {
+      chunk.force();
+    }
+  }
+}
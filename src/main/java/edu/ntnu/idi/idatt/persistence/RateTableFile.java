@@ -0,0 +1,77 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.model.RateTable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link RateTable} that is read from a local file and can be read again while the
+ * application runs.
+ *
+ * <p>The current table is held in an {@link AtomicReference}. A reload reads and checks the
+ * whole file before the new table is swapped in, so readers see either the old or the new
+ * table and never a mix of the two. A table is only swapped in when its version is higher
+ * than the current one, so reloads that race never go back to older rates.</p>
+ *
+ * @author TriLe
+ */
+public final class RateTableFile {
+  private final Path path;
+  private final AtomicReference<RateTable> current;
+  
+  /**
+   * Constructs the file with the {@link RateTable#defaults() default rates} as the current
+   * table. The file is not read until {@link #reload()} is called.
+   *
+   * @param path the path of the file
+   * @throws IllegalArgumentException if the path is null
+   */
+  public RateTableFile(Path path) {
+    if (path == null) {
+      throw new IllegalArgumentException("Path cannot be null");
+    }
+    this.path = path;
+    this.current = new AtomicReference<>(RateTable.defaults());
+  }
+  
+  /**
+   * Retrieves the current table. The table is immutable, so a request that reads it once
+   * uses the same rates from start to end.
+   *
+   * @return the current table
+   */
+  public RateTable current() {
+    return current.get();
+  }
+  
+  /**
+   * Reads the file and swaps in its table if its version is newer than the current one.
+   *
+   * @return true if the table of the file was swapped in, false if it was not newer
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the file is not a valid table
+   */
+  public boolean reload() throws IOException {
+    RateTable loaded = RateTable.parse(Files.readAllLines(path, StandardCharsets.UTF_8));
+    RateTable previous;
+    do {
+      previous = current.get();
+      if (loaded.getVersion() <= previous.getVersion()) {
+        return false;
+      }
+    } while (!current.compareAndSet(previous, loaded));
+    return true;
+  }
+  
+  /**
+   * Retrieves the path of the file.
+   *
+   * @return the path
+   */
+  public Path getPath() {
+    return path;
+  }
+}
@@ -0,0 +1,469 @@
+package edu.ntnu.idi.idatt.persistence;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A binary snapshot of a {@link FoodStorage} and a {@link Cookbook}, read and written through
+ * memory mapped files.
+ *
+ * <p>The file starts with a header of {@value #HEADER_SIZE} bytes followed by these tables:
+ * <ul>
+ *   <li>Batches: one fixed-width record of {@value #BATCH_SIZE} bytes per batch, grouped by
+ *   ingredient and sorted by expiration date within each ingredient. The quantity is the
+ *   exact fixed-point value in the base unit of its type, and the price is in minor
+ *   units.</li>
+ *   <li>Name index: one record of {@value #NAME_INDEX_SIZE} bytes per ingredient, sorted by the
+ *   normalized name, pointing to the batches of that ingredient.</li>
+ *   <li>Recipes: one record of {@value #RECIPE_SIZE} bytes per recipe, pointing to its
+ *   ingredients.</li>
+ *   <li>Recipe ingredients: the ingredients of all recipes, in the batch record layout.</li>
+ *   <li>String dictionary: the start of every string followed by their UTF-8 bytes.
+ *   Every name and text in the other tables is stored once here and referred to by number.</li>
+ * </ul>
+ * The header holds the format version, the size and position of every table, and a
+ * CRC-32C checksum of everything after the header, which is checked when a snapshot is
+ * opened.</p>
+ *
+ * <p>An open snapshot reads straight from the mapping, so the batches of an ingredient can
+ * be looked up with a binary search in the name index before anything is copied to the heap.
+ * The mapping is never changed after it is opened, so these reads can be done from other
+ * threads while {@link #loadInto} builds the heap structures.</p>
+ *
+ * @author TriLe
+ */
+public final class Snapshot implements AutoCloseable {
+  private static final int MAGIC = 0x4653534e;
+  private static final int VERSION = 3;
+  private static final int HEADER_SIZE = 64;
+  private static final int BATCH_SIZE = 32;
+  private static final int NAME_INDEX_SIZE = 16;
+  private static final int RECIPE_SIZE = 32;
+  private static final long NO_DATE = Long.MIN_VALUE;
+  private static final Unit[] UNITS = Unit.values();
+  
+  private final FileChannel channel;
+  private final MappedFile file;
+  private final int stringCount;
+  private final int nameCount;
+  private final int batchCount;
+  private final int recipeCount;
+  private final long stringTable;
+  private final long nameIndex;
+  private final long batchTable;
+  private final long recipeTable;
+  private final long recipeIngredientTable;
+  
+  /**
+   * Opens a snapshot and reads its header.
+   *
+   * @param channel the snapshot file
+   * @param file    the mapping of the whole file
+   * @throws IOException if the file is not a valid snapshot
+   */
+  private Snapshot(FileChannel channel, MappedFile file) throws IOException {
+    this.channel = channel;
+    this.file = file;
+    if (file.size() < HEADER_SIZE || file.getInt(0) != MAGIC) {
+      throw new IOException("Not a snapshot file");
+    }
+    int version = file.getInt(4);
+    if (version != VERSION) {
+      throw new IOException("Unsupported snapshot version: " + version);
+    }
+    this.stringCount = file.getInt(8);
+    this.nameCount = file.getInt(12);
+    this.batchCount = file.getInt(16);
+    this.recipeCount = file.getInt(20);
+    int recipeIngredientCount = file.getInt(24);
+    this.batchTable = HEADER_SIZE;
+    this.nameIndex = file.getLong(32);
+    this.recipeTable = file.getLong(40);
+    this.recipeIngredientTable = file.getLong(48);
+    this.stringTable = file.getLong(56);
+    
+    long stringBytes = stringTable + (stringCount + 1L) * Long.BYTES;
+    if (nameIndex != batchTable + (long) batchCount * BATCH_SIZE
+        || recipeTable != nameIndex + (long) nameCount * NAME_INDEX_SIZE
+        || recipeIngredientTable != recipeTable + (long) recipeCount * RECIPE_SIZE
+        || stringTable != recipeIngredientTable + (long) recipeIngredientCount * BATCH_SIZE
+        || stringBytes > file.size()
+        || stringBytes + file.getLong(stringTable + (long) stringCount * Long.BYTES)
+            != file.size()) {
+      throw new IOException("Snapshot tables do not match the file size");
+    }
+    if (file.checksum(HEADER_SIZE, file.size()) != file.getInt(28)) {
+      throw new IOException("Snapshot checksum does not match");
+    }
+  }
+  
+  /**
+   * Opens a snapshot file, maps it read-only and checks its header and checksum.
+   *
+   * @param path the snapshot file
+   * @return the open snapshot
+   * @throws IOException if the file cannot be read or is not a valid snapshot
+   */
+  public static Snapshot open(Path path) throws IOException {
+    if (path == null) {
+      throw new IllegalArgumentException("Snapshot path cannot be null");
+    }
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new Snapshot(channel,
+          new MappedFile(channel, FileChannel.MapMode.READ_ONLY, channel.size()));
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+  
+  /**
+   * Writes a snapshot of a food storage and a cookbook.
+   * The snapshot is written to a temporary file that replaces the target when it is complete,
+   * so an existing snapshot is never left half written.
+   *
+   * @param path        the snapshot file
+   * @param foodStorage the food storage to write
+   * @param cookbook    the cookbook to write
+   * @throws IOException              if the file cannot be written
+   * @throws IllegalArgumentException if an argument is null
+   */
+  public static void write(Path path, FoodStorage foodStorage, Cookbook cookbook)
+      throws IOException {
+    if (path == null) {
+      throw new IllegalArgumentException("Snapshot path cannot be null");
+    }
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    Map<String, List<Ingredient>> batchesByName = new TreeMap<>(foodStorage.getIngredients());
+    List<Recipe> recipes = new ArrayList<>(cookbook.getRecipes().values());
+    
+    StringDictionary strings = new StringDictionary();
+    int batchCount = 0;
+    for (Map.Entry<String, List<Ingredient>> entry : batchesByName.entrySet()) {
+      strings.idOf(entry.getKey());
+      for (Ingredient batch : entry.getValue()) {
+        strings.idOf(batch.getName());
+        batchCount++;
+      }
+    }
+    int recipeIngredientCount = 0;
+    for (Recipe recipe : recipes) {
+      strings.idOf(recipe.getName());
+      strings.idOf(recipe.getDescription());
+      strings.idOf(recipe.getProcedure());
+      for (Ingredient ingredient : recipe.getIngredientsList()) {
+        strings.idOf(ingredient.getName());
+        recipeIngredientCount++;
+      }
+    }
+    
+    long nameIndex = HEADER_SIZE + (long) batchCount * BATCH_SIZE;
+    long recipeTable = nameIndex + (long) batchesByName.size() * NAME_INDEX_SIZE;
+    long recipeIngredientTable = recipeTable + (long) recipes.size() * RECIPE_SIZE;
+    long stringTable = recipeIngredientTable + (long) recipeIngredientCount * BATCH_SIZE;
+    long stringData = stringTable + (strings.size() + 1L) * Long.BYTES;
+    long size = stringData + strings.byteLength();
+    
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      MappedFile file = new MappedFile(channel, FileChannel.MapMode.READ_WRITE, size);
+      
+      long batchPosition = HEADER_SIZE;
+      long namePosition = nameIndex;
+      int firstBatch = 0;
+      for (Map.Entry<String, List<Ingredient>> entry : batchesByName.entrySet()) {
+        file.putInt(namePosition, strings.idOf(entry.getKey()));
+        file.putInt(namePosition + 4, firstBatch);
+        file.putInt(namePosition + 8, entry.getValue().size());
+        namePosition += NAME_INDEX_SIZE;
+        for (Ingredient batch : entry.getValue()) {
+          putIngredient(file, batchPosition, strings.idOf(batch.getName()), batch);
+          batchPosition += BATCH_SIZE;
+        }
+        firstBatch += entry.getValue().size();
+      }
+      
+      long recipePosition = recipeTable;
+      long ingredientPosition = recipeIngredientTable;
+      int firstIngredient = 0;
+      for (Recipe recipe : recipes) {
+        List<Ingredient> ingredients = recipe.getIngredientsList();
+        file.putInt(recipePosition, strings.idOf(recipe.getName()));
+        file.putInt(recipePosition + 4, strings.idOf(recipe.getDescription()));
+        file.putInt(recipePosition + 8, strings.idOf(recipe.getProcedure()));
+        file.putInt(recipePosition + 12, firstIngredient);
+        file.putInt(recipePosition + 16, ingredients.size());
+        file.putDouble(recipePosition + 24, recipe.getPortions());
+        recipePosition += RECIPE_SIZE;
+        for (Ingredient ingredient : ingredients) {
+          putIngredient(file, ingredientPosition, strings.idOf(ingredient.getName()), ingredient);
+          ingredientPosition += BATCH_SIZE;
+        }
+        firstIngredient += ingredients.size();
+      }
+      
+      long offset = 0;
+      for (int id = 0; id < strings.size(); id++) {
+        byte[] bytes = strings.bytesOf(id);
+        file.putLong(stringTable + (long) id * Long.BYTES, offset);
+        file.putBytes(stringData + offset, bytes);
+        offset += bytes.length;
+      }
+      file.putLong(stringTable + (long) strings.size() * Long.BYTES, offset);
+      
+      file.putInt(0, MAGIC);
+      file.putInt(4, VERSION);
+      file.putInt(8, strings.size());
+      file.putInt(12, batchesByName.size());
+      file.putInt(16, batchCount);
+      file.putInt(20, recipes.size());
+      file.putInt(24, recipeIngredientCount);
+      file.putLong(32, nameIndex);
+      file.putLong(40, recipeTable);
+      file.putLong(48, recipeIngredientTable);
+      file.putLong(56, stringTable);
+      file.putInt(28, file.checksum(HEADER_SIZE, size));
+      file.force();
+    }
+    Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+  
+  /**
+   * Retrieves the number of batches in the snapshot.
+   *
+   * @return the number of batches
+   */
+  public int getBatchCount() {
+    return batchCount;
+  }
+  
+  /**
+   * Retrieves the number of recipes in the snapshot.
+   *
+   * @return the number of recipes
+   */
+  public int getRecipeCount() {
+    return recipeCount;
+  }
+  
+  /**
+   * Searches the batches of an ingredient straight from the mapping,
+   * with a binary search in the name index.
+   *
+   * @param name the name of the ingredient, in any case
+   * @return the batches of the ingredient sorted by expiration date, empty if there are none
+   */
+  public List<Ingredient> searchForIngredients(String name) {
+    String key = NameNormalizer.normalize(name);
+    int low = 0;
+    int high = nameCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long entry = nameIndex + (long) middle * NAME_INDEX_SIZE;
+      int comparison = getString(file.getInt(entry)).compareTo(key);
+      if (comparison < 0) {
+        low = middle + 1;
+      } else if (comparison > 0) {
+        high = middle - 1;
+      } else {
+        int firstBatch = file.getInt(entry + 4);
+        int count = file.getInt(entry + 8);
+        List<Ingredient> batches = new ArrayList<>(count);
+        for (int i = firstBatch; i < firstBatch + count; i++) {
+          batches.add(getIngredient(batchTable + (long) i * BATCH_SIZE));
+        }
+        return batches;
+      }
+    }
+    return new ArrayList<>();
+  }
+  
+  /**
+   * Reads a recipe with its ingredients from the mapping.
+   *
+   * @param index the number of the recipe, from 0 to {@link #getRecipeCount()}
+   * @return the recipe
+   * @throws IndexOutOfBoundsException if there is no recipe with the number
+   */
+  public Recipe getRecipe(int index) {
+    if (index < 0 || index >= recipeCount) {
+      throw new IndexOutOfBoundsException("Recipe index out of range: " + index);
+    }
+    long position = recipeTable + (long) index * RECIPE_SIZE;
+    Recipe recipe = new Recipe(getString(file.getInt(position)),
+        getString(file.getInt(position + 4)), getString(file.getInt(position + 8)),
+        file.getDouble(position + 24));
+    int firstIngredient = file.getInt(position + 12);
+    int count = file.getInt(position + 16);
+    for (int i = firstIngredient; i < firstIngredient + count; i++) {
+      recipe.addIngredientToRecipe(
+          getIngredient(recipeIngredientTable + (long) i * BATCH_SIZE));
+    }
+    return recipe;
+  }
+  
+  /**
+   * Adds every batch and recipe of the snapshot to a food storage and a cookbook.
+   *
+   * @param foodStorage the food storage to fill
+   * @param cookbook    the cookbook to fill
+   * @throws IllegalArgumentException if an argument is null
+   */
+  public void loadInto(FoodStorage foodStorage, Cookbook cookbook) {
+    if (foodStorage == null || cookbook == null) {
+      throw new IllegalArgumentException("Food storage and cookbook cannot be null");
+    }
+    Map<Integer, String> names = new HashMap<>();
+    for (int i = 0; i < batchCount; i++) {
+      long position = batchTable + (long) i * BATCH_SIZE;
+      String batchName = names.computeIfAbsent(file.getInt(position), this::getString);
+      foodStorage.addIngredientToFoodStorage(getIngredient(position, batchName));
+    }
+    for (int i = 0; i < recipeCount; i++) {
+      cookbook.addRecipeToCookbook(getRecipe(i));
+    }
+  }
+  
+  /**
+   * Closes the snapshot file. The mapping is released when it is no longer used.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+  
+  /**
+   * Reads a string from the dictionary.
+   *
+   * @param id the number of the string
+   * @return the string
+   */
+  private String getString(int id) {
+    long offset = file.getLong(stringTable + (long) id * Long.BYTES);
+    long end = file.getLong(stringTable + (id + 1L) * Long.BYTES);
+    byte[] bytes = new byte[(int) (end - offset)];
+    file.getBytes(stringTable + (stringCount + 1L) * Long.BYTES + offset, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+  
+  /**
+   * Reads an ingredient record.
+   *
+   * @param position the position of the record
+   * @return the ingredient
+   */
+  private Ingredient getIngredient(long position) {
+    return getIngredient(position, getString(file.getInt(position)));
+  }
+  
+  /**
+   * Reads an ingredient record whose name is already known.
+   *
+   * @param position the position of the record
+   * @param name     the name of the ingredient
+   * @return the ingredient
+   */
+  private Ingredient getIngredient(long position, String name) {
+    Unit unit = UNITS[file.getByte(position + 4)];
+    long baseQuantity = file.getLong(position + 8);
+    long epochDay = file.getLong(position + 16);
+    long priceMinorUnits = file.getLong(position + 24);
+    return Ingredient.ofExactValues(name, baseQuantity, unit,
+        epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), priceMinorUnits);
+  }
+  
+  /**
+   * Writes an ingredient record.
+   *
+   * @param file       the mapping to write to
+   * @param position   the position of the record
+   * @param nameId     the number of the name in the dictionary
+   * @param ingredient the ingredient to write
+   */
+  private static void putIngredient(MappedFile file, long position, int nameId,
+      Ingredient ingredient) {
+    LocalDate expirationDate = ingredient.getExpirationDate();
+    file.putInt(position, nameId);
+    file.putByte(position + 4, (byte) ingredient.getUnitMeasurement().ordinal());
+    file.putLong(position + 8, ingredient.getBaseQuantity());
+    file.putLong(position + 16, expirationDate == null ? NO_DATE : expirationDate.toEpochDay());
+    file.putLong(position + 24, ingredient.getPriceMinorUnits());
+  }
+  
+  /**
+   * The strings of a snapshot being written, each given a number the first time it is seen.
+   */
+  private static final class StringDictionary {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<byte[]> encoded = new ArrayList<>();
+    private long byteLength;
+    
+    /**
+     * Finds the number of a string, adding it to the dictionary if it is new.
+     *
+     * @param value the string
+     * @return the number of the string
+     */
+    int idOf(String value) {
+      return ids.computeIfAbsent(value, newValue -> {
+        byte[] bytes = newValue.getBytes(StandardCharsets.UTF_8);
+        encoded.add(bytes);
+        byteLength += bytes.length;
+        return encoded.size() - 1;
+      });
+    }
+    
+    /**
+     * Retrieves the UTF-8 bytes of a string.
+     *
+     * @param id the number of the string
+     * @return the encoded string
+     */
+    byte[] bytesOf(int id) {
+      return encoded.get(id);
+    }
+    
+    /**
+     * Retrieves the number of strings.
+     *
+     * @return the number of strings
+     */
+    int size() {
+      return encoded.size();
+    }
+    
+    /**
+     * Retrieves the total length of the encoded strings.
+     *
+     * @return the number of bytes of all strings
+     */
+    long byteLength() {
+      return byteLength;
+    }
+  }
+}
@@ -3,16 +3,16 @@ package edu.ntnu.idi.idatt.service;
 import edu.ntnu.idi.idatt.model.Ingredient;
 import edu.ntnu.idi.idatt.model.Recipe;
 import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.CookableRecipes;
 import edu.ntnu.idi.idatt.storage.Cookbook;
 import edu.ntnu.idi.idatt.storage.FoodStorage;
 import edu.ntnu.idi.idatt.utils.ConsoleInputManager;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * <h1>CookbookService.</h1>
@@ -28,6 +28,7 @@ public class CookbookService {
   private final Cookbook cookbook;
   private final FoodStorage foodStorage;
   private final ConsoleInputManager inputManager;
+  private final CookableRecipes cookableRecipes;
   
   /**
    * Initializes a CookbookService instance with the given cookbook,
@@ -42,6 +43,7 @@ public class CookbookService {
     this.cookbook = cookbook;
     this.foodStorage = foodStorage;
     this.inputManager = inputManager;
+    this.cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
   }
   
   /**
@@ -71,11 +73,11 @@ public class CookbookService {
           "Recipe name cannot be empty or blank.",
           "recipe name"
       );
-      if (cookbook.getRecipes().containsKey(recipeName)) {
+      if (cookbook.containsRecipe(recipeName)) {
         System.out.println("Recipe \"" + recipeName + "\""
             + " already exists. Please choose a different name.");
       }
-    } while (cookbook.getRecipes().containsKey(recipeName));
+    } while (cookbook.containsRecipe(recipeName));
     return recipeName;
   }
   
@@ -286,15 +288,9 @@ public class CookbookService {
    */
   private List<Ingredient> getIngredientsFromStorage(String ingredientKey) {
     try {
-      if (foodStorage.getIngredients() == null
-          || !foodStorage.getIngredients().containsKey(ingredientKey)) {
-        return null;
-      }
-      
       List<Ingredient> ingredients
-          = new ArrayList<>(foodStorage.getIngredients().get(ingredientKey));
-      ingredients.sort(Comparator.comparing(Ingredient::getExpirationDate));
-      return ingredients;
+          = foodStorage.searchForIngredientsInFoodStorage(ingredientKey);
+      return ingredients.isEmpty() ? null : ingredients;
     } catch (IllegalArgumentException e) {
       System.out.println("Error while retrieving ingredients from storage: " + e.getMessage());
       return null;
@@ -492,18 +488,67 @@ public class CookbookService {
     }
   }
   
+  /**
+   * Cooks a recipe chosen by the user, taking its ingredients from the food storage.
+   *
+   * <p>The ingredients are scaled to the number of portions the user asks for. Either every
+   * ingredient is taken from the storage, or, if one is short, nothing is taken.</p>
+   *
+   * @throws IllegalArgumentException if the input is invalid or an ingredient is short
+   */
+  public void handleCookRecipe() {
+    try {
+      if (cookbook == null || cookbook.getRecipes().isEmpty()) {
+        System.out.println("The cookbook is empty. Add some recipes first.");
+        return;
+      }
+      
+      System.out.println("Select a recipe to cook:");
+      List<Recipe> allRecipes = new ArrayList<>(cookbook.getRecipes().values());
+      for (int i = 0; i < allRecipes.size(); i++) {
+        System.out.println((i + 1) + ". " + allRecipes.get(i).getName()
+            + " (" + allRecipes.get(i).getPortions() + " portions)");
+      }
+      
+      int recipeChoice;
+      do {
+        recipeChoice = inputManager.getValidatedInt(
+            "Enter the number of the recipe: ",
+            "Invalid! Please enter a valid number.",
+            "recipe choice"
+        );
+        
+        if (recipeChoice < 1 || recipeChoice > allRecipes.size()) {
+          System.out.println("Please choose a number between 1 and " + allRecipes.size() + ".");
+        }
+      } while (recipeChoice < 1 || recipeChoice > allRecipes.size());
+      
+      Recipe selectedRecipe = allRecipes.get(recipeChoice - 1);
+      double portions = inputManager.getValidatedDouble(
+          "Enter the number of portions to cook: ",
+          "Invalid number of portions", "portions", false);
+      
+      foodStorage.cook(selectedRecipe, portions);
+      System.out.println("Cooked " + portions + " portions of " + selectedRecipe.getName()
+          + ". The ingredients were taken from the storage.");
+    } catch (IllegalArgumentException e) {
+      System.out.println("Could not cook the recipe: " + e.getMessage());
+    }
+  }
+  
   /**
    * Suggests recipes that can be made with the ingredients in the food storage.
    *
-   * <p>This method retrieves recipes from the cookbook where all required ingredients
-   * are available in sufficient quantities in the food storage.
+   * <p>This method reads the recipes from the cookbook where all required ingredients
+   * are available in sufficient quantities in the food storage. The list is kept up to date
+   * on every change to the storage or the cookbook, so it is not computed here.
    * </p>
    *
    * @throws Exception if an error occurs during recipe suggestion
    */
   public void handleSuggestedRecipe() {
     try {
-      List<Recipe> suggestedRecipes = cookbook.getSuggestedRecipes(foodStorage);
+      Set<Recipe> suggestedRecipes = cookableRecipes.getCookableRecipes();
       
       if (suggestedRecipes.isEmpty()) {
         System.out.println("No recipes can be made with the current food storage.");
@@ -527,7 +572,7 @@ public class CookbookService {
    */
   public void handleDisplayCookbook() {
     try {
-      HashMap<String, Recipe> cookbookRecipes = cookbook.getRecipes();
+      Map<String, Recipe> cookbookRecipes = cookbook.getRecipes();
       if (cookbookRecipes.isEmpty()) {
         System.out.println("The cookbook does not contain any recipes.");
         return;
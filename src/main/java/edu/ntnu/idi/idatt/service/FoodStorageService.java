@@ -1,11 +1,16 @@
 package edu.ntnu.idi.idatt.service;
 
 import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.RateTable;
 import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ExpirySweeper;
 import edu.ntnu.idi.idatt.storage.FoodStorage;
 import edu.ntnu.idi.idatt.utils.ConsoleInputManager;
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * <h1>FoodStorageService.</h1>
@@ -16,33 +21,68 @@ import java.util.List;
  * food storage information such as expired ingredients and total storage value.
  * </p>
  *
+ * <p>The service keeps an {@link ExpirySweeper} with a thread of its own, so it must be
+ * closed when it is no longer used.</p>
+ *
  * @author TriLe
  */
-public class FoodStorageService {
+public class FoodStorageService implements AutoCloseable {
   private final FoodStorage foodStorage;
+  private final ExpirySweeper expirySweeper;
   private final ConsoleInputManager inputManager;
+  private final Supplier<RateTable> rates;
   private Unit unit;
   
   /**
-   * Constructs a FoodStorageService with the specified food storage and input handler.
+   * Constructs a FoodStorageService with the specified food storage and input handler,
+   * using the {@link RateTable#defaults() default rates}.
+   * Starts an {@link ExpirySweeper} on the system clock to keep track of expired ingredients.
    *
    * @param foodStorage  the food storage to manage
    * @param inputManager the input handler for user input validation
+   * @param unit         the currency to show prices in
    */
   public FoodStorageService(FoodStorage foodStorage, ConsoleInputManager inputManager, Unit unit) {
+    this(foodStorage, inputManager, unit, RateTable::defaults);
+  }
+  
+  /**
+   * Constructs a FoodStorageService that converts prices with the current rate table.
+   * Every request reads the table once, so all prices it shows use the same rates.
+   *
+   * @param foodStorage  the food storage to manage
+   * @param inputManager the input handler for user input validation
+   * @param unit         the currency to show prices in
+   * @param rates        gives the current rate table
+   */
+  public FoodStorageService(FoodStorage foodStorage, ConsoleInputManager inputManager, Unit unit,
+      Supplier<RateTable> rates) {
     this.foodStorage = foodStorage;
+    this.expirySweeper = ExpirySweeper.create(foodStorage, Clock.systemDefaultZone());
+    this.expirySweeper.start();
     this.inputManager = inputManager;
+    this.rates = rates;
     this.unit = unit;
   }
   
   /**
-   * Updates the current currency unit for displaying values.
+   * Updates the currency that this service shows prices in.
    *
    * @param unit the new currency unit
    */
   public void setUnit(Unit unit) {
     this.unit = unit;
-    Ingredient.setUnitCurrency(unit);
+  }
+  
+  /**
+   * Formats an ingredient with its price converted to the currency of this service.
+   *
+   * @param ingredient the ingredient to format
+   * @param rateTable  the rates of the request
+   * @return the ingredient as a string
+   */
+  private String format(Ingredient ingredient, RateTable rateTable) {
+    return ingredient.format(rateTable.convert(ingredient.getPriceAsMoney(), unit));
   }
   
   /**
@@ -70,10 +110,13 @@ public class FoodStorageService {
           "Enter the price of the amount of the ingredient added:",
           "Invalid input for price", "Price", true);
       
-      Ingredient ingredient = new Ingredient(name, quantity, unit, expirationDate, pricePerUnit);
+      RateTable rateTable = rates.get();
+      double basePrice = rateTable.convert(Money.of(pricePerUnit, this.unit),
+          RateTable.BASE_CURRENCY).getAmount();
+      Ingredient ingredient = new Ingredient(name, quantity, unit, expirationDate, basePrice);
       foodStorage.addIngredientToFoodStorage(ingredient);
       
-      System.out.println("Ingredient added: " + ingredient);
+      System.out.println("Ingredient added: " + format(ingredient, rateTable));
       
     } catch (IllegalArgumentException e) {
       System.out.println("Error: " + e.getMessage());
@@ -96,10 +139,12 @@ public class FoodStorageService {
       }
       
       List<Ingredient> searchStatus
-          = foodStorage.searchForIngredientsInFoodStorage(name.toLowerCase());
+          = foodStorage.searchForIngredientsInFoodStorage(name);
       if (searchStatus != null && !searchStatus.isEmpty()) {
         System.out.println("Ingredient found: ");
-        searchStatus.forEach(ingredient -> System.out.println(" - " + ingredient));
+        RateTable rateTable = rates.get();
+        searchStatus.forEach(ingredient ->
+            System.out.println(" - " + format(ingredient, rateTable)));
       } else {
         System.out.println("Ingredient: " + name + " does not exist.");
       }
@@ -125,22 +170,24 @@ public class FoodStorageService {
       if (matchingIngredients == null || matchingIngredients.isEmpty()) {
         throw new IllegalArgumentException("Ingredient " + name + " does not exist.");
       }
+      Unit unit = matchingIngredients.getFirst().getUnitMeasurement();
       double totalQuantity = matchingIngredients.stream()
-          .mapToDouble(Ingredient::getQuantity)
+          .filter(ingredient -> ingredient.getUnitMeasurement().getType() == unit.getType())
+          .mapToDouble(ingredient -> unit.fromFixedPoint(ingredient.getBaseQuantity()))
           .sum();
       
       double quantity = inputManager.getValidatedDouble(
           "Enter how much quantity of the Ingredient: " + matchingIngredients.getFirst().getName()
               + "(" + totalQuantity
-              + matchingIngredients.getFirst().getUnitMeasurement().getSymbol()
+              + unit.getSymbol()
               + ") to be removed: ", "Invalid quantity", "quantity", false
       );
       
-      double removedQuantity = foodStorage.removeIngredientFromFoodStorage(name, quantity);
+      double removedQuantity = foodStorage.removeIngredientFromFoodStorage(name, quantity, unit);
       
       System.out.println(
           "Removed " + removedQuantity
-              + matchingIngredients.getFirst().getUnitMeasurement().getSymbol()
+              + unit.getSymbol()
               + " from " + matchingIngredients.getFirst().getName());
       
     } catch (IllegalArgumentException e) {
@@ -155,7 +202,7 @@ public class FoodStorageService {
    */
   public void handleDisplayExpiredIngredients() {
     try {
-      List<Ingredient> expiredIngredients = foodStorage.getExpiredIngredients();
+      List<Ingredient> expiredIngredients = expirySweeper.getExpiredIngredients();
       
       if (expiredIngredients == null || expiredIngredients.isEmpty()) {
         System.out.println("No Ingredients is expired! Nice!");
@@ -163,12 +210,14 @@ public class FoodStorageService {
         return;
       }
       
-      double totalValue = foodStorage.calculateTotalValue(expiredIngredients.stream());
+      RateTable rateTable = rates.get();
+      Money totalValue = rateTable.convert(new Money(
+          expirySweeper.getExpiredValueMinorUnits(), RateTable.BASE_CURRENCY), unit);
       
       System.out.println("Expired ingredients:");
-      expiredIngredients.forEach(ingredient -> System.out.println("- " + ingredient));
-      System.out.println("Total value of expired ingredients: "
-          + totalValue + " " + unit.getSymbol());
+      expiredIngredients.forEach(ingredient ->
+          System.out.println("- " + format(ingredient, rateTable)));
+      System.out.println("Total value of expired ingredients: " + totalValue);
       System.out.println("Try to conserve more food please!");
     } catch (IllegalArgumentException e) {
       System.out.println("Error while trying to display expired Ingredients: " + e.getMessage());
@@ -186,12 +235,9 @@ public class FoodStorageService {
         System.out.println("Food storage is empty");
         return;
       }
-      double totalValue = foodStorage
-          .calculateTotalValue(foodStorage.getIngredients().values().stream()
-              .flatMap(List::stream));
+      Money totalValue = foodStorage.getTotalValues(rates.get(), List.of(unit)).get(unit);
       
-      System.out.println("The total value of the food storage is: "
-          + totalValue + unit.getSymbol());
+      System.out.println("The total value of the food storage is: " + totalValue);
     } catch (IllegalArgumentException e) {
       System.out.println("Error while getting the total value of food storage: " + e.getMessage());
     }
@@ -212,7 +258,9 @@ public class FoodStorageService {
         System.out.println("No Ingredients expire before: " + date);
       } else {
         System.out.println("----Ingredients expiring before date: " + date + " ----");
-        ingredientsBeforeDate.forEach(ingredient -> System.out.println("- " + ingredient));
+        RateTable rateTable = rates.get();
+        ingredientsBeforeDate.forEach(ingredient ->
+            System.out.println("- " + format(ingredient, rateTable)));
         
       }
     } catch (IllegalArgumentException e) {
@@ -238,4 +286,12 @@ public class FoodStorageService {
       System.out.println("Error while displaying the food storage from a-z: " + e.getMessage());
     }
   }
+  
+  /**
+   * Stops the expiry sweeper thread and stops it listening to the food storage.
+   */
+  @Override
+  public void close() {
+    expirySweeper.close();
+  }
 }
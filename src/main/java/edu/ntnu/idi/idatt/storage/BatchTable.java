@@ -0,0 +1,132 @@
+package edu.ntnu.idi.idatt.storage;
+
+/**
+ * The rows that hold the batches of a {@link ColumnarFoodStorage}.
+ *
+ * <p>A row has the id of the key, the id of the name, the unit ordinal, the quantity
+ * as a fixed-point value in base units, the price in minor units, and the expiration date
+ * as epoch day. Rows are addressed by index, from 0 up to the capacity of the table.
+ * The storage decides which rows are used.</p>
+ *
+ * @author TriLe
+ */
+interface BatchTable {
+  
+  /**
+   * Retrieves the number of rows the table can hold.
+   *
+   * @return the capacity of the table
+   */
+  int capacity();
+  
+  /**
+   * Grows the table, keeping the values of the existing rows.
+   *
+   * @param capacity the new number of rows, larger than the current capacity
+   */
+  void grow(int capacity);
+  
+  /**
+   * Reads the id of the key of a row.
+   *
+   * @param row the index of the row
+   * @return the id of the key
+   */
+  int getKey(int row);
+  
+  /**
+   * Writes the id of the key of a row.
+   *
+   * @param row   the index of the row
+   * @param keyId the id of the key
+   */
+  void setKey(int row, int keyId);
+  
+  /**
+   * Reads the id of the name of a row.
+   *
+   * @param row the index of the row
+   * @return the id of the name
+   */
+  int getName(int row);
+  
+  /**
+   * Writes the id of the name of a row.
+   *
+   * @param row    the index of the row
+   * @param nameId the id of the name
+   */
+  void setName(int row, int nameId);
+  
+  /**
+   * Reads the unit ordinal of a row.
+   *
+   * @param row the index of the row
+   * @return the ordinal of the unit
+   */
+  byte getUnit(int row);
+  
+  /**
+   * Writes the unit ordinal of a row.
+   *
+   * @param row  the index of the row
+   * @param unit the ordinal of the unit
+   */
+  void setUnit(int row, byte unit);
+  
+  /**
+   * Reads the quantity of a row.
+   *
+   * @param row the index of the row
+   * @return the quantity, in base units
+   */
+  long getQuantity(int row);
+  
+  /**
+   * Writes the quantity of a row.
+   *
+   * @param row      the index of the row
+   * @param quantity the quantity, in base units
+   */
+  void setQuantity(int row, long quantity);
+  
+  /**
+   * Reads the price of a row.
+   *
+   * @param row the index of the row
+   * @return the price, in minor units
+   */
+  long getPrice(int row);
+  
+  /**
+   * Writes the price of a row.
+   *
+   * @param row   the index of the row
+   * @param price the price, in minor units
+   */
+  void setPrice(int row, long price);
+  
+  /**
+   * Reads the expiration date of a row.
+   *
+   * @param row the index of the row
+   * @return the expiration date as epoch day
+   */
+  int getEpochDay(int row);
+  
+  /**
+   * Writes the expiration date of a row.
+   *
+   * @param row      the index of the row
+   * @param epochDay the expiration date as epoch day
+   */
+  void setEpochDay(int row, int epochDay);
+  
+  /**
+   * Copies every value of a row to another row.
+   *
+   * @param from the index of the row to copy
+   * @param to   the index of the row to overwrite
+   */
+  void copyRow(int from, int to);
+}
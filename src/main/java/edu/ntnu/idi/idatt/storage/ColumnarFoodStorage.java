@@ -0,0 +1,886 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FoodStorage} that keeps its batches in columns of primitive arrays
+ * instead of as one {@link Ingredient} object per batch.
+ *
+ * <p>Every batch is a row of a {@link BatchTable} with these values:
+ * <ul>
+ *   <li>{@code int} id of the normalized name (the key), or {@value #TOMBSTONE} for a
+ *   removed row</li>
+ *   <li>{@code int} id of the name as it was entered</li>
+ *   <li>{@code byte} ordinal of the unit</li>
+ *   <li>{@code long} quantity, as a fixed-point value in the canonical base unit of its type
+ *   (see {@link Unit#toFixedPoint(double)})</li>
+ *   <li>{@code long} price, in minor units (see {@link Money})</li>
+ *   <li>{@code int} expiration date as epoch day, or {@link Integer#MAX_VALUE} for none</li>
+ * </ul>
+ * By default the table has one primitive array per value, and {@link OffHeapFoodStorage}
+ * keeps it outside the heap. The key of a row is the id of its name in the
+ * {@link NameDictionary}, and the names as they were entered are stored once in a dictionary
+ * of the storage. Each key also has the rows
+ * of its batches ordered by expiration date, and running totals of its quantity.</p>
+ *
+ * <p>Removed batches are marked as tombstones and skipped. When more than half of the rows
+ * are tombstones, the columns are compacted so they stay dense. Expiration date queries are
+ * plain loops over the date column.</p>
+ *
+ * <p>The {@code Ingredient} objects returned by this storage are copies made from the
+ * columns, so changing them does not change the storage. This class is not thread-safe.</p>
+ *
+ * @author TriLe
+ */
+public class ColumnarFoodStorage extends FoodStorage {
+  private static final int TOMBSTONE = -1;
+  private static final int NO_DATE = Integer.MAX_VALUE;
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MIN_COMPACTION_ROWS = 64;
+  private static final Unit[] UNITS = Unit.values();
+  private static final int UNIT_TYPES = Unit.UnitType.values().length;
+  private static final Comparator<Ingredient> BY_EXPIRY_KEY = Comparator
+      .comparing(Ingredient::getExpirationDate)
+      .thenComparing(Ingredient::getName)
+      .thenComparingLong(Ingredient::getPriceMinorUnits);
+  
+  private final Map<String, Integer> nameIds;
+  private final List<String> names;
+  private final Set<String> presentKeys;
+  private final BitSet presentKeyIds;
+  
+  private final BatchTable table;
+  private int rowCount;
+  private int liveRowCount;
+  private long totalValue;
+  
+  private int[][] rowsByKey;
+  private int[] rowCountsByKey;
+  private long[] quantitiesByKeyAndUnit;
+  private long[] baseUnitQuantitiesByKey;
+  
+  /**
+   * Constructs an empty columnar storage.
+   */
+  public ColumnarFoodStorage() {
+    this(new HeapBatchTable(INITIAL_CAPACITY));
+  }
+  
+  /**
+   * Constructs an empty storage that keeps its rows in the given table.
+   *
+   * @param table The empty table to hold the rows.
+   */
+  ColumnarFoodStorage(BatchTable table) {
+    this.table = table;
+    this.nameIds = new HashMap<>();
+    this.names = new ArrayList<>();
+    this.presentKeys = new HashSet<>();
+    this.presentKeyIds = new BitSet();
+    
+    this.rowsByKey = new int[INITIAL_CAPACITY][];
+    this.rowCountsByKey = new int[INITIAL_CAPACITY];
+    this.quantitiesByKeyAndUnit = new long[INITIAL_CAPACITY * UNITS.length];
+    this.baseUnitQuantitiesByKey = new long[INITIAL_CAPACITY * UNIT_TYPES];
+  }
+  
+  /**
+   * Makes room for the rows and totals of a key.
+   *
+   * @param keyId The id of the key in the {@link NameDictionary}.
+   */
+  private void ensureKey(int keyId) {
+    if (keyId >= rowCountsByKey.length) {
+      int capacity = Math.max(keyId + 1, rowCountsByKey.length * 2);
+      rowsByKey = Arrays.copyOf(rowsByKey, capacity);
+      rowCountsByKey = Arrays.copyOf(rowCountsByKey, capacity);
+      quantitiesByKeyAndUnit = Arrays.copyOf(quantitiesByKeyAndUnit, capacity * UNITS.length);
+      baseUnitQuantitiesByKey = Arrays.copyOf(baseUnitQuantitiesByKey, capacity * UNIT_TYPES);
+    }
+    if (rowsByKey[keyId] == null) {
+      rowsByKey[keyId] = new int[2];
+    }
+  }
+  
+  /**
+   * Finds the id of a name as it was entered, adding it to the dictionary if it is new.
+   *
+   * @param name The name.
+   * @return The id of the name.
+   */
+  private int nameIdOf(String name) {
+    return nameIds.computeIfAbsent(name, newName -> {
+      names.add(newName);
+      return names.size() - 1;
+    });
+  }
+  
+  /**
+   * Finds the id of a key that has batches in the storage.
+   *
+   * @param name The name, in any case.
+   * @return The id of the key, or -1 if the key has no batches.
+   */
+  private int presentKeyId(String name) {
+    int id = NameDictionary.find(name);
+    return id >= 0 && presentKeyIds.get(id) ? id : -1;
+  }
+  
+  /**
+   * Converts an expiration date to the value in the date column.
+   *
+   * @param date The expiration date, or null.
+   * @return The epoch day of the date, or {@link #NO_DATE}.
+   */
+  private static int epochDayOf(LocalDate date) {
+    return date == null ? NO_DATE : (int) date.toEpochDay();
+  }
+  
+  /**
+   * Creates an {@code Ingredient} from a row.
+   *
+   * @param row The row of the batch.
+   * @return A new Ingredient with the values of the row.
+   */
+  private Ingredient materialize(int row) {
+    int epochDay = table.getEpochDay(row);
+    return Ingredient.ofExactValues(names.get(table.getName(row)), table.getQuantity(row),
+        UNITS[table.getUnit(row)], epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay),
+        table.getPrice(row));
+  }
+  
+  /**
+   * Creates the batches of a key, ordered by expiration date.
+   *
+   * @param keyId The id of the key.
+   * @return A new list of the batches.
+   */
+  private List<Ingredient> materializeKey(int keyId) {
+    int[] rows = rowsByKey[keyId];
+    List<Ingredient> batches = new ArrayList<>(rowCountsByKey[keyId]);
+    for (int i = 0; i < rowCountsByKey[keyId]; i++) {
+      batches.add(materialize(rows[i]));
+    }
+    return batches;
+  }
+  
+  /**
+   * Adds a change in quantity of a row to the running totals of its key.
+   *
+   * @param keyId    The id of the key.
+   * @param row      The row whose quantity changed.
+   * @param quantity The change in quantity, in base units.
+   */
+  private void addToTotals(int keyId, int row, long quantity) {
+    Unit unit = UNITS[table.getUnit(row)];
+    quantitiesByKeyAndUnit[keyId * UNITS.length + unit.ordinal()] += quantity;
+    baseUnitQuantitiesByKey[keyId * UNIT_TYPES + unit.getType().ordinal()] += quantity;
+  }
+  
+  /**
+   * Sums the quantities of the batches of a key, each in its own unit.
+   *
+   * @param keyId The id of the key.
+   * @return The sum of the quantities of the batches.
+   */
+  private double totalQuantityOf(int keyId) {
+    double total = 0;
+    for (Unit unit : UNITS) {
+      long quantity = quantitiesByKeyAndUnit[keyId * UNITS.length + unit.ordinal()];
+      if (quantity != 0) {
+        total += unit.fromFixedPoint(quantity);
+      }
+    }
+    return total;
+  }
+  
+  /**
+   * Appends a row for a new batch to the columns.
+   *
+   * @param keyId      The id of the key of the batch.
+   * @param ingredient The batch.
+   * @param epochDay   The expiration date of the batch as epoch day.
+   * @return The index of the new row.
+   */
+  private int appendRow(int keyId, Ingredient ingredient, int epochDay) {
+    if (rowCount == table.capacity()) {
+      table.grow(rowCount * 2);
+    }
+    int row = rowCount++;
+    table.setKey(row, keyId);
+    table.setName(row, nameIdOf(ingredient.getName()));
+    table.setUnit(row, (byte) ingredient.getUnitMeasurement().ordinal());
+    table.setQuantity(row, ingredient.getBaseQuantity());
+    table.setPrice(row, ingredient.getPriceMinorUnits());
+    table.setEpochDay(row, epochDay);
+    return row;
+  }
+  
+  /**
+   * Finds, with a binary search, the first of the rows of a key that expires after a day.
+   * The rows of a key are sorted by expiration date, so the rows before the index expire
+   * on or before the day.
+   *
+   * @param keyId    The id of the key.
+   * @param epochDay The epoch day to compare with.
+   * @return The index in the rows of the key of the first row that expires after the day.
+   */
+  private int indexAfter(int keyId, int epochDay) {
+    int[] rows = rowsByKey[keyId];
+    int low = 0;
+    int high = rowCountsByKey[keyId];
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (table.getEpochDay(rows[middle]) <= epochDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+  
+  /**
+   * Adds a row to the rows of its key, after the rows that expire on or before it.
+   *
+   * @param keyId The id of the key.
+   * @param row   The row to add.
+   */
+  private void insertRowOfKey(int keyId, int row) {
+    int count = rowCountsByKey[keyId];
+    int[] rows = rowsByKey[keyId];
+    if (count == rows.length) {
+      rows = Arrays.copyOf(rows, count * 2);
+      rowsByKey[keyId] = rows;
+    }
+    int position = indexAfter(keyId, table.getEpochDay(row));
+    System.arraycopy(rows, position, rows, position + 1, count - position);
+    rows[position] = row;
+    rowCountsByKey[keyId] = count + 1;
+  }
+  
+  /**
+   * Adds an ingredient to the storage. If an ingredient with the same name, expiration date,
+   * price and unit type exists, its quantity will be updated. Otherwise, a new row is added.
+   * The rows with the same expiration date are found with a binary search on the sorted
+   * rows of the name, so only those are compared by price and unit type.
+   *
+   * @param ingredient The Ingredient to be added to the storage.
+   * @throws IllegalArgumentException if the ingredient is null.
+   */
+  @Override
+  public void addIngredientToFoodStorage(Ingredient ingredient) {
+    if (ingredient == null) {
+      throw new IllegalArgumentException("Ingredient cannot be null");
+    }
+    notifyBeforeChange();
+    int keyId = ingredient.getNameId();
+    String key = NameDictionary.keyOf(keyId);
+    ensureKey(keyId);
+    int epochDay = epochDayOf(ingredient.getExpirationDate());
+    int matchingIndex = matchingIndexOf(keyId, epochDay, ingredient.getPriceMinorUnits(),
+        ingredient.getUnitMeasurement().getType());
+    
+    if (matchingIndex >= 0) {
+      int matchingRow = rowsByKey[keyId][matchingIndex];
+      table.setQuantity(matchingRow,
+          table.getQuantity(matchingRow) + ingredient.getBaseQuantity());
+      addToTotals(keyId, matchingRow, ingredient.getBaseQuantity());
+    } else {
+      int row = appendRow(keyId, ingredient, epochDay);
+      insertRowOfKey(keyId, row);
+      addToTotals(keyId, row, ingredient.getBaseQuantity());
+      totalValue += ingredient.getPriceMinorUnits();
+      liveRowCount++;
+      presentKeys.add(key);
+      presentKeyIds.set(keyId);
+    }
+    notifyIngredientAdded(ingredient);
+    notifyIngredientChanged(key);
+  }
+  
+  /**
+   * Finds the row of a key with the given expiration date, price and unit type.
+   * The rows with the expiration date are found with a binary search.
+   *
+   * @param keyId    The id of the key.
+   * @param epochDay The expiration date as epoch day, or {@link #NO_DATE}.
+   * @param price    The price in minor units.
+   * @param type     The unit type.
+   * @return The index of the row in the rows of the key, or -1 if there is none.
+   */
+  private int matchingIndexOf(int keyId, int epochDay, long price, Unit.UnitType type) {
+    int[] rows = rowsByKey[keyId];
+    int end = indexAfter(keyId, epochDay);
+    for (int i = indexAfter(keyId, epochDay - 1); i < end; i++) {
+      if (table.getPrice(rows[i]) == price
+          && UNITS[table.getUnit(rows[i])].getType() == type) {
+        return i;
+      }
+    }
+    return -1;
+  }
+  
+  /**
+   * Tells the listeners that a quantity was taken from a row, before the row changes.
+   *
+   * @param row          The row the quantity was taken from.
+   * @param baseQuantity The quantity that was taken, in base units.
+   */
+  private void notifyRowConsumed(int row, long baseQuantity) {
+    int epochDay = table.getEpochDay(row);
+    notifyBatchConsumed(names.get(table.getName(row)), UNITS[table.getUnit(row)],
+        epochDay == NO_DATE ? null : LocalDate.ofEpochDay(epochDay), table.getPrice(row),
+        baseQuantity);
+  }
+  
+  /**
+   * Finds the unit of the first row of an ingredient when all its rows have the same unit
+   * type.
+   *
+   * @param key The normalized name of the ingredient.
+   * @return The unit of the first row of the ingredient.
+   * @throws IllegalArgumentException if the ingredient does not exist,
+   *                                  or if its rows have more than one unit type.
+   */
+  @Override
+  protected Unit getOnlyUnitOf(String key) {
+    int keyId = presentKeyId(key);
+    if (keyId < 0) {
+      throw new IllegalArgumentException("Ingredient " + key + " does not exist in storage.");
+    }
+    int[] rows = rowsByKey[keyId];
+    Unit unit = UNITS[table.getUnit(rows[0])];
+    for (int i = 1; i < rowCountsByKey[keyId]; i++) {
+      if (UNITS[table.getUnit(rows[i])].getType() != unit.getType()) {
+        throw new IllegalArgumentException("Ingredient " + key
+            + " is stored in more than one unit type, so the unit must be given.");
+      }
+    }
+    return unit;
+  }
+  
+  /**
+   * Removes a specified quantity of an ingredient from the storage.
+   * The quantity is taken from the batch that expires first (FIFO),
+   * and batches without an expiration date are used last. Only rows of the unit type of
+   * the given unit are used, and the scan stops at the first row it does not use up.
+   *
+   * @param name     The name of the ingredient to remove, in any case.
+   * @param quantity The quantity to remove.
+   * @param unit     The unit of the quantity.
+   * @return The actual quantity removed.
+   * @throws IllegalArgumentException if the unit is null, if the ingredient does not exist
+   *                                  or if the quantity exceeds availability.
+   */
+  @Override
+  public double removeIngredientFromFoodStorage(String name, double quantity, Unit unit) {
+    if (unit == null) {
+      throw new IllegalArgumentException("Unit cannot be null.");
+    }
+    notifyBeforeChange();
+    String key = NameNormalizer.normalize(name);
+    int keyId = presentKeyId(key);
+    if (keyId < 0) {
+      throw new IllegalArgumentException("Ingredient " + key + " does not exist in storage.");
+    }
+    int[] rows = rowsByKey[keyId];
+    int count = rowCountsByKey[keyId];
+    Unit.UnitType type = unit.getType();
+    long totalQuantity = baseUnitQuantitiesByKey[keyId * UNIT_TYPES + type.ordinal()];
+    long remaining = unit.toFixedPoint(quantity);
+    if (remaining > totalQuantity) {
+      throw new IllegalArgumentException("Invalid quantity to remove: "
+          + quantity + ". Available: " + unit.fromFixedPoint(totalQuantity));
+    }
+    long removedBase = Math.max(remaining, 0);
+    
+    int kept = 0;
+    int i = 0;
+    for (; i < count && remaining > 0; i++) {
+      int row = rows[i];
+      if (UNITS[table.getUnit(row)].getType() != type) {
+        rows[kept++] = row;
+      } else if (table.getQuantity(row) > remaining) {
+        notifyRowConsumed(row, remaining);
+        table.setQuantity(row, table.getQuantity(row) - remaining);
+        addToTotals(keyId, row, -remaining);
+        remaining = 0;
+        rows[kept++] = row;
+      } else {
+        notifyRowConsumed(row, table.getQuantity(row));
+        remaining -= table.getQuantity(row);
+        addToTotals(keyId, row, -table.getQuantity(row));
+        totalValue -= table.getPrice(row);
+        table.setKey(row, TOMBSTONE);
+        liveRowCount--;
+      }
+    }
+    if (kept < i) {
+      System.arraycopy(rows, i, rows, kept, count - i);
+    }
+    rowCountsByKey[keyId] = kept + count - i;
+    releaseKeyIfEmpty(keyId, key);
+    compactIfSparse();
+    
+    notifyIngredientChanged(key);
+    return unit.fromFixedPoint(removedBase);
+  }
+  
+  /**
+   * Takes the quantity of a batch from the row with the same name, expiration date, price
+   * and unit type.
+   *
+   * @param taken The quantity to take, as a batch.
+   * @throws IllegalArgumentException if the batch is null, or no matching row has the
+   *                                  quantity.
+   */
+  @Override
+  public void consumeBatch(Ingredient taken) {
+    if (taken == null) {
+      throw new IllegalArgumentException("Ingredient cannot be null");
+    }
+    notifyBeforeChange();
+    String key = NameDictionary.keyOf(taken.getNameId());
+    int keyId = presentKeyId(key);
+    int index = keyId < 0 ? -1 : matchingIndexOf(keyId, epochDayOf(taken.getExpirationDate()),
+        taken.getPriceMinorUnits(), taken.getUnitMeasurement().getType());
+    int row = index < 0 ? -1 : rowsByKey[keyId][index];
+    if (row < 0 || table.getQuantity(row) < taken.getBaseQuantity()) {
+      throw new IllegalArgumentException("No batch of " + key + " to take "
+          + taken.getQuantity() + " " + taken.getUnitMeasurement().getSymbol() + " from.");
+    }
+    
+    notifyRowConsumed(row, taken.getBaseQuantity());
+    if (table.getQuantity(row) > taken.getBaseQuantity()) {
+      table.setQuantity(row, table.getQuantity(row) - taken.getBaseQuantity());
+      addToTotals(keyId, row, -taken.getBaseQuantity());
+    } else {
+      addToTotals(keyId, row, -table.getQuantity(row));
+      totalValue -= table.getPrice(row);
+      table.setKey(row, TOMBSTONE);
+      liveRowCount--;
+      int[] rows = rowsByKey[keyId];
+      int count = rowCountsByKey[keyId];
+      System.arraycopy(rows, index + 1, rows, index, count - index - 1);
+      rowCountsByKey[keyId] = count - 1;
+      releaseKeyIfEmpty(keyId, key);
+      compactIfSparse();
+    }
+    notifyIngredientChanged(key);
+  }
+  
+  /**
+   * Clears the totals of a key and marks it as not present when it has no rows left.
+   *
+   * @param keyId The id of the key.
+   * @param key   The normalized name of the key.
+   */
+  private void releaseKeyIfEmpty(int keyId, String key) {
+    if (rowCountsByKey[keyId] == 0) {
+      Arrays.fill(quantitiesByKeyAndUnit, keyId * UNITS.length, (keyId + 1) * UNITS.length, 0);
+      Arrays.fill(baseUnitQuantitiesByKey, keyId * UNIT_TYPES, (keyId + 1) * UNIT_TYPES, 0);
+      presentKeys.remove(key);
+      presentKeyIds.clear(keyId);
+    }
+  }
+  
+  /**
+   * Cooks a number of portions of a recipe, taking every ingredient it needs from the
+   * columns, or nothing at all.
+   *
+   * <p>The rows of every ingredient are picked first, and only when all of them are
+   * available are the rows changed. Used up rows become tombstones, and the rows of each
+   * key are filtered once. Rows of another unit type are converted with the
+   * {@link DensityTable} of the storage when it has a density for the ingredient.</p>
+   *
+   * @param recipe   The recipe to cook.
+   * @param portions The number of portions to cook.
+   * @throws IllegalArgumentException if the recipe is null, the portions are not positive,
+   *                                  or an ingredient is missing or short.
+   */
+  @Override
+  public void cook(Recipe recipe, double portions) {
+    if (recipe == null) {
+      throw new IllegalArgumentException("Recipe cannot be null");
+    }
+    if (portions <= 0) {
+      throw new IllegalArgumentException("Portions must be positive");
+    }
+    notifyBeforeChange();
+    double scale = portions / recipe.getPortions();
+    List<Ingredient> needed = recipe.getIngredientsList();
+    int[] partialRows = new int[needed.size()];
+    long[] partialQuantities = new long[needed.size()];
+    List<BitSet> usedUpRows = new ArrayList<>(needed.size());
+    DensityTable densities = getDensityTable();
+    
+    for (int i = 0; i < needed.size(); i++) {
+      Ingredient ingredient = needed.get(i);
+      int keyId = ingredient.getNameId();
+      boolean present = presentKeyIds.get(keyId);
+      Unit unit = ingredient.getUnitMeasurement();
+      Unit.UnitType type = unit.getType();
+      double quantity = ingredient.getQuantity() * scale;
+      long remaining = unit.toFixedPoint(quantity);
+      long available = present ? densities.convertibleBaseQuantity(keyId,
+          copyBaseUnitQuantities(keyId), type) : 0;
+      
+      BitSet usedUp = new BitSet();
+      partialRows[i] = -1;
+      int[] rows = present ? rowsByKey[keyId] : new int[0];
+      int count = available >= remaining ? rowCountsByKey[keyId] : 0;
+      for (int r = 0; r < count && remaining > 0; r++) {
+        Unit rowUnit = UNITS[table.getUnit(rows[r])];
+        long rowQuantity = table.getQuantity(rows[r]);
+        long inUnitType = densities.convertBaseQuantity(
+            keyId, rowQuantity, rowUnit.getType(), type);
+        if (inUnitType == 0) {
+          continue;
+        }
+        long covering = inUnitType > remaining ? densities.coveringBaseQuantity(
+            keyId, remaining, type, rowUnit.getType()) : Long.MAX_VALUE;
+        if (covering < rowQuantity) {
+          partialRows[i] = rows[r];
+          partialQuantities[i] = covering;
+          remaining = 0;
+        } else {
+          usedUp.set(r);
+          remaining -= Math.min(remaining, inUnitType);
+        }
+      }
+      // Rows are converted one by one, so rounding can leave a little short of the total
+      if (available < unit.toFixedPoint(quantity) || remaining > 0) {
+        throw new IllegalArgumentException("Not enough " + NameDictionary.keyOf(keyId)
+            + " to cook " + recipe.getName() + ". Needed: " + quantity
+            + ", available: " + unit.fromFixedPoint(available));
+      }
+      usedUpRows.add(usedUp);
+    }
+    
+    for (int i = 0; i < needed.size(); i++) {
+      if (usedUpRows.get(i).isEmpty() && partialRows[i] < 0) {
+        continue;
+      }
+      int keyId = needed.get(i).getNameId();
+      String key = NameDictionary.keyOf(keyId);
+      int[] rows = rowsByKey[keyId];
+      int count = rowCountsByKey[keyId];
+      BitSet usedUp = usedUpRows.get(i);
+      int kept = 0;
+      for (int r = 0; r < count; r++) {
+        int row = rows[r];
+        if (usedUp.get(r)) {
+          notifyRowConsumed(row, table.getQuantity(row));
+          addToTotals(keyId, row, -table.getQuantity(row));
+          totalValue -= table.getPrice(row);
+          table.setKey(row, TOMBSTONE);
+          liveRowCount--;
+        } else {
+          rows[kept++] = row;
+        }
+      }
+      rowCountsByKey[keyId] = kept;
+      if (partialRows[i] >= 0) {
+        int row = partialRows[i];
+        notifyRowConsumed(row, partialQuantities[i]);
+        table.setQuantity(row, table.getQuantity(row) - partialQuantities[i]);
+        addToTotals(keyId, row, -partialQuantities[i]);
+      }
+      releaseKeyIfEmpty(keyId, key);
+    }
+    compactIfSparse();
+    for (Ingredient ingredient : needed) {
+      notifyIngredientChanged(NameDictionary.keyOf(ingredient.getNameId()));
+    }
+  }
+  
+  /**
+   * Moves the live rows to the front of the columns when more than half of the rows are
+   * tombstones, and updates the rows of every key to the new positions.
+   */
+  private void compactIfSparse() {
+    int tombstones = rowCount - liveRowCount;
+    if (tombstones < MIN_COMPACTION_ROWS || tombstones <= liveRowCount) {
+      return;
+    }
+    int[] newRows = new int[rowCount];
+    int written = 0;
+    for (int row = 0; row < rowCount; row++) {
+      if (table.getKey(row) != TOMBSTONE) {
+        table.copyRow(row, written);
+        newRows[row] = written++;
+      }
+    }
+    rowCount = written;
+    for (int keyId = presentKeyIds.nextSetBit(0); keyId >= 0;
+        keyId = presentKeyIds.nextSetBit(keyId + 1)) {
+      int[] rows = rowsByKey[keyId];
+      for (int i = 0; i < rowCountsByKey[keyId]; i++) {
+        rows[i] = newRows[rows[i]];
+      }
+    }
+  }
+  
+  /**
+   * Retrieves the number of rows in the columns, including tombstones
+   * that have not been compacted yet.
+   *
+   * @return The number of used rows.
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+  
+  /**
+   * Collects the batches that expire in a range of epoch days, with one pass over the
+   * date column. Batches without an expiration date are never included.
+   *
+   * @param fromDay The first epoch day to include.
+   * @param toDay   The epoch day after the last to include.
+   * @return The batches in the range, sorted by expiration date.
+   */
+  private List<Ingredient> collectExpiring(long fromDay, long toDay) {
+    List<Ingredient> batches = new ArrayList<>();
+    for (int row = 0; row < rowCount; row++) {
+      int epochDay = table.getEpochDay(row);
+      if (epochDay >= fromDay && epochDay < toDay && epochDay != NO_DATE
+          && table.getKey(row) != TOMBSTONE) {
+        batches.add(materialize(row));
+      }
+    }
+    batches.sort(BY_EXPIRY_KEY);
+    return batches;
+  }
+  
+  /**
+   * Retrieves the batches that have expired, by scanning the date column.
+   *
+   * @return The expired batches, sorted by expiration date.
+   */
+  @Override
+  public List<Ingredient> getExpiredIngredients() {
+    return collectExpiring(Long.MIN_VALUE, LocalDate.now().toEpochDay());
+  }
+  
+  /**
+   * Retrieves the batches that expire before a date, by scanning the date column.
+   *
+   * @param date The date to compare with.
+   * @return The batches expiring before the date, sorted by expiration date.
+   */
+  @Override
+  public List<Ingredient> getIngredientsExpiringBefore(LocalDate date) {
+    return collectExpiring(Long.MIN_VALUE, date.toEpochDay());
+  }
+  
+  /**
+   * Retrieves the batches that expire after a date, by scanning the date column.
+   *
+   * @param date The date to compare with.
+   * @return The batches expiring after the date, sorted by expiration date.
+   */
+  @Override
+  public List<Ingredient> getIngredientsExpiringAfter(LocalDate date) {
+    return collectExpiring(date.toEpochDay() + 1, Long.MAX_VALUE);
+  }
+  
+  /**
+   * Retrieves the batches that expire in a range of dates, by scanning the date column.
+   *
+   * @param from  The first date to include.
+   * @param until The date after the last date to include.
+   * @return The batches in the range, sorted by expiration date.
+   */
+  @Override
+  public List<Ingredient> getIngredientsExpiringBetween(LocalDate from, LocalDate until) {
+    return collectExpiring(from.toEpochDay(), until.toEpochDay());
+  }
+  
+  /**
+   * Creates a map of the batches in the storage from the columns.
+   *
+   * @return An unmodifiable map from normalized name to the batches, ordered by expiration date.
+   */
+  @Override
+  public Map<String, List<Ingredient>> getIngredients() {
+    Map<String, List<Ingredient>> snapshot = new HashMap<>();
+    for (int keyId = presentKeyIds.nextSetBit(0); keyId >= 0;
+        keyId = presentKeyIds.nextSetBit(keyId + 1)) {
+      snapshot.put(NameDictionary.keyOf(keyId),
+          Collections.unmodifiableList(materializeKey(keyId)));
+    }
+    return Collections.unmodifiableMap(snapshot);
+  }
+  
+  /**
+   * Checks if an ingredient has batches in the storage.
+   *
+   * @param name The name of the ingredient, in any case.
+   * @return True if the ingredient exists, false otherwise.
+   */
+  @Override
+  public boolean ingredientExist(String name) {
+    return presentKeyId(name) >= 0;
+  }
+  
+  /**
+   * Searches for the batches of an ingredient.
+   *
+   * @param nameIngredient The name of the ingredient, in any case.
+   * @return Copies of the batches ordered by expiration date, or an empty list.
+   */
+  @Override
+  public List<Ingredient> searchForIngredientsInFoodStorage(String nameIngredient) {
+    int keyId = presentKeyId(nameIngredient);
+    return keyId < 0 ? new ArrayList<>() : materializeKey(keyId);
+  }
+  
+  /**
+   * Retrieves the running total value of the batches in minor units.
+   *
+   * @return The total value in minor units.
+   */
+  @Override
+  public long getTotalValueMinorUnits() {
+    return totalValue;
+  }
+  
+  /**
+   * Retrieves the number of live rows.
+   *
+   * @return The number of batches.
+   */
+  @Override
+  public int getBatchCount() {
+    return liveRowCount;
+  }
+  
+  /**
+   * Retrieves the exact total quantity of an ingredient of one unit type from the running
+   * totals of its key.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary}.
+   * @param type   The unit type to get the quantity of.
+   * @return The total quantity in base units, or 0 if there are no compatible batches.
+   */
+  @Override
+  public long getTotalBaseQuantity(int nameId, Unit.UnitType type) {
+    NameDictionary.keyOf(nameId); // Throws for an id that no name has
+    return !presentKeyIds.get(nameId) ? 0
+        : baseUnitQuantitiesByKey[nameId * UNIT_TYPES + type.ordinal()];
+  }
+  
+  /**
+   * Copies the running totals of the unit types of a key.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary}.
+   * @return The quantities in base units indexed by type, or null if there are no rows.
+   */
+  @Override
+  long[] copyBaseUnitQuantities(int nameId) {
+    NameDictionary.keyOf(nameId); // Throws for an id that no name has
+    return !presentKeyIds.get(nameId) ? null : Arrays.copyOfRange(baseUnitQuantitiesByKey,
+        nameId * UNIT_TYPES, (nameId + 1) * UNIT_TYPES);
+  }
+  
+  /**
+   * Copies the running totals of every key.
+   *
+   * @return A snapshot of the quantities in the base unit of each type.
+   */
+  @Override
+  QuantitySnapshot snapshotQuantities() {
+    Map<Integer, long[]> quantities = new HashMap<>();
+    for (int keyId = presentKeyIds.nextSetBit(0); keyId >= 0;
+        keyId = presentKeyIds.nextSetBit(keyId + 1)) {
+      quantities.put(keyId, Arrays.copyOfRange(baseUnitQuantitiesByKey,
+          keyId * UNIT_TYPES, (keyId + 1) * UNIT_TYPES));
+    }
+    return new QuantitySnapshot(quantities, getDensityTable());
+  }
+  
+  /**
+   * Retrieves the normalized names of the ingredients in the storage.
+   *
+   * @return An unmodifiable view of the names.
+   */
+  @Override
+  public Set<String> getIngredientKeys() {
+    return Collections.unmodifiableSet(presentKeys);
+  }
+  
+  /**
+   * Retrieves the name ids of the ingredients in the storage.
+   *
+   * @return The ids of the keys that have batches.
+   */
+  @Override
+  int[] getIngredientNameIds() {
+    return presentKeyIds.stream().toArray();
+  }
+  
+  /**
+   * Checks if the storage has no batches.
+   *
+   * @return True if there are no live rows, false otherwise.
+   */
+  @Override
+  public boolean isEmpty() {
+    return liveRowCount == 0;
+  }
+  
+  /**
+   * Prints the batches of the storage sorted alphabetically by name.
+   */
+  @Override
+  public void getFoodStorageAlphabetically() {
+    presentKeys.stream()
+        .sorted(String.CASE_INSENSITIVE_ORDER)
+        .forEach(key -> {
+          int keyId = NameDictionary.find(key);
+          List<Ingredient> sortedBatches = materializeKey(keyId);
+          if (sortedBatches.size() > 1) {
+            System.out.println(sortedBatches.getFirst().getName()
+                + " (Quantity: " + totalQuantityOf(keyId) + "):");
+            sortedBatches.forEach(ingredient -> System.out.println("- " + ingredient));
+          } else {
+            System.out.println(sortedBatches.getFirst());
+          }
+        });
+  }
+  
+  /**
+   * Creates a string with every batch in the storage.
+   *
+   * @return The batches of the storage as a string.
+   */
+  @Override
+  public String toString() {
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append("Ingredients in storage:\n");
+    for (int keyId = presentKeyIds.nextSetBit(0); keyId >= 0;
+        keyId = presentKeyIds.nextSetBit(keyId + 1)) {
+      materializeKey(keyId).forEach(ingredient ->
+          stringBuilder.append("  - ").append(ingredient).append("\n"));
+    }
+    return stringBuilder.toString();
+  }
+}
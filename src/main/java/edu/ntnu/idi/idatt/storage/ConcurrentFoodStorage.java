@@ -0,0 +1,121 @@
+package edu.ntnu.idi.idatt.storage;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * A {@link FoodStorage} that can be used by several threads at the same time,
+ * for example by several terminals or scanners.
+ *
+ * <p>The batches of each ingredient name are guarded by one of a fixed number of locks
+ * (lock striping). The stripe of a name is picked from the hash of its normalized key, so
+ * operations on names in different stripes run in parallel without a global lock, while two
+ * operations on the same name always take the same lock. A removal therefore checks the
+ * available quantity and consumes it as one step, and can never over-consume.</p>
+ *
+ * <p>Cooking a recipe locks the stripes of all its ingredients, in the order of the stripe
+ * index, before checking and taking any of them.</p>
+ *
+ * @author TriLe
+ */
+public class ConcurrentFoodStorage extends FoodStorage {
+  private static final int DEFAULT_STRIPE_COUNT = 64;
+  private final ReentrantLock[] stripes;
+  
+  /**
+   * Constructs an empty storage with the default number of lock stripes.
+   */
+  public ConcurrentFoodStorage() {
+    this(DEFAULT_STRIPE_COUNT);
+  }
+  
+  /**
+   * Constructs an empty storage with the given number of lock stripes.
+   * The number is rounded up to the nearest power of two.
+   *
+   * @param stripeCount the number of locks to spread the ingredient names over
+   * @throws IllegalArgumentException if the stripe count is not positive
+   */
+  public ConcurrentFoodStorage(int stripeCount) {
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("Stripe count must be positive");
+    }
+    int size = Integer.highestOneBit(stripeCount);
+    if (size < stripeCount) {
+      size <<= 1;
+    }
+    stripes = new ReentrantLock[size];
+    for (int i = 0; i < size; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+  
+  /**
+   * Runs the action while holding the lock of the stripe the key belongs to.
+   *
+   * @param key    The normalized name of the ingredient.
+   * @param action The action to run.
+   * @param <T>    The type of the result of the action.
+   * @return The result of the action.
+   */
+  @Override
+  protected <T> T withBatchesOf(String key, Supplier<T> action) {
+    ReentrantLock lock = stripeFor(key);
+    lock.lock();
+    try {
+      return action.get();
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Runs the action while holding the locks of the stripes of all the keys.
+   * Each stripe is locked once, and always in the order of the stripe index, so two
+   * operations that need some of the same stripes can never wait for each other in a cycle.
+   *
+   * @param keys   The normalized names of the ingredients.
+   * @param action The action to run.
+   * @param <T>    The type of the result of the action.
+   * @return The result of the action.
+   */
+  @Override
+  protected <T> T withBatchesOfAll(Collection<String> keys, Supplier<T> action) {
+    int[] indexes = keys.stream().mapToInt(this::stripeIndexOf).distinct().sorted().toArray();
+    int locked = 0;
+    try {
+      for (int index : indexes) {
+        stripes[index].lock();
+        locked++;
+      }
+      return action.get();
+    } finally {
+      for (int i = locked - 1; i >= 0; i--) {
+        stripes[indexes[i]].unlock();
+      }
+    }
+  }
+  
+  /**
+   * Finds the lock stripe of a key.
+   *
+   * @param key the normalized name of the ingredient
+   * @return the lock that guards the batches of the key
+   */
+  private ReentrantLock stripeFor(String key) {
+    return stripes[stripeIndexOf(key)];
+  }
+  
+  /**
+   * Finds the index of the lock stripe of a key.
+   *
+   * @param key the normalized name of the ingredient
+   * @return the index of the lock that guards the batches of the key
+   */
+  private int stripeIndexOf(String key) {
+    int hash = key.hashCode();
+    hash ^= hash >>> 16;
+    return hash & (stripes.length - 1);
+  }
+}
@@ -0,0 +1,183 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A materialized view of the recipes in a {@link Cookbook} that can be made with the
+ * ingredients in a {@link FoodStorage}.
+ *
+ * <p>The view is filled once when it is created, and after that it listens to changes in
+ * the food storage and the cookbook. When the stock of an ingredient changes, only the recipes
+ * that use that ingredient are checked again, so reading the cookable recipes does not
+ * depend on the size of the cookbook or the storage. When the density table of the storage
+ * changes, every recipe is checked again.</p>
+ *
+ * <p>The cookbook is not thread-safe, while a {@link ConcurrentFoodStorage} calls its
+ * listeners on whichever thread changed it. The view therefore keeps its own copy of the
+ * recipes and of the ingredients they use, updated when the cookbook tells it about added
+ * and removed recipes, and never reads the cookbook after it is created. Recipes must not
+ * be changed after they are added to the cookbook.</p>
+ *
+ * <p>The recipes are kept sorted by name. Updates are done one at a time, while reading
+ * the view can be done from any thread without locking.</p>
+ *
+ * @author TriLe
+ */
+public class CookableRecipes implements FoodStorageListener, CookbookListener {
+  private final FoodStorage foodStorage;
+  private final Set<Recipe> recipes;
+  private final Map<String, List<Recipe>> recipesByIngredient;
+  private final Set<Recipe> cookableRecipes;
+  private final Set<Recipe> cookableRecipesView;
+  
+  /**
+   * Creates an empty view that does not listen to anything yet.
+   *
+   * @param foodStorage the food storage with the ingredients
+   */
+  private CookableRecipes(FoodStorage foodStorage) {
+    this.foodStorage = foodStorage;
+    this.recipes = new LinkedHashSet<>();
+    this.recipesByIngredient = new HashMap<>();
+    this.cookableRecipes = new ConcurrentSkipListSet<>(Comparator.comparing(Recipe::getName));
+    this.cookableRecipesView = Collections.unmodifiableSet(cookableRecipes);
+  }
+  
+  /**
+   * Creates the view from the recipes in the cookbook and starts listening to the cookbook
+   * and the food storage. Must be called on the thread that changes the cookbook.
+   *
+   * @param cookbook    the cookbook with the recipes
+   * @param foodStorage the food storage with the ingredients
+   * @return the new view
+   * @throws IllegalArgumentException if the cookbook or the food storage is null
+   */
+  public static CookableRecipes create(Cookbook cookbook, FoodStorage foodStorage) {
+    if (cookbook == null) {
+      throw new IllegalArgumentException("Cookbook cannot be null");
+    }
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    CookableRecipes view = new CookableRecipes(foodStorage);
+    synchronized (view) {
+      cookbook.getRecipes().values().forEach(view::track);
+    }
+    cookbook.addListener(view);
+    foodStorage.addListener(view);
+    view.refresh();
+    return view;
+  }
+  
+  /**
+   * Retrieves the recipes that can currently be made.
+   *
+   * @return an unmodifiable, live view of the cookable recipes, sorted by name
+   */
+  public Set<Recipe> getCookableRecipes() {
+    return cookableRecipesView;
+  }
+  
+  /**
+   * Checks every recipe again.
+   */
+  public synchronized void refresh() {
+    recipes.forEach(this::evaluate);
+  }
+  
+  /**
+   * Checks the recipes that use the changed ingredient again.
+   *
+   * @param ingredientKey the normalized name of the ingredient that changed
+   */
+  @Override
+  public synchronized void ingredientChanged(String ingredientKey) {
+    recipesByIngredient.getOrDefault(ingredientKey, List.of()).forEach(this::evaluate);
+  }
+  
+  /**
+   * Checks every recipe again, since the new densities can change whether quantities of
+   * another unit type are enough.
+   */
+  @Override
+  public void densityTableChanged() {
+    refresh();
+  }
+  
+  /**
+   * Copies a newly added recipe and checks it.
+   *
+   * @param recipe the recipe that was added
+   */
+  @Override
+  public synchronized void recipeAdded(Recipe recipe) {
+    track(recipe);
+    evaluate(recipe);
+  }
+  
+  /**
+   * Removes a recipe that is no longer in the cookbook from the view.
+   *
+   * @param recipe the recipe that was removed
+   */
+  @Override
+  public synchronized void recipeRemoved(Recipe recipe) {
+    if (recipes.remove(recipe)) {
+      keysOf(recipe).forEach(key -> recipesByIngredient.computeIfPresent(key,
+          (k, recipesUsingKey) -> recipesUsingKey.remove(recipe) && recipesUsingKey.isEmpty()
+              ? null : recipesUsingKey));
+    }
+    cookableRecipes.remove(recipe);
+  }
+  
+  /**
+   * Adds a recipe to the copy of the recipes and of the ingredients they use.
+   * Must be called while holding the lock of the view.
+   *
+   * @param recipe the recipe to add
+   */
+  private void track(Recipe recipe) {
+    if (recipes.add(recipe)) {
+      keysOf(recipe).forEach(key ->
+          recipesByIngredient.computeIfAbsent(key, k -> new ArrayList<>()).add(recipe));
+    }
+  }
+  
+  /**
+   * Finds the different normalized ingredient names of a recipe.
+   *
+   * @param recipe the recipe
+   * @return the normalized names of its ingredients
+   */
+  private static Set<String> keysOf(Recipe recipe) {
+    Set<String> keys = new LinkedHashSet<>();
+    for (Ingredient ingredient : recipe.getIngredientsList()) {
+      keys.add(NameNormalizer.normalize(ingredient.getName()));
+    }
+    return keys;
+  }
+  
+  /**
+   * Adds the recipe to the view if it can be made, and removes it otherwise.
+   *
+   * @param recipe the recipe to check
+   */
+  private void evaluate(Recipe recipe) {
+    if (foodStorage.hasEnoughIngredientsForRecipe(foodStorage, recipe)) {
+      cookableRecipes.add(recipe);
+    } else {
+      cookableRecipes.remove(recipe);
+    }
+  }
+}
@@ -2,11 +2,16 @@ package edu.ntnu.idi.idatt.storage;
 
 import edu.ntnu.idi.idatt.model.Ingredient;
 import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 
 /**
@@ -14,11 +19,31 @@ import java.util.Optional;
  * It provides functionality to add, search, remove,
  * and suggest recipes based on the available ingredients in a food storage.
  * This class utilizes a {@code HashMap} to store recipes with their names as keys.
+ * The key is the name normalized by {@link NameNormalizer}, while the name as it was
+ * entered is kept in the recipe for display. Looking up, removing and checking for duplicates
+ * are therefore single hash operations that do not depend on case.
+ *
+ * <p>The cookbook also keeps an inverted index from each ingredient name to the recipes that
+ * use it, together with the number of different ingredient names in each recipe. The index is
+ * a list indexed by the id of the name in the {@link NameDictionary}, so finding the recipes
+ * of an ingredient in the storage does not hash or compare any strings. The index is built
+ * from the ingredients a recipe has when it is added to the cookbook.</p>
+ *
+ * <p>Registered {@link CookbookListener}s are told when recipes are added or removed.</p>
  *
  * @author TriLe
  */
 public class Cookbook {
+  /**
+   * The default number of recipes below which the parallel suggestion does not split the work.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
+  
   private final HashMap<String, Recipe> recipes;
+  private final ArrayList<List<Recipe>> recipesByNameId;
+  private final HashMap<Recipe, Integer> ingredientNameCounts;
+  private final List<Recipe> recipesWithoutIngredients;
+  private final List<CookbookListener> listeners;
   
   
   /**
@@ -26,16 +51,45 @@ public class Cookbook {
    */
   public Cookbook() {
     this.recipes = new HashMap<>();
+    this.recipesByNameId = new ArrayList<>();
+    this.ingredientNameCounts = new HashMap<>();
+    this.recipesWithoutIngredients = new ArrayList<>();
+    this.listeners = new ArrayList<>();
+  }
+  
+  /**
+   * Registers a listener that is told when recipes are added or removed.
+   *
+   * @param listener the listener to register
+   * @throws IllegalArgumentException if the listener is null
+   */
+  public void addListener(CookbookListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    listeners.add(listener);
+  }
+  
+  /**
+   * Removes a registered listener.
+   *
+   * @param listener the listener to remove
+   */
+  public void removeListener(CookbookListener listener) {
+    listeners.remove(listener);
   }
   
   /**
    * Retrieves all recipes in the cookbook.
    *
-   * @return a HashMap containing all recipe where
-   *        the key is the recipe name and the value is the Recipe instance.
+   * <p>The map is a read-only view, so recipes are only added and removed through the
+   * cookbook, which keeps the ingredient index and the listeners up to date.</p>
+   *
+   * @return an unmodifiable map containing all recipes where
+   *        the key is the normalized recipe name and the value is the Recipe instance.
    */
-  public HashMap<String, Recipe> getRecipes() {
-    return recipes;
+  public Map<String, Recipe> getRecipes() {
+    return Collections.unmodifiableMap(recipes);
   }
   
   /**
@@ -43,42 +97,138 @@ public class Cookbook {
    *
    * @param recipe the Recipe object to be added
    * @return true if the recipe was successfully added,
-   *        false if a recipe with the same name already exists
+   *        false if a recipe with the same name, in any case, already exists
    * @throws NullPointerException if the recipe parameter is null
    */
   public boolean addRecipeToCookbook(Recipe recipe) {
     if (recipe == null) {
       throw new IllegalArgumentException("Recipe cannot be null");
     }
+    listeners.forEach(CookbookListener::beforeRecipesChange);
     
-    if (recipes.containsKey(recipe.getName())) {
+    if (recipes.putIfAbsent(NameNormalizer.normalize(recipe.getName()), recipe) != null) {
       return false;
     }
-    recipes.put(recipe.getName(), recipe);
+    indexIngredients(recipe);
+    listeners.forEach(listener -> listener.recipeAdded(recipe));
     return true;
   }
   
+  /**
+   * Finds the different ingredient name ids of a recipe.
+   *
+   * @param recipe the recipe to get the name ids of
+   * @return the different name ids
+   */
+  private int[] ingredientNameIdsOf(Recipe recipe) {
+    return recipe.getIngredientsList().stream()
+        .mapToInt(Ingredient::getNameId)
+        .distinct()
+        .toArray();
+  }
+  
+  /**
+   * Retrieves the recipes in the index for a name id.
+   *
+   * @param nameId the id of the ingredient name
+   * @return the recipes using the name, or {@code null} if there are none
+   */
+  private List<Recipe> recipesUsingNameId(int nameId) {
+    return nameId >= 0 && nameId < recipesByNameId.size() ? recipesByNameId.get(nameId) : null;
+  }
+  
+  /**
+   * Adds a recipe to the inverted ingredient index.
+   *
+   * @param recipe the recipe to index
+   */
+  private void indexIngredients(Recipe recipe) {
+    int[] nameIds = ingredientNameIdsOf(recipe);
+    if (nameIds.length == 0) {
+      recipesWithoutIngredients.add(recipe);
+      return;
+    }
+    for (int nameId : nameIds) {
+      while (recipesByNameId.size() <= nameId) {
+        recipesByNameId.add(null);
+      }
+      if (recipesByNameId.get(nameId) == null) {
+        recipesByNameId.set(nameId, new ArrayList<>());
+      }
+      recipesByNameId.get(nameId).add(recipe);
+    }
+    ingredientNameCounts.put(recipe, nameIds.length);
+  }
+  
+  /**
+   * Removes a recipe from the inverted ingredient index.
+   *
+   * @param recipe the recipe to remove from the index
+   */
+  private void unindexIngredients(Recipe recipe) {
+    if (ingredientNameCounts.remove(recipe) == null) {
+      recipesWithoutIngredients.remove(recipe);
+      return;
+    }
+    for (int nameId : ingredientNameIdsOf(recipe)) {
+      List<Recipe> recipesUsingName = recipesUsingNameId(nameId);
+      if (recipesUsingName != null) {
+        recipesUsingName.remove(recipe);
+        if (recipesUsingName.isEmpty()) {
+          recipesByNameId.set(nameId, null);
+        }
+      }
+    }
+  }
+  
+  /**
+   * Retrieves the recipes that use an ingredient.
+   *
+   * @param ingredientName the name of the ingredient, in any case
+   * @return an unmodifiable list of the recipes using the ingredient, empty if there are none
+   */
+  public List<Recipe> getRecipesUsingIngredient(String ingredientName) {
+    List<Recipe> recipesUsingIngredient =
+        recipesUsingNameId(NameDictionary.find(ingredientName));
+    return recipesUsingIngredient == null
+        ? List.of() : Collections.unmodifiableList(recipesUsingIngredient);
+  }
+  
+  /**
+   * Checks if the cookbook has a recipe with the given name.
+   *
+   * @param nameRecipe the name of the recipe, in any case
+   * @return true if a recipe with the name exists, false otherwise
+   * @throws IllegalArgumentException if the name is null
+   */
+  public boolean containsRecipe(String nameRecipe) {
+    if (nameRecipe == null) {
+      throw new IllegalArgumentException("Recipe name cannot be null");
+    }
+    return recipes.containsKey(NameNormalizer.normalize(nameRecipe));
+  }
+  
   /**
    * Searches for a recipe in the cookbook by its name.
    * Chatgpt gave me the idea of implementing Optional type
    *
-   * @param nameRecipe the name of the recipe to search for.
+   * @param nameRecipe the name of the recipe to search for, in any case.
    * @return an Optional containing the matching recipe entry if found,
-   *        or an empty Optional if not found.
+   *        or an empty Optional if not found. The key of the entry is the recipe name
+   *        as it was entered.
    */
   public Optional<Map.Entry<String, Recipe>> searchForRecipeInCookbook(String nameRecipe) {
     if (nameRecipe == null) {
       throw new IllegalArgumentException("Recipe name cannot be null");
     }
-    return recipes.entrySet().stream()
-        .filter(entry -> entry.getKey().equalsIgnoreCase(nameRecipe))
-        .findFirst();
+    return Optional.ofNullable(recipes.get(NameNormalizer.normalize(nameRecipe)))
+        .map(recipe -> Map.entry(recipe.getName(), recipe));
   }
   
   /**
    * Removes a recipe from the cookbook by its name.
    *
-   * @param name the name of the recipe to remove
+   * @param name the name of the recipe to remove, in any case
    * @return true if the recipe was successfully removed, false if the recipe does not exist
    * @throws NullPointerException if the name parameter is null
    */
@@ -86,13 +236,12 @@ public class Cookbook {
     if (name == null) {
       throw new IllegalArgumentException("Recipe name cannot be null");
     }
-    String keyToRemove = recipes.keySet().stream()
-        .filter(key -> key.equalsIgnoreCase(name))
-        .findFirst()
-        .orElse(null);
+    listeners.forEach(CookbookListener::beforeRecipesChange);
+    Recipe removedRecipe = recipes.remove(NameNormalizer.normalize(name));
     
-    if (keyToRemove != null) {
-      recipes.remove(keyToRemove);
+    if (removedRecipe != null) {
+      unindexIngredients(removedRecipe);
+      listeners.forEach(listener -> listener.recipeRemoved(removedRecipe));
       return true;
     }
     return false;
@@ -103,60 +252,128 @@ public class Cookbook {
    * available ingredients in the given {@code FoodStorage}.
    * A recipe is suggested if all required ingredients are
    * present in sufficient quantity in the food storage.
-   * Chatgpt helped with implementing streams logic replacing the original for loops.
+   *
+   * <p>For every ingredient name in the storage, the recipes using it are found through the
+   * inverted index and their count of matched names is increased. Only a recipe whose every
+   * ingredient name is matched gets its quantities checked, so recipes that use something the
+   * storage does not have are never looked at.</p>
    *
    * @param foodStorage the FoodStorage to compare against
    * @return a List of Recipe instances that can be made
-   * @throws NullPointerException if the foodStorage parameter is null
    */
   public List<Recipe> getSuggestedRecipes(FoodStorage foodStorage) {
     List<Recipe> suggestedRecipes = new ArrayList<>();
     
-    if (foodStorage == null || foodStorage.getIngredients() == null
-        || recipes.isEmpty()) {
+    if (foodStorage == null || recipes.isEmpty()) {
       return suggestedRecipes;
     }
+    suggestedRecipes.addAll(recipesWithoutIngredients);
     
-    Map<String, List<Ingredient>> normalizedStorage = new HashMap<>();
-    foodStorage.getIngredients().forEach((key, value) -> {
-      normalizedStorage.put(key.toLowerCase().trim(), value);
-    });
-    
-    recipes.forEach((recipeNamPlaceHolder, recipe) -> {
-      boolean canMakeRecipe = recipe.getIngredientsList().stream()
-          .allMatch(recipeIngredient -> {
-            String ingredientName = recipeIngredient.getName().toLowerCase().trim();
-            double neededQuantity = recipeIngredient.getQuantity();
-            
-            List<Ingredient> storageIngredients = normalizedStorage.get(ingredientName);
-            
-            if (storageIngredients == null || storageIngredients.isEmpty()) {
-              return false;
-            }
-            
-            double availableQuantity = storageIngredients.stream()
-                .mapToDouble(storageIngredient -> {
-                  if (!storageIngredient.getUnitMeasurement()
-                      .equals(recipeIngredient.getUnitMeasurement())) {
-                    try {
-                      return storageIngredient.getUnitMeasurement()
-                          .convertValue(storageIngredient.getQuantity(),
-                              recipeIngredient.getUnitMeasurement());
-                    } catch (IllegalArgumentException e) {
-                      return 0.0;
-                    }
-                  }
-                  return storageIngredient.getQuantity();
-                })
-                .sum();
-            
-            return availableQuantity >= neededQuantity;
-          });
-      
-      if (canMakeRecipe) {
-        suggestedRecipes.add(recipe);
+    Map<Recipe, Integer> matchedNameCounts = new HashMap<>();
+    for (int nameId : foodStorage.getIngredientNameIds()) {
+      List<Recipe> recipesUsingIngredient = recipesUsingNameId(nameId);
+      if (recipesUsingIngredient == null) {
+        continue;
+      }
+      for (Recipe recipe : recipesUsingIngredient) {
+        int matchedNames = matchedNameCounts.merge(recipe, 1, Integer::sum);
+        if (matchedNames == ingredientNameCounts.get(recipe)
+            && foodStorage.hasEnoughIngredientsForRecipe(foodStorage, recipe)) {
+          suggestedRecipes.add(recipe);
+        }
       }
-    });
+    }
     return suggestedRecipes;
   }
+  
+  /**
+   * Suggests recipes that can be prepared, checking the recipes in parallel.
+   * Uses {@link #DEFAULT_PARALLEL_THRESHOLD} as the threshold.
+   *
+   * @param foodStorage the FoodStorage to compare against
+   * @return a List of Recipe instances that can be made
+   * @see #getSuggestedRecipesInParallel(FoodStorage, int)
+   */
+  public List<Recipe> getSuggestedRecipesInParallel(FoodStorage foodStorage) {
+    return getSuggestedRecipesInParallel(foodStorage, DEFAULT_PARALLEL_THRESHOLD);
+  }
+  
+  /**
+   * Suggests recipes that can be prepared, checking the recipes in parallel.
+   *
+   * <p>The total quantities of the food storage are first copied into an immutable snapshot.
+   * The recipes are then split in halves on the common {@link ForkJoinPool} until a part has
+   * no more than {@code parallelThreshold} recipes, and each part is checked against the
+   * snapshot on its own thread. The result contains the same recipes as
+   * {@link #getSuggestedRecipes(FoodStorage)}, in the order of {@link #getRecipes()}.</p>
+   *
+   * @param foodStorage       the FoodStorage to compare against
+   * @param parallelThreshold the largest number of recipes checked without splitting
+   * @return a List of Recipe instances that can be made
+   * @throws IllegalArgumentException if the threshold is not positive
+   */
+  public List<Recipe> getSuggestedRecipesInParallel(
+      FoodStorage foodStorage, int parallelThreshold) {
+    if (parallelThreshold <= 0) {
+      throw new IllegalArgumentException("Parallel threshold must be positive");
+    }
+    if (foodStorage == null || recipes.isEmpty()) {
+      return new ArrayList<>();
+    }
+    Recipe[] allRecipes = recipes.values().toArray(new Recipe[0]);
+    return ForkJoinPool.commonPool().invoke(new FeasibilityTask(
+        foodStorage.snapshotQuantities(), allRecipes, 0, allRecipes.length, parallelThreshold));
+  }
+  
+  /**
+   * Task that finds the recipes in a range of an array that can be made from a snapshot.
+   */
+  private static final class FeasibilityTask extends RecursiveTask<List<Recipe>> {
+    private static final long serialVersionUID = 1L;
+    
+    private final transient QuantitySnapshot snapshot;
+    private final transient Recipe[] recipes;
+    private final int from;
+    private final int to;
+    private final int threshold;
+    
+    /**
+     * Constructs a task for the recipes from {@code from} (inclusive) to {@code to} (exclusive).
+     *
+     * @param snapshot  the quantities to check against
+     * @param recipes   the recipes to check
+     * @param from      the first index to check
+     * @param to        the index after the last to check
+     * @param threshold the largest range checked without splitting
+     */
+    FeasibilityTask(QuantitySnapshot snapshot, Recipe[] recipes, int from, int to,
+        int threshold) {
+      this.snapshot = snapshot;
+      this.recipes = recipes;
+      this.from = from;
+      this.to = to;
+      this.threshold = threshold;
+    }
+    
+    @Override
+    protected List<Recipe> compute() {
+      if (to - from <= threshold) {
+        List<Recipe> cookable = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+          if (snapshot.hasEnoughIngredientsForRecipe(recipes[i])) {
+            cookable.add(recipes[i]);
+          }
+        }
+        return cookable;
+      }
+      int middle = (from + to) >>> 1;
+      FeasibilityTask left = new FeasibilityTask(snapshot, recipes, from, middle, threshold);
+      FeasibilityTask right = new FeasibilityTask(snapshot, recipes, middle, to, threshold);
+      left.fork();
+      List<Recipe> cookable = right.compute();
+      List<Recipe> result = left.join();
+      result.addAll(cookable);
+      return result;
+    }
+  }
 }
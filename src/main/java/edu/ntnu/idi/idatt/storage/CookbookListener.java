@@ -0,0 +1,33 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Recipe;
+
+/**
+ * Listener that is told when recipes are added to or removed from a {@link Cookbook}.
+ *
+ * @author TriLe
+ */
+public interface CookbookListener {
+  
+  /**
+   * Called before a recipe is added to or removed from the cookbook. A listener that could
+   * not record the change throws to reject it while the cookbook is still unchanged.
+   * Does nothing by default.
+   */
+  default void beforeRecipesChange() {
+  }
+  
+  /**
+   * Called after a recipe has been added to the cookbook.
+   *
+   * @param recipe the recipe that was added
+   */
+  void recipeAdded(Recipe recipe);
+  
+  /**
+   * Called after a recipe has been removed from the cookbook.
+   *
+   * @param recipe the recipe that was removed
+   */
+  void recipeRemoved(Recipe recipe);
+}
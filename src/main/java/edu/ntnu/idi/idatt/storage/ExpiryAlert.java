@@ -0,0 +1,18 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+
+/**
+ * An alert that a batch expires within the horizon of an {@link ExpiryAlertPublisher}.
+ *
+ * <p>The alert is sent once when the batch crosses the horizon, and when a batch is added
+ * that is already inside it. For an added batch that was merged into an existing batch, the
+ * ingredient is the added part.</p>
+ *
+ * @param ingredient  the batch that expires soon
+ * @param horizonDays the horizon, in days, that the batch is inside
+ * @param daysLeft    the number of days until the batch expires, negative if it has expired
+ * @author TriLe
+ */
+public record ExpiryAlert(Ingredient ingredient, int horizonDays, long daysLeft) {
+}
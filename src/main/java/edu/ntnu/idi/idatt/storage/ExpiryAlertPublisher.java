@@ -0,0 +1,357 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pushes {@link ExpiryAlert}s about the batches in a {@link FoodStorage} to subscribers.
+ *
+ * <p>Every horizon, a number of days, has its own {@link Flow.Publisher}. A batch is inside
+ * the horizon when it expires within that many days. An alert is sent when a batch crosses
+ * the horizon as the days pass, and when a batch is added that is already inside it. Batches
+ * already inside the horizon when it is first asked for are not announced, and subscribers
+ * only get the alerts sent after they subscribe.</p>
+ *
+ * <p>Every subscriber has its own buffer of at most the given number of alerts, and gets
+ * alerts as fast as it requests them. Alerts are handed over without waiting, so a slow
+ * subscriber never holds up changes to the storage: when its buffer is full, the alert is
+ * dropped for that subscriber only and counted in {@link #getDroppedCount()}.</p>
+ *
+ * <p>The storage tells the publisher about added batches while it holds its own locks, so
+ * added batches are only put in a queue there. The queue is emptied on the executor, and by
+ * {@link #advance()} when it is done, by whichever of them gets the lock of the publisher
+ * first. A writer never waits for that lock, so it is never held up by a check of the
+ * horizons.</p>
+ *
+ * <p>A daemon thread checks the horizons right after midnight, in the time zone of the
+ * {@link Clock}. All methods can be called from any thread.</p>
+ *
+ * @author TriLe
+ */
+public class ExpiryAlertPublisher implements FoodStorageListener, AutoCloseable {
+  /**
+   * The default number of alerts each subscriber can have waiting.
+   */
+  public static final int DEFAULT_BUFFER_CAPACITY = Flow.defaultBufferSize();
+  
+  private final FoodStorage foodStorage;
+  private final Clock clock;
+  private final Executor executor;
+  private final int bufferCapacity;
+  private final Map<Integer, Horizon> horizons;
+  private final LongAdder droppedCount;
+  private final ReentrantLock lock;
+  private final ConcurrentLinkedQueue<Ingredient> added;
+  private final AtomicBoolean drainScheduled;
+  private ScheduledExecutorService scheduler;
+  private long currentDay;
+  private volatile boolean closed;
+  
+  /**
+   * The publisher of one horizon and how far it has been checked.
+   */
+  private static final class Horizon {
+    private final int days;
+    private final SubmissionPublisher<ExpiryAlert> publisher;
+    private final Set<Ingredient> lastCrossed;
+    private long checkedUntil;
+    
+    Horizon(int days, SubmissionPublisher<ExpiryAlert> publisher, long checkedUntil) {
+      this.days = days;
+      this.publisher = publisher;
+      this.lastCrossed = Collections.newSetFromMap(new IdentityHashMap<>());
+      this.checkedUntil = checkedUntil;
+    }
+  }
+  
+  /**
+   * Creates the publisher without listening to the storage yet.
+   *
+   * @param foodStorage    the food storage to watch
+   * @param clock          the clock that decides the current day
+   * @param executor       the executor that delivers the alerts to the subscribers
+   * @param bufferCapacity the number of alerts each subscriber can have waiting
+   */
+  private ExpiryAlertPublisher(FoodStorage foodStorage, Clock clock, Executor executor,
+      int bufferCapacity) {
+    this.foodStorage = foodStorage;
+    this.clock = clock;
+    this.executor = executor;
+    this.bufferCapacity = bufferCapacity;
+    this.horizons = new TreeMap<>();
+    this.droppedCount = new LongAdder();
+    this.lock = new ReentrantLock();
+    this.added = new ConcurrentLinkedQueue<>();
+    this.drainScheduled = new AtomicBoolean();
+    this.currentDay = LocalDate.now(clock).toEpochDay();
+  }
+  
+  /**
+   * Creates a publisher with the default buffer size, delivering alerts on the
+   * common fork-join pool, and starts listening to the storage.
+   *
+   * @param foodStorage the food storage to watch
+   * @param clock       the clock that decides the current day
+   * @return the new publisher
+   * @throws IllegalArgumentException if the food storage or the clock is null
+   */
+  public static ExpiryAlertPublisher create(FoodStorage foodStorage, Clock clock) {
+    return create(foodStorage, clock, ForkJoinPool.commonPool(), DEFAULT_BUFFER_CAPACITY);
+  }
+  
+  /**
+   * Creates a publisher and starts listening to the storage.
+   * The thread that checks the horizons is not started until {@link #start()} is called.
+   *
+   * @param foodStorage    the food storage to watch
+   * @param clock          the clock that decides the current day
+   * @param executor       the executor that delivers the alerts to the subscribers
+   * @param bufferCapacity the number of alerts each subscriber can have waiting
+   * @return the new publisher
+   * @throws IllegalArgumentException if the food storage, the clock or the executor is null,
+   *                                  or the buffer capacity is not positive
+   */
+  public static ExpiryAlertPublisher create(FoodStorage foodStorage, Clock clock,
+      Executor executor, int bufferCapacity) {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock cannot be null");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor cannot be null");
+    }
+    if (bufferCapacity <= 0) {
+      throw new IllegalArgumentException("Buffer capacity must be positive");
+    }
+    ExpiryAlertPublisher alertPublisher =
+        new ExpiryAlertPublisher(foodStorage, clock, executor, bufferCapacity);
+    foodStorage.addListener(alertPublisher);
+    return alertPublisher;
+  }
+  
+  /**
+   * Retrieves the publisher of the alerts for a horizon.
+   * Every call with the same horizon gives the same publisher.
+   *
+   * @param days the number of days before expiry to be alerted
+   * @return the publisher of the alerts for the horizon
+   * @throws IllegalArgumentException if the number of days is negative
+   * @throws IllegalStateException if the publisher has been closed
+   */
+  public Flow.Publisher<ExpiryAlert> expiringWithin(int days) {
+    if (days < 0) {
+      throw new IllegalArgumentException("Horizon cannot be negative");
+    }
+    lock.lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Expiry alert publisher is closed");
+      }
+      return horizons.computeIfAbsent(days, d -> new Horizon(d,
+          new SubmissionPublisher<>(executor, bufferCapacity), currentDay + d + 1)).publisher;
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Starts the daemon thread that checks the horizons at the start of every day.
+   * Calling it again has no effect.
+   */
+  public void start() {
+    lock.lock();
+    try {
+      if (scheduler != null || closed) {
+        return;
+      }
+      scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expiry-alerts");
+        thread.setDaemon(true);
+        return thread;
+      });
+      scheduleNextCheck();
+    } finally {
+      lock.unlock();
+    }
+  }
+  
+  /**
+   * Schedules a check at the start of the next day, in the time zone of the clock.
+   */
+  private void scheduleNextCheck() {
+    Duration untilTomorrow = Duration.between(clock.instant(),
+        LocalDate.now(clock).plusDays(1).atStartOfDay(clock.getZone()));
+    scheduler.schedule(() -> {
+      advance();
+      lock.lock();
+      try {
+        if (!scheduler.isShutdown()) {
+          scheduleNextCheck();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }, Math.max(0, untilTomorrow.toMillis()), TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Moves every horizon forward to today, according to the clock, and sends an alert for
+   * every batch that crossed it since the last check. Each horizon only reads the days
+   * that have come inside it since then. The batches added meanwhile are announced when
+   * the check is done.
+   */
+  public void advance() {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      currentDay = Math.max(currentDay, LocalDate.now(clock).toEpochDay());
+      for (Horizon horizon : horizons.values()) {
+        long until = currentDay + horizon.days + 1;
+        if (until <= horizon.checkedUntil) {
+          continue;
+        }
+        horizon.lastCrossed.clear();
+        for (Ingredient batch : foodStorage.getIngredientsExpiringBetween(
+            LocalDate.ofEpochDay(horizon.checkedUntil), LocalDate.ofEpochDay(until))) {
+          horizon.lastCrossed.add(batch);
+          publish(horizon, batch);
+        }
+        horizon.checkedUntil = until;
+      }
+    } finally {
+      lock.unlock();
+    }
+    drainAdded();
+  }
+  
+  /**
+   * Puts an added batch in the queue and has the queue emptied on the executor.
+   * Never waits for the lock of the publisher.
+   *
+   * @param ingredient the ingredient that was added
+   */
+  @Override
+  public void ingredientAdded(Ingredient ingredient) {
+    if (closed || ingredient.getExpirationDate() == null) {
+      return;
+    }
+    added.add(ingredient);
+    if (drainScheduled.compareAndSet(false, true)) {
+      executor.execute(() -> {
+        drainScheduled.set(false);
+        drainAdded();
+      });
+    }
+  }
+  
+  /**
+   * Announces the batches in the queue if the lock of the publisher is free. When it is
+   * not, the thread holding it empties the queue after releasing it.
+   */
+  private void drainAdded() {
+    while (!added.isEmpty() && lock.tryLock()) {
+      try {
+        Ingredient batch;
+        while ((batch = added.poll()) != null) {
+          if (!closed) {
+            announceAdded(batch);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+  
+  /**
+   * Sends an alert for an added batch to every horizon it is already inside.
+   * A batch that was just announced by {@link #advance()} is not announced again.
+   * Must be called while holding the lock of the publisher.
+   *
+   * @param batch the batch that was added
+   */
+  private void announceAdded(Ingredient batch) {
+    long day = batch.getExpirationDate().toEpochDay();
+    for (Horizon horizon : horizons.values()) {
+      if (day < horizon.checkedUntil && !horizon.lastCrossed.contains(batch)) {
+        publish(horizon, batch);
+      }
+    }
+  }
+  
+  /**
+   * Does nothing, as the alerts are sent when a batch is added.
+   *
+   * @param ingredientKey the normalized name of the ingredient that changed
+   */
+  @Override
+  public void ingredientChanged(String ingredientKey) {
+  }
+  
+  /**
+   * Hands an alert to the subscribers of a horizon without waiting.
+   * The alert is dropped for every subscriber whose buffer is full.
+   *
+   * @param horizon the horizon the batch is inside
+   * @param batch   the batch to send an alert for
+   */
+  private void publish(Horizon horizon, Ingredient batch) {
+    long daysLeft = batch.getExpirationDate().toEpochDay() - currentDay;
+    horizon.publisher.offer(new ExpiryAlert(batch, horizon.days, daysLeft),
+        (subscriber, alert) -> {
+          droppedCount.increment();
+          return false;
+        });
+  }
+  
+  /**
+   * Retrieves the number of alerts that were dropped because the buffer of a
+   * subscriber was full. An alert dropped for several subscribers is counted once for each.
+   *
+   * @return the number of dropped alerts
+   */
+  public long getDroppedCount() {
+    return droppedCount.sum();
+  }
+  
+  /**
+   * Stops the thread, stops listening to the storage and completes every subscriber.
+   */
+  @Override
+  public void close() {
+    foodStorage.removeListener(this);
+    lock.lock();
+    try {
+      closed = true;
+      added.clear();
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+      }
+      horizons.values().forEach(horizon -> horizon.publisher.close());
+    } finally {
+      lock.unlock();
+    }
+  }
+}
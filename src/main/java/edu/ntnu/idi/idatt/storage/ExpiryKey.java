@@ -0,0 +1,62 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Unit;
+import java.time.LocalDate;
+
+/**
+ * The key of a batch in the expiration date index of {@link FoodStorage}.
+ *
+ * <p>Keys are ordered by expiration date first. Name, price and unit type only break ties,
+ * which makes the key of every stored batch unique, because batches with the same name,
+ * date, price and unit type are merged into one batch when they are added. Batches of
+ * different unit types are never merged, so the type is part of the key.</p>
+ *
+ * @param expirationDate the expiration date of the batch
+ * @param name           the name of the batch
+ * @param price          the price of the batch in minor units
+ * @param type           the unit type of the quantity of the batch
+ * @author TriLe
+ */
+record ExpiryKey(LocalDate expirationDate, String name, long price, Unit.UnitType type)
+    implements Comparable<ExpiryKey> {
+  
+  /**
+   * Creates the key of a batch. The batch must have an expiration date.
+   *
+   * @param batch the batch to create the key for
+   * @return the key of the batch
+   */
+  static ExpiryKey of(Ingredient batch) {
+    return new ExpiryKey(batch.getExpirationDate(), batch.getName(),
+        batch.getPriceMinorUnits(), batch.getUnitMeasurement().getType());
+  }
+  
+  /**
+   * Creates a key that is ordered before every batch that expires on the given date,
+   * and after every batch that expires earlier. Used as a bound for range queries.
+   *
+   * @param date the date to create the bound for
+   * @return the lowest key for the date
+   */
+  static ExpiryKey startOf(LocalDate date) {
+    return new ExpiryKey(date, "", Long.MIN_VALUE, Unit.UnitType.values()[0]);
+  }
+  
+  @Override
+  public int compareTo(ExpiryKey other) {
+    int byDate = expirationDate.compareTo(other.expirationDate);
+    if (byDate != 0) {
+      return byDate;
+    }
+    int byName = name.compareTo(other.name);
+    if (byName != 0) {
+      return byName;
+    }
+    int byPrice = Long.compare(price, other.price);
+    if (byPrice != 0) {
+      return byPrice;
+    }
+    return type.compareTo(other.type);
+  }
+}
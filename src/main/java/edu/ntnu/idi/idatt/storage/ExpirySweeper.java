@@ -0,0 +1,290 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the batches in a {@link FoodStorage} that have expired.
+ *
+ * <p>Batches with an expiration date are put in a bucket for their day. The buckets of the
+ * next {@value #WHEEL_DAYS} days form a timing wheel: an array where the bucket of a day is
+ * found with {@code epochDay % WHEEL_DAYS}. Batches further ahead wait in an overflow map and
+ * are moved onto the wheel as the days pass. At every new day the bucket of yesterday is moved
+ * to the expired batches, so reading the expired batches and their value only looks at
+ * batches that have expired and never goes through the whole storage.</p>
+ *
+ * <p>A daemon thread sweeps the wheel right after midnight, in the time zone of the
+ * {@link Clock}. Reading also sweeps first, so the result is correct even if the thread
+ * is late. The sweeper listens to the storage and places the batches of an ingredient
+ * again when it changes. All methods can be called from any thread.</p>
+ *
+ * @author TriLe
+ */
+public class ExpirySweeper implements FoodStorageListener, AutoCloseable {
+  /**
+   * The number of days on the timing wheel.
+   */
+  static final int WHEEL_DAYS = 64;
+  
+  private static final Comparator<Ingredient> BY_EXPIRY = Comparator
+      .comparing(Ingredient::getExpirationDate)
+      .thenComparing(Ingredient::getName)
+      .thenComparingLong(Ingredient::getPriceMinorUnits);
+  
+  private final FoodStorage foodStorage;
+  private final Clock clock;
+  private final List<Map<String, List<Ingredient>>> wheel;
+  private final TreeMap<Long, Map<String, List<Ingredient>>> overflow;
+  private final Map<String, List<Ingredient>> batchesByKey;
+  private final Map<String, List<Ingredient>> expiredByKey;
+  private ScheduledExecutorService scheduler;
+  private long currentDay;
+  private long expiredValue;
+  private int expiredCount;
+  
+  /**
+   * Creates an empty sweeper that does not listen to the storage yet.
+   *
+   * @param foodStorage the food storage to watch
+   * @param clock       the clock that decides the current day
+   */
+  private ExpirySweeper(FoodStorage foodStorage, Clock clock) {
+    this.foodStorage = foodStorage;
+    this.clock = clock;
+    this.wheel = new ArrayList<>(WHEEL_DAYS);
+    for (int i = 0; i < WHEEL_DAYS; i++) {
+      wheel.add(new HashMap<>());
+    }
+    this.overflow = new TreeMap<>();
+    this.batchesByKey = new HashMap<>();
+    this.expiredByKey = new HashMap<>();
+    this.currentDay = LocalDate.now(clock).toEpochDay();
+  }
+  
+  /**
+   * Creates a sweeper, places the batches in the storage and starts listening to it.
+   * The sweeper thread is not started until {@link #start()} is called, and the sweeper
+   * must be {@link #close() closed} to stop listening to the storage.
+   *
+   * @param foodStorage the food storage to watch
+   * @param clock       the clock that decides the current day
+   * @return the new sweeper
+   * @throws IllegalArgumentException if the food storage or the clock is null
+   */
+  public static ExpirySweeper create(FoodStorage foodStorage, Clock clock) {
+    if (foodStorage == null) {
+      throw new IllegalArgumentException("Food storage cannot be null");
+    }
+    if (clock == null) {
+      throw new IllegalArgumentException("Clock cannot be null");
+    }
+    ExpirySweeper sweeper = new ExpirySweeper(foodStorage, clock);
+    synchronized (sweeper) {
+      foodStorage.addListener(sweeper);
+      foodStorage.getIngredients().forEach(sweeper::placeAll);
+    }
+    return sweeper;
+  }
+  
+  /**
+   * Starts the daemon thread that sweeps the wheel at the start of every day.
+   * Calling it again has no effect.
+   */
+  public synchronized void start() {
+    if (scheduler != null) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "expiry-sweeper");
+      thread.setDaemon(true);
+      return thread;
+    });
+    scheduleNextSweep();
+  }
+  
+  /**
+   * Schedules a sweep at the start of the next day, in the time zone of the clock.
+   * The time is worked out again for every day, since not every day is 24 hours long.
+   */
+  private void scheduleNextSweep() {
+    Duration untilTomorrow = Duration.between(clock.instant(),
+        LocalDate.now(clock).plusDays(1).atStartOfDay(clock.getZone()));
+    scheduler.schedule(() -> {
+      sweep();
+      synchronized (this) {
+        if (!scheduler.isShutdown()) {
+          scheduleNextSweep();
+        }
+      }
+    }, Math.max(0, untilTomorrow.toMillis()), TimeUnit.MILLISECONDS);
+  }
+  
+  /**
+   * Moves the batches of every day before today, according to the clock, to the expired
+   * batches. Only the days that have passed since the last sweep are looked at.
+   */
+  public synchronized void sweep() {
+    long today = LocalDate.now(clock).toEpochDay();
+    while (currentDay < today) {
+      Map<String, List<Ingredient>> bucket = wheel.get(slotOf(currentDay));
+      bucket.forEach((key, batches) -> batches.forEach(batch -> expire(key, batch)));
+      bucket.clear();
+      currentDay++;
+      Map<String, List<Ingredient>> arriving = overflow.remove(currentDay + WHEEL_DAYS - 1);
+      if (arriving != null) {
+        wheel.get(slotOf(currentDay + WHEEL_DAYS - 1)).putAll(arriving);
+      }
+    }
+  }
+  
+  /**
+   * Retrieves the expired batches.
+   *
+   * @return a new list of the expired batches, sorted by expiration date
+   */
+  public synchronized List<Ingredient> getExpiredIngredients() {
+    sweep();
+    List<Ingredient> expired = new ArrayList<>(expiredCount);
+    expiredByKey.values().forEach(expired::addAll);
+    expired.sort(BY_EXPIRY);
+    return expired;
+  }
+  
+  /**
+   * Retrieves the total value of the expired batches.
+   *
+   * @return the sum of the prices of the expired batches
+   */
+  public double getExpiredValue() {
+    return Money.toMajorUnits(getExpiredValueMinorUnits());
+  }
+  
+  /**
+   * Retrieves the exact total value of the expired batches in minor units.
+   *
+   * @return the sum of the prices of the expired batches in minor units
+   */
+  public synchronized long getExpiredValueMinorUnits() {
+    sweep();
+    return expiredValue;
+  }
+  
+  /**
+   * Places the batches of the changed ingredient again.
+   * The batches are read while holding the lock of the sweeper, so when changes to the same
+   * ingredient are reported out of order, the last one still reads the newest batches.
+   *
+   * @param ingredientKey the normalized name of the ingredient that changed
+   */
+  @Override
+  public synchronized void ingredientChanged(String ingredientKey) {
+    sweep();
+    removeAll(ingredientKey);
+    placeAll(ingredientKey, foodStorage.searchForIngredientsInFoodStorage(ingredientKey));
+  }
+  
+  /**
+   * Finds the slot on the wheel of a day.
+   *
+   * @param epochDay the day
+   * @return the index of the bucket of the day
+   */
+  private static int slotOf(long epochDay) {
+    return (int) Math.floorMod(epochDay, (long) WHEEL_DAYS);
+  }
+  
+  /**
+   * Puts the dated batches of an ingredient in the bucket of their day,
+   * or with the expired batches if the day has passed.
+   *
+   * @param key     the normalized name of the ingredient
+   * @param batches the batches of the ingredient
+   */
+  private void placeAll(String key, List<Ingredient> batches) {
+    List<Ingredient> placed = new ArrayList<>();
+    for (Ingredient batch : batches) {
+      if (batch.getExpirationDate() == null) {
+        continue;
+      }
+      long day = batch.getExpirationDate().toEpochDay();
+      if (day < currentDay) {
+        expire(key, batch);
+      } else if (day < currentDay + WHEEL_DAYS) {
+        wheel.get(slotOf(day)).computeIfAbsent(key, k -> new ArrayList<>()).add(batch);
+      } else {
+        overflow.computeIfAbsent(day, d -> new HashMap<>())
+            .computeIfAbsent(key, k -> new ArrayList<>()).add(batch);
+      }
+      placed.add(batch);
+    }
+    if (!placed.isEmpty()) {
+      batchesByKey.put(key, placed);
+    }
+  }
+  
+  /**
+   * Takes every batch of an ingredient out of the buckets and the expired batches.
+   *
+   * @param key the normalized name of the ingredient
+   */
+  private void removeAll(String key) {
+    List<Ingredient> placed = batchesByKey.remove(key);
+    if (placed == null) {
+      return;
+    }
+    List<Ingredient> expired = expiredByKey.remove(key);
+    if (expired != null) {
+      expired.forEach(batch -> expiredValue -= batch.getPriceMinorUnits());
+      expiredCount -= expired.size();
+    }
+    for (Ingredient batch : placed) {
+      long day = batch.getExpirationDate().toEpochDay();
+      if (day >= currentDay && day < currentDay + WHEEL_DAYS) {
+        wheel.get(slotOf(day)).remove(key);
+      } else if (day >= currentDay) {
+        Map<String, List<Ingredient>> bucket = overflow.get(day);
+        if (bucket != null) {
+          bucket.remove(key);
+          if (bucket.isEmpty()) {
+            overflow.remove(day);
+          }
+        }
+      }
+    }
+  }
+  
+  /**
+   * Adds a batch to the expired batches.
+   *
+   * @param key   the normalized name of the ingredient
+   * @param batch the batch that has expired
+   */
+  private void expire(String key, Ingredient batch) {
+    expiredByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(batch);
+    expiredValue += batch.getPriceMinorUnits();
+    expiredCount++;
+  }
+  
+  /**
+   * Stops the sweeper thread and stops listening to the storage.
+   */
+  @Override
+  public synchronized void close() {
+    foodStorage.removeListener(this);
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+}
@@ -1,51 +1,246 @@
 package edu.ntnu.idi.idatt.storage;
 
+import edu.ntnu.idi.idatt.model.DensityTable;
 import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.RateTable;
 import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.utils.InputValidator;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import edu.ntnu.idi.idatt.utils.NameNormalizer;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
  * The FoodStorage class manages a collection of Ingredient instances.
- * These instances are stored in the Arraylist that represent a value in the HashMap
+ * The instances (batches) of each name are stored in an {@link IngredientBatches} queue
+ * ordered by expiration date, which is the value in the map.
+ * The key is the name normalized by {@link NameNormalizer}, and every method that takes a name
+ * looks it up through the same normalization, so a name lookup is a single hash probe.
  * FoodStorage allows these functions:
  * Adding, removing and searching ingredients,
  * operations like checking availability for recipes and sorting ingredients.
  *
+ * <p>Besides the map from name to batches, the storage keeps a secondary index where every
+ * batch with an expiration date is ordered by that date in a skip list. Range queries on
+ * expiration dates then only visit the matching batches, and the results come out sorted.</p>
+ *
+ * <p>The total value, the number of batches and the total quantity of each name are kept
+ * as running aggregates that are updated on every add, merge and removal,
+ * so reading them does not depend on the size of the storage.</p>
+ *
+ * <p>All access to the batches of one name goes through {@link #withBatchesOf}. The structures
+ * shared between names are concurrent collections, so {@link ConcurrentFoodStorage} only has
+ * to guard {@code withBatchesOf} to make the whole storage thread-safe.</p>
+ *
+ * <p>Every change to the stock of an ingredient is reported to the registered
+ * {@link FoodStorageListener}s after the change is done.</p>
+ *
  * @author TriLe
  */
 public class FoodStorage {
-  private final HashMap<String, ArrayList<Ingredient>> ingredients;
+  private final ConcurrentHashMap<String, IngredientBatches> ingredients;
+  private final ConcurrentSkipListMap<ExpiryKey, Ingredient> expirationIndex;
+  private final LongAdder totalValue;
+  private final LongAdder batchCount;
+  private final List<FoodStorageListener> listeners;
+  private volatile DensityTable densityTable;
   
   /**
    * Constructor.
    */
   public FoodStorage() {
-    this.ingredients = new HashMap<>();
+    this.ingredients = new ConcurrentHashMap<>();
+    this.expirationIndex = new ConcurrentSkipListMap<>();
+    this.totalValue = new LongAdder();
+    this.batchCount = new LongAdder();
+    this.listeners = new CopyOnWriteArrayList<>();
+    this.densityTable = DensityTable.EMPTY;
+  }
+  
+  /**
+   * Retrieves the densities used to compare quantities given by mass and by volume.
+   *
+   * @return The density table of the storage.
+   */
+  public DensityTable getDensityTable() {
+    return densityTable;
+  }
+  
+  /**
+   * Sets the densities used to compare quantities given by mass and by volume when
+   * checking and cooking recipes. The table is immutable, so it is swapped as a whole, and
+   * the listeners are told about it after the swap.
+   *
+   * @param densityTable The new density table.
+   * @throws IllegalArgumentException if the table is null.
+   */
+  public void setDensityTable(DensityTable densityTable) {
+    if (densityTable == null) {
+      throw new IllegalArgumentException("Density table cannot be null");
+    }
+    this.densityTable = densityTable;
+    listeners.forEach(FoodStorageListener::densityTableChanged);
+  }
+  
+  /**
+   * Registers a listener that is told about changes to the stock of an ingredient.
+   *
+   * @param listener The listener to register.
+   * @throws IllegalArgumentException if the listener is null.
+   */
+  public void addListener(FoodStorageListener listener) {
+    if (listener == null) {
+      throw new IllegalArgumentException("Listener cannot be null");
+    }
+    listeners.add(listener);
+  }
+  
+  /**
+   * Removes a registered listener.
+   *
+   * @param listener The listener to remove.
+   */
+  public void removeListener(FoodStorageListener listener) {
+    listeners.remove(listener);
+  }
+  
+  /**
+   * Asks the listeners whether the storage may change, before anything is changed.
+   * A listener that cannot record the change rejects it by throwing.
+   */
+  protected void notifyBeforeChange() {
+    listeners.forEach(FoodStorageListener::beforeStockChange);
+  }
+  
+  /**
+   * Tells the listeners that the stock of an ingredient has changed.
+   * Called after the batches of the key are released.
+   *
+   * @param key The normalized name of the ingredient that changed.
+   */
+  protected void notifyIngredientChanged(String key) {
+    listeners.forEach(listener -> listener.ingredientChanged(key));
+  }
+  
+  /**
+   * Tells the listeners that an ingredient was added.
+   * Called while the batches of the ingredient are still guarded.
+   *
+   * @param ingredient The ingredient that was added.
+   */
+  protected void notifyIngredientAdded(Ingredient ingredient) {
+    listeners.forEach(listener -> listener.ingredientAdded(ingredient));
+  }
+  
+  /**
+   * Tells the listeners that a quantity was taken from a batch.
+   * Called while the batches of the ingredient are still guarded, before the batch changes.
+   *
+   * @param batch        The batch the quantity was taken from.
+   * @param baseQuantity The quantity that was taken, in base units.
+   */
+  protected void notifyBatchConsumed(Ingredient batch, long baseQuantity) {
+    notifyBatchConsumed(batch.getName(), batch.getUnitMeasurement(),
+        batch.getExpirationDate(), batch.getPriceMinorUnits(), baseQuantity);
+  }
+  
+  /**
+   * Tells the listeners that a quantity was taken from the batch with the given values.
+   * Called while the batches of the ingredient are still guarded, before the batch changes.
+   *
+   * @param name            The name of the batch.
+   * @param unit            The unit of the batch.
+   * @param expirationDate  The expiration date of the batch, or {@code null} if none.
+   * @param priceMinorUnits The price of the batch in minor units.
+   * @param baseQuantity    The quantity that was taken, in base units.
+   */
+  protected void notifyBatchConsumed(String name, Unit unit, LocalDate expirationDate,
+      long priceMinorUnits, long baseQuantity) {
+    if (listeners.isEmpty()) {
+      return;
+    }
+    Ingredient taken = Ingredient.ofExactValues(name, baseQuantity, unit, expirationDate,
+        priceMinorUnits);
+    listeners.forEach(listener -> listener.batchConsumed(taken));
+  }
+  
+  /**
+   * Runs an action that reads or changes the batches stored under one key.
+   * Every access to the batches of a key goes through this method.
+   * The default implementation runs the action directly.
+   *
+   * @param key    The normalized name of the ingredient.
+   * @param action The action to run.
+   * @param <T>    The type of the result of the action.
+   * @return The result of the action.
+   */
+  protected <T> T withBatchesOf(String key, Supplier<T> action) {
+    return action.get();
+  }
+  
+  /**
+   * Runs an action that reads or changes the batches stored under several keys at once.
+   * The batches of every key are guarded for the whole action, so other operations see
+   * either none or all of its changes. The default implementation runs the action directly.
+   *
+   * @param keys   The normalized names of the ingredients.
+   * @param action The action to run.
+   * @param <T>    The type of the result of the action.
+   * @return The result of the action.
+   */
+  protected <T> T withBatchesOfAll(Collection<String> keys, Supplier<T> action) {
+    return action.get();
+  }
+  
+  /**
+   * Copies the batches stored under a key into a list sorted by expiration date.
+   *
+   * @param key The normalized name of the ingredient.
+   * @return The sorted batches, or {@code null} if the ingredient is not in the storage.
+   */
+  private List<Ingredient> sortedBatchesOf(String key) {
+    return withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      return batches == null ? null : batches.toSortedList();
+    });
   }
   
   /**
-   * Retrieves the map of ingredients in the storage.
+   * Retrieves a snapshot of the ingredients in the storage.
+   * Changes to the storage after the call are not reflected in the snapshot.
    *
-   * @return A HashMap where the key is the ingredient name
-   *      and the value is a list of Ingredient instances.
+   * @return An unmodifiable map where the key is the ingredient name
+   *      and the value is a list of Ingredient instances sorted by expiration date.
    */
-  public HashMap<String, ArrayList<Ingredient>> getIngredients() {
-    return ingredients;
+  public Map<String, List<Ingredient>> getIngredients() {
+    Map<String, List<Ingredient>> snapshot = new HashMap<>();
+    for (String key : ingredients.keySet()) {
+      List<Ingredient> batches = sortedBatchesOf(key);
+      if (batches != null) {
+        snapshot.put(key, Collections.unmodifiableList(batches));
+      }
+    }
+    return Collections.unmodifiableMap(snapshot);
   }
   
   /**
    * Adds an ingredient to the storage. If an ingredient with the same name, expiration date,
-   * and price exists, its quantity will be updated. Otherwise, the ingredient is added.
+   * price and unit type exists, its quantity will be updated. Otherwise, the ingredient is
+   * added.
    *
    * @param ingredient The Ingredient to be added to the storage.
    * @throws IllegalArgumentException if the ingredient is null.
@@ -54,127 +249,409 @@ public class FoodStorage {
     if (ingredient == null) {
       throw new IllegalArgumentException("Ingredient cannot be null");
     }
-    ingredients.putIfAbsent(ingredient.getName().toLowerCase(), new ArrayList<>());
-    ArrayList<Ingredient> ingredientArrayList = ingredients.get(ingredient.getName().toLowerCase());
-    Optional<Ingredient> matchingIngredient = ingredientArrayList.stream()
-        .filter(existingIngredient ->
-            existingIngredient.getExpirationDate().equals(ingredient.getExpirationDate())
-                && existingIngredient.getPrice() == ingredient.getPrice())
-        .findFirst();
-    
-    if (matchingIngredient.isPresent()) {
-      matchingIngredient.get().updateQuantity(ingredient.getQuantity());
-    } else {
-      ingredientArrayList.add(ingredient);
+    notifyBeforeChange();
+    String key = NameDictionary.keyOf(ingredient.getNameId());
+    withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.computeIfAbsent(key,
+          k -> new IngredientBatches(ingredient.getNameId()));
+      Ingredient matchingIngredient = batches.findMatching(ingredient.getExpirationDate(),
+          ingredient.getPriceMinorUnits(), ingredient.getUnitMeasurement().getType());
+      
+      if (matchingIngredient != null) {
+        batches.increase(matchingIngredient, ingredient.getBaseQuantity());
+      } else {
+        batches.add(ingredient);
+        indexByExpirationDate(ingredient);
+        totalValue.add(ingredient.getPriceMinorUnits());
+        batchCount.increment();
+      }
+      notifyIngredientAdded(ingredient);
+      return null;
+    });
+    notifyIngredientChanged(key);
+  }
+  
+  /**
+   * Adds a batch to the expiration date index.
+   * Batches without an expiration date are not indexed.
+   *
+   * @param ingredient The batch to index.
+   */
+  private void indexByExpirationDate(Ingredient ingredient) {
+    if (ingredient.getExpirationDate() != null) {
+      expirationIndex.put(ExpiryKey.of(ingredient), ingredient);
+    }
+  }
+  
+  /**
+   * Removes a batch from the expiration date index.
+   *
+   * @param ingredient The batch to remove from the index.
+   */
+  private void unindexByExpirationDate(Ingredient ingredient) {
+    if (ingredient.getExpirationDate() != null) {
+      expirationIndex.remove(ExpiryKey.of(ingredient), ingredient);
     }
   }
   
+  /**
+   * Collects the batches of a range of the expiration date index into a list.
+   * The list is in the order of the index, which is by expiration date.
+   *
+   * @param range A view of the expiration date index.
+   * @return A list of the batches in the range.
+   */
+  private List<Ingredient> collectBatches(Map<ExpiryKey, Ingredient> range) {
+    return new ArrayList<>(range.values());
+  }
+  
   /**
    * Checks if an ingredient exists in the storage by name.
    * Only used in tests (User tests and foodStorageTest)
    *
-   * @param name The name of the ingredient.
+   * @param name The name of the ingredient, in any case.
    * @return true if the ingredient exists, false otherwise.
    */
   public boolean ingredientExist(String name) {
-    return ingredients.containsKey(name);
+    return ingredients.containsKey(NameNormalizer.normalize(name));
   }
   
   /**
    * Searches for ingredients in the storage by name.
    *
-   * @param nameIngredient The name of the ingredient to search for.
-   * @return A list of Ingredient instances matching the given name.
+   * @param nameIngredient The name of the ingredient to search for, in any case.
+   * @return A list of Ingredient instances matching the given name, sorted by expiration date.
    */
   public List<Ingredient> searchForIngredientsInFoodStorage(String nameIngredient) {
-    return ingredients.entrySet().stream()
-        .filter(entry -> entry.getKey().equalsIgnoreCase(nameIngredient))
-        .flatMap(entry -> entry.getValue().stream())
-        .collect(Collectors.toList());
+    List<Ingredient> batches = sortedBatchesOf(NameNormalizer.normalize(nameIngredient));
+    return batches == null ? new ArrayList<>() : batches;
+  }
+  
+  /**
+   * Removes a specified quantity of an ingredient from the storage, in the unit of its
+   * batches. See {@link #removeIngredientFromFoodStorage(String, double, Unit)}.
+   *
+   * @param name     The name of the ingredient to remove, in any case.
+   * @param quantity The quantity to remove, in the unit of the batches.
+   * @return The actual quantity removed.
+   * @throws IllegalArgumentException if the ingredient does not exist, if its batches have
+   *                                  more than one unit type, or if the quantity exceeds
+   *                                  availability.
+   */
+  public double removeIngredientFromFoodStorage(String name, double quantity) {
+    return removeIngredientFromFoodStorage(name, quantity,
+        getOnlyUnitOf(NameNormalizer.normalize(name)));
+  }
+  
+  /**
+   * Finds the unit to remove an ingredient in when no unit is given, which is the unit of
+   * its first batch when all its batches have the same unit type.
+   *
+   * @param key The normalized name of the ingredient.
+   * @return The unit of the first batch of the ingredient.
+   * @throws IllegalArgumentException if the ingredient does not exist,
+   *                                  or if its batches have more than one unit type.
+   */
+  protected Unit getOnlyUnitOf(String key) {
+    return withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      if (batches == null || batches.isEmpty()) {
+        throw new IllegalArgumentException("Ingredient " + key + " does not exist in storage.");
+      }
+      Unit.UnitType type = batches.getOnlyUnitType();
+      if (type == null) {
+        throw new IllegalArgumentException("Ingredient " + key
+            + " is stored in more than one unit type, so the unit must be given.");
+      }
+      return batches.peekFirst(type).getUnitMeasurement();
+    });
   }
   
   /**
    * Removes a specified quantity of an ingredient from the storage.
    *
-   * <p>If the Ingredient exists in the map and if the Ingredient's quantity is greater
-   * than the amount to remove, then reduce the Ingredient's quantity
-   * If the quantity is less than or equal to the amount to remove,
-   * remove the Ingredient from the map.</p>
+   * <p>The quantity is taken from the batch that expires first (FIFO).
+   * If that batch has more than the amount left to remove, its quantity is reduced.
+   * Otherwise, the whole batch is removed and the rest is taken from the next batch.
+   * Batches without an expiration date are used last.</p>
+   *
+   * <p>Only batches of the unit type of the given unit are used, compared exactly in the
+   * base unit of that type. Batches of another unit type, like pieces of an ingredient that
+   * is otherwise weighed, are left alone and not counted as available. Each batch taken
+   * from is the head of the queue of its unit type, so removing costs O(log b) per batch
+   * it touches.</p>
    *
-   * @param name     The name of the ingredient to remove.
+   * @param name     The name of the ingredient to remove, in any case.
    * @param quantity The quantity to remove.
+   * @param unit     The unit of the quantity.
    * @return The actual quantity removed.
-   * @throws IllegalArgumentException if the ingredient does not exist
+   * @throws IllegalArgumentException if the unit is null, if the ingredient does not exist
    *                                  or if the quantity exceeds availability.
    */
-  public double removeIngredientFromFoodStorage(String name, double quantity) {
-    name = name.toLowerCase();
-    ArrayList<Ingredient> ingredientArrayList = ingredients.get(name);
-    
-    if (ingredientArrayList == null || ingredientArrayList.isEmpty()) {
-      throw new IllegalArgumentException("Ingredient " + name + " does not exist in storage.");
+  public double removeIngredientFromFoodStorage(String name, double quantity, Unit unit) {
+    if (unit == null) {
+      throw new IllegalArgumentException("Unit cannot be null.");
     }
+    notifyBeforeChange();
+    String key = NameNormalizer.normalize(name);
+    double removed = withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      
+      if (batches == null || batches.isEmpty()) {
+        throw new IllegalArgumentException("Ingredient " + key + " does not exist in storage.");
+      }
+      
+      long totalQuantity = batches.getTotalBaseQuantity(unit.getType());
+      long remaining = unit.toFixedPoint(quantity);
+      
+      if (remaining > totalQuantity) {
+        throw new IllegalArgumentException("Invalid quantity to remove: "
+            + quantity + ". Available: " + unit.fromFixedPoint(totalQuantity));
+      }
+      long removedBase = Math.max(remaining, 0);
+      
+      while (remaining > 0) {
+        Ingredient first = batches.peekFirst(unit.getType());
+        long taken = Math.min(remaining, first.getBaseQuantity());
+        takeFromBatch(key, batches, first, taken);
+        remaining -= taken;
+      }
+      return unit.fromFixedPoint(removedBase);
+    });
+    notifyIngredientChanged(key);
+    return removed;
+  }
+  
+  /**
+   * Takes a quantity from a batch and tells the listeners. A batch that is used up is
+   * removed, and so is the key when it has no batches left.
+   * Must be called while the batches of the key are guarded.
+   *
+   * @param key          The normalized name of the ingredient.
+   * @param batches      The batches of the ingredient.
+   * @param batch        The batch to take from.
+   * @param baseQuantity The quantity to take, at most the quantity of the batch.
+   */
+  private void takeFromBatch(String key, IngredientBatches batches, Ingredient batch,
+      long baseQuantity) {
+    notifyBatchConsumed(batch, baseQuantity);
+    if (batch.getBaseQuantity() > baseQuantity) {
+      batches.reduce(batch, baseQuantity);
+    } else {
+      batches.remove(batch);
+      forgetBatch(batch);
+      if (batches.isEmpty()) {
+        ingredients.remove(key);
+      }
+    }
+  }
+  
+  /**
+   * Takes the quantity of a batch from the batch with the same name, expiration date, price
+   * and unit type, as told to {@link FoodStorageListener#batchConsumed}. This is how a
+   * journal replays removals and cooking exactly, batch by batch.
+   *
+   * @param taken The quantity to take, as a batch.
+   * @throws IllegalArgumentException if the batch is null, or no matching batch has the
+   *                                  quantity.
+   */
+  public void consumeBatch(Ingredient taken) {
+    if (taken == null) {
+      throw new IllegalArgumentException("Ingredient cannot be null");
+    }
+    notifyBeforeChange();
+    String key = NameDictionary.keyOf(taken.getNameId());
+    withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      Ingredient batch = batches == null ? null : batches.findMatching(
+          taken.getExpirationDate(), taken.getPriceMinorUnits(),
+          taken.getUnitMeasurement().getType());
+      if (batch == null || batch.getBaseQuantity() < taken.getBaseQuantity()) {
+        throw new IllegalArgumentException("No batch of " + key + " to take "
+            + taken.getQuantity() + " " + taken.getUnitMeasurement().getSymbol() + " from.");
+      }
+      takeFromBatch(key, batches, batch, taken.getBaseQuantity());
+      return null;
+    });
+    notifyIngredientChanged(key);
+  }
+  
+  /**
+   * Takes a batch that has been used up out of the index and the running aggregates.
+   *
+   * @param ingredient The batch that was removed.
+   */
+  private void forgetBatch(Ingredient ingredient) {
+    unindexByExpirationDate(ingredient);
+    totalValue.add(-ingredient.getPriceMinorUnits());
+    batchCount.decrement();
+  }
+  
+  /**
+   * The batches of one ingredient that cooking a recipe will use.
+   *
+   * @param key             The normalized name of the ingredient.
+   * @param batches         The batches of the ingredient.
+   * @param usedUp          The batches that are used up completely.
+   * @param partial         The batch that is used in part, or {@code null} if none.
+   * @param partialQuantity The quantity to take from the partial batch, in base units.
+   */
+  private record Consumption(String key, IngredientBatches batches, List<Ingredient> usedUp,
+      Ingredient partial, long partialQuantity) {
+  }
+  
+  /**
+   * The batches picked so far to take a quantity of an ingredient from, while the batches
+   * are visited in order of expiration date.
+   */
+  private static final class ConsumptionPlan {
+    private final int nameId;
+    private final Unit.UnitType type;
+    private final DensityTable densities;
+    private final List<Ingredient> usedUp = new ArrayList<>();
+    private long remaining;
+    private Ingredient partial;
+    private long partialQuantity;
     
-    List<Ingredient> sortedList = getSortedIngredientsByExpirationsDate(ingredientArrayList);
-    
-    double totalQuantity = sortedList.stream()
-        .mapToDouble(Ingredient::getQuantity)
-        .sum();
-    
-    if (quantity > totalQuantity) {
-      throw new IllegalArgumentException("Invalid quantity to remove: "
-          + quantity + ". Available: " + totalQuantity);
+    /**
+     * Starts a plan to take a quantity of an ingredient.
+     *
+     * @param nameId    The id of the name of the ingredient.
+     * @param type      The unit type of the quantity.
+     * @param densities The densities to convert batches of another unit type with.
+     * @param remaining The quantity to take, in the base unit of the type.
+     */
+    ConsumptionPlan(int nameId, Unit.UnitType type, DensityTable densities, long remaining) {
+      this.nameId = nameId;
+      this.type = type;
+      this.densities = densities;
+      this.remaining = remaining;
     }
-    final double initialQuantity = quantity;
-    Iterator<Ingredient> iterator = sortedList.iterator();
     
-    while (iterator.hasNext() && quantity > 0) {
-      Ingredient ingredient = iterator.next();
-      if (ingredient.getQuantity() > quantity) {
-        ingredient.setQuantity(ingredient.getQuantity() - quantity);
-        quantity = 0;
+    /**
+     * Picks the next batch to take from, using it up or taking the rest of the quantity
+     * from it. A batch that cannot be converted to the unit type is skipped.
+     *
+     * @param batch The next batch in order of expiration date.
+     * @return True if more is needed, false if the quantity is covered.
+     */
+    boolean pick(Ingredient batch) {
+      Unit.UnitType batchType = batch.getUnitMeasurement().getType();
+      long inUnitType = densities.convertBaseQuantity(
+          nameId, batch.getBaseQuantity(), batchType, type);
+      if (inUnitType == 0) {
+        return true;
+      }
+      long covering = inUnitType > remaining ? densities.coveringBaseQuantity(
+          nameId, remaining, type, batchType) : Long.MAX_VALUE;
+      if (covering < batch.getBaseQuantity()) {
+        partial = batch;
+        partialQuantity = covering;
+        remaining = 0;
       } else {
-        quantity -= ingredient.getQuantity();
-        iterator.remove();
+        usedUp.add(batch);
+        remaining -= Math.min(remaining, inUnitType);
       }
+      return remaining > 0;
     }
-    ingredientArrayList.clear();
-    ingredientArrayList.addAll(sortedList);
-    
-    if (ingredientArrayList.isEmpty()) {
-      ingredients.remove(name);
+  }
+  
+  /**
+   * Cooks a number of portions of a recipe, taking every ingredient it needs from the
+   * storage, or nothing at all.
+   *
+   * <p>The quantities of the recipe are scaled from the portions of the recipe to the
+   * portions to cook. Each ingredient is taken from the batches that expire first (FIFO),
+   * compared exactly in the base unit of its type. Batches of another type are only used
+   * when the {@link DensityTable} can convert them, rounded in favour of the storage.
+   * The batches of every ingredient of the recipe are guarded for the whole operation.
+   * While guarded, every ingredient is first checked and its batches picked, and only when
+   * all of them are available is anything taken. A shortage therefore leaves the storage
+   * as it was, and no other operation can see a recipe half cooked.</p>
+   *
+   * @param recipe   The recipe to cook.
+   * @param portions The number of portions to cook.
+   * @throws IllegalArgumentException if the recipe is null, the portions are not positive,
+   *                                  or an ingredient is missing or short.
+   */
+  public void cook(Recipe recipe, double portions) {
+    if (recipe == null) {
+      throw new IllegalArgumentException("Recipe cannot be null");
+    }
+    if (portions <= 0) {
+      throw new IllegalArgumentException("Portions must be positive");
     }
-    return initialQuantity - quantity;
+    notifyBeforeChange();
+    double scale = portions / recipe.getPortions();
+    List<Ingredient> needed = recipe.getIngredientsList();
+    List<String> keys = needed.stream()
+        .map(ingredient -> NameDictionary.keyOf(ingredient.getNameId()))
+        .toList();
+    
+    DensityTable densities = densityTable;
+    withBatchesOfAll(keys, () -> {
+      List<Consumption> consumptions = new ArrayList<>(needed.size());
+      for (int i = 0; i < needed.size(); i++) {
+        Ingredient ingredient = needed.get(i);
+        consumptions.add(planConsumption(keys.get(i), ingredient.getNameId(), recipe.getName(),
+            ingredient.getQuantity() * scale, ingredient.getUnitMeasurement(), densities));
+      }
+      for (Consumption consumption : consumptions) {
+        IngredientBatches batches = consumption.batches();
+        for (Ingredient batch : consumption.usedUp()) {
+          takeFromBatch(consumption.key(), batches, batch, batch.getBaseQuantity());
+        }
+        if (consumption.partial() != null) {
+          takeFromBatch(consumption.key(), batches, consumption.partial(),
+              consumption.partialQuantity());
+        }
+      }
+      return null;
+    });
+    keys.forEach(this::notifyIngredientChanged);
   }
   
   /**
-   * Returns a list of ingredients sorted by expiration date.
+   * Picks the batches to take a quantity of an ingredient from, without changing them.
+   * Only the batches that expire first are visited, until the quantity is covered.
+   * Must be called while the batches of the key are guarded.
    *
-   * @param ingredientArrayList The list of ingredients to sort.
-   * @return A sorted list of ingredients.
+   * @param key        The normalized name of the ingredient.
+   * @param nameId     The id of the name of the ingredient.
+   * @param recipeName The name of the recipe, for the error message.
+   * @param quantity   The quantity to take.
+   * @param unit       The unit of the quantity.
+   * @param densities  The densities to convert batches of another unit type with.
+   * @return The batches to take the quantity from.
+   * @throws IllegalArgumentException if there is not enough of the ingredient.
    */
-  private List<Ingredient> getSortedIngredientsByExpirationsDate(
-      List<Ingredient> ingredientArrayList) {
-    return ingredientArrayList.stream()
-        .filter(ingredient ->
-            ingredient.getExpirationDate() != null) //Avoid null pointer when using comparator
-        .sorted(Comparator.comparing(Ingredient::getExpirationDate))
-        .collect(Collectors.toList());
+  private Consumption planConsumption(String key, int nameId, String recipeName,
+      double quantity, Unit unit, DensityTable densities) {
+    IngredientBatches batches = ingredients.get(key);
+    long needed = unit.toFixedPoint(quantity);
+    long available = batches == null ? 0 : densities.convertibleBaseQuantity(
+        nameId, batches.copyBaseUnitQuantities(), unit.getType());
+    
+    ConsumptionPlan plan = new ConsumptionPlan(nameId, unit.getType(), densities, needed);
+    if (batches != null && needed > 0 && available >= needed) {
+      batches.visitInExpiryOrder(plan::pick);
+    }
+    // Batches are converted one by one, so rounding can leave a little short of the total
+    if (available < needed || plan.remaining > 0) {
+      throw new IllegalArgumentException("Not enough " + key + " to cook " + recipeName
+          + ". Needed: " + quantity + ", available: " + unit.fromFixedPoint(available));
+    }
+    return new Consumption(key, batches, plan.usedUp, plan.partial, plan.partialQuantity);
   }
   
   /**
    * Retrieves all expired ingredients from the storage.
-   * Chatgpt helped with the issue og using streams on map by implementing flatMap function.
+   * Reads the part of the expiration date index that is before today.
    *
-   * @return A list of expired ingredients.
+   * @return A list of expired ingredients, sorted by expiration date.
    */
   public List<Ingredient> getExpiredIngredients() {
-    return ingredients.values().stream()
-        .filter(Objects::nonNull)
-        .flatMap(List::stream) //Flatten nested ArrayList into stream
-        .filter(ingredient -> ingredient != null && ingredient.getExpirationDate() != null)
-        .filter(ingredient -> ingredient.getExpirationDate().isBefore(LocalDate.now()))
-        .collect(Collectors.toList());
+    return collectBatches(expirationIndex.headMap(ExpiryKey.startOf(LocalDate.now())));
   }
   
   /**
@@ -188,9 +665,212 @@ public class FoodStorage {
     if (ingredientsStream == null) {
       throw new IllegalArgumentException("Ingredients stream cannot be null");
     }
-    return ingredientsStream
-        .mapToDouble(Ingredient::getPrice)
-        .sum();
+    return Money.toMajorUnits(ingredientsStream
+        .mapToLong(Ingredient::getPriceMinorUnits)
+        .sum());
+  }
+  
+  /**
+   * Calculates the total value of a stream of ingredients in several currencies, with one
+   * pass over the stream. The prices are summed exactly in the base currency, and the sum
+   * is converted once to each currency with the same rate table.
+   *
+   * @param ingredientsStream A stream of ingredients to calculate.
+   * @param rates             The rates to convert with.
+   * @param currencies        The currencies to give the total value in.
+   * @return An unmodifiable map from currency to the total value in it.
+   * @throws IllegalArgumentException if an argument is null or a currency has no rate.
+   */
+  public Map<Unit, Money> calculateTotalValues(Stream<Ingredient> ingredientsStream,
+      RateTable rates, Collection<Unit> currencies) {
+    if (ingredientsStream == null) {
+      throw new IllegalArgumentException("Ingredients stream cannot be null");
+    }
+    requireRates(rates, currencies);
+    long total = ingredientsStream.mapToLong(Ingredient::getPriceMinorUnits).sum();
+    return rates.convertAll(new Money(total, RateTable.BASE_CURRENCY), currencies);
+  }
+  
+  /**
+   * Retrieves the total value of all the ingredients in the storage in several currencies,
+   * from the running total, converted once to each currency with the same rate table.
+   *
+   * @param rates      The rates to convert with.
+   * @param currencies The currencies to give the total value in.
+   * @return An unmodifiable map from currency to the total value in it.
+   * @throws IllegalArgumentException if an argument is null or a currency has no rate.
+   */
+  public Map<Unit, Money> getTotalValues(RateTable rates, Collection<Unit> currencies) {
+    requireRates(rates, currencies);
+    return rates.convertAll(
+        new Money(getTotalValueMinorUnits(), RateTable.BASE_CURRENCY), currencies);
+  }
+  
+  /**
+   * Checks that a rate table has a rate for every currency, before any batch is read.
+   *
+   * @param rates      The rates to check.
+   * @param currencies The currencies that need a rate.
+   * @throws IllegalArgumentException if an argument is null or a currency has no rate.
+   */
+  private static void requireRates(RateTable rates, Collection<Unit> currencies) {
+    if (rates == null) {
+      throw new IllegalArgumentException("Rates cannot be null");
+    }
+    if (currencies == null) {
+      throw new IllegalArgumentException("Currencies cannot be null");
+    }
+    currencies.forEach(rates::getRate);
+  }
+  
+  /**
+   * Retrieves the total value of all the ingredients in the storage.
+   * The value is kept up to date on every change, so this does not go through the batches.
+   *
+   * @return The sum of the prices of all batches in the storage.
+   */
+  public double getTotalValue() {
+    return Money.toMajorUnits(getTotalValueMinorUnits());
+  }
+  
+  /**
+   * Retrieves the exact total value of all the ingredients in the storage in minor units.
+   *
+   * @return The sum of the prices of all batches in the storage in minor units.
+   */
+  public long getTotalValueMinorUnits() {
+    return totalValue.sum();
+  }
+  
+  /**
+   * Retrieves the number of batches in the storage.
+   *
+   * @return The number of Ingredient instances in the storage.
+   */
+  public int getBatchCount() {
+    return batchCount.intValue();
+  }
+  
+  /**
+   * Retrieves the total quantity of an ingredient, converted to the given unit.
+   * Batches with a unit that cannot be converted to the given unit are not counted.
+   *
+   * @param name The name of the ingredient, in any case.
+   * @param unit The unit to get the quantity in.
+   * @return The total quantity in the given unit, or 0 if the ingredient is not in the storage.
+   * @throws IllegalArgumentException if the unit is null.
+   */
+  public double getTotalQuantity(String name, Unit unit) {
+    InputValidator.validationEnum(unit);
+    int nameId = NameDictionary.find(name);
+    return nameId == NameDictionary.UNKNOWN ? 0 : getTotalQuantity(nameId, unit);
+  }
+  
+  /**
+   * Retrieves the total quantity of an ingredient by the id of its name,
+   * converted to the given unit.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary}.
+   * @param unit   The unit to get the quantity in.
+   * @return The total quantity in the given unit, or 0 if the ingredient is not in the storage.
+   * @throws IllegalArgumentException if the unit is null or no name has the id.
+   */
+  public double getTotalQuantity(int nameId, Unit unit) {
+    InputValidator.validationEnum(unit);
+    return unit.fromFixedPoint(getTotalBaseQuantity(nameId, unit.getType()));
+  }
+  
+  /**
+   * Retrieves the exact total quantity of an ingredient of one unit type, as a fixed-point
+   * value in the canonical base unit of the type. Batches of other unit types are not counted.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary}.
+   * @param type   The unit type to get the quantity of.
+   * @return The total quantity in base units, or 0 if the ingredient is not in the storage.
+   * @throws IllegalArgumentException if no name has the id.
+   */
+  public long getTotalBaseQuantity(int nameId, Unit.UnitType type) {
+    String key = NameDictionary.keyOf(nameId);
+    return withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      return batches == null ? 0L : batches.getTotalBaseQuantity(type);
+    });
+  }
+  
+  /**
+   * Retrieves the quantity of an ingredient that can be used as the given unit type: the
+   * batches of the type, and the batches of other types that the {@link DensityTable}
+   * of the storage can convert, rounded down.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary},
+   *               or {@link NameDictionary#UNKNOWN} for a name that has none.
+   * @param type   The unit type to get the quantity in.
+   * @return The available quantity in base units, or 0 if the ingredient is not in the storage.
+   * @throws IllegalArgumentException if no name has the id.
+   */
+  public long getAvailableBaseQuantity(int nameId, Unit.UnitType type) {
+    if (nameId == NameDictionary.UNKNOWN) {
+      return 0;
+    }
+    long[] baseUnitQuantities = copyBaseUnitQuantities(nameId);
+    return baseUnitQuantities == null ? 0
+        : densityTable.convertibleBaseQuantity(nameId, baseUnitQuantities, type);
+  }
+  
+  /**
+   * Copies the total quantity of each unit type of an ingredient, read together.
+   *
+   * @param nameId The id of the name of the ingredient in the {@link NameDictionary}.
+   * @return The quantities in base units indexed by type, or null if there are no batches.
+   * @throws IllegalArgumentException if no name has the id.
+   */
+  long[] copyBaseUnitQuantities(int nameId) {
+    String key = NameDictionary.keyOf(nameId);
+    return withBatchesOf(key, () -> {
+      IngredientBatches batches = ingredients.get(key);
+      return batches == null ? null : batches.copyBaseUnitQuantities();
+    });
+  }
+  
+  /**
+   * Takes an immutable snapshot of the total quantity of every ingredient.
+   * The totals of each ingredient are read together, but changes made to other
+   * ingredients while the snapshot is taken may or may not be included.
+   *
+   * @return A snapshot of the total quantities in the storage.
+   */
+  QuantitySnapshot snapshotQuantities() {
+    Map<Integer, long[]> quantities = new HashMap<>();
+    for (Map.Entry<String, IngredientBatches> entry : ingredients.entrySet()) {
+      long[] baseUnitQuantities = withBatchesOf(entry.getKey(), () -> {
+        IngredientBatches batches = ingredients.get(entry.getKey());
+        return batches == null ? null : batches.copyBaseUnitQuantities();
+      });
+      if (baseUnitQuantities != null) {
+        quantities.put(entry.getValue().getNameId(), baseUnitQuantities);
+      }
+    }
+    return new QuantitySnapshot(quantities, densityTable);
+  }
+  
+  /**
+   * Retrieves the normalized names of the ingredients in the storage.
+   *
+   * @return An unmodifiable view of the keys of the storage.
+   */
+  public Set<String> getIngredientKeys() {
+    return Collections.unmodifiableSet(ingredients.keySet());
+  }
+  
+  /**
+   * Retrieves the name ids of the ingredients in the storage.
+   *
+   * @return The ids in the {@link NameDictionary} of the ingredients in the storage.
+   */
+  int[] getIngredientNameIds() {
+    return ingredients.values().stream()
+        .mapToInt(IngredientBatches::getNameId)
+        .toArray();
   }
   
   /**
@@ -206,28 +886,36 @@ public class FoodStorage {
    * Retrieves ingredients expiring before a specific date.
    *
    * @param date The date to check against.
-   * @return A list of ingredients expiring before the given date.
+   * @return A list of ingredients expiring before the given date, sorted by expiration date.
    */
   public List<Ingredient> getIngredientsExpiringBefore(LocalDate date) {
-    return ingredients.values().stream()
-        .flatMap(List::stream)
-        .filter(ingredient -> ingredient.getExpirationDate().isBefore(date))
-        .sorted(Comparator.comparing(Ingredient::getExpirationDate))
-        .collect(Collectors.toList());
+    return collectBatches(expirationIndex.headMap(ExpiryKey.startOf(date)));
   }
   
   /**
    * Retrieves ingredients expiring after a specific date.
    *
    * @param date The date to check against.
-   * @return A list of ingredients expiring before the given date.
+   * @return A list of ingredients expiring after the given date, sorted by expiration date.
    */
   public List<Ingredient> getIngredientsExpiringAfter(LocalDate date) {
-    return ingredients.values().stream()
-        .flatMap(List::stream)
-        .filter(ingredient -> ingredient.getExpirationDate().isAfter(date))
-        .sorted(Comparator.comparing(Ingredient::getExpirationDate))
-        .collect(Collectors.toList());
+    return collectBatches(expirationIndex.tailMap(ExpiryKey.startOf(date.plusDays(1))));
+  }
+  
+  /**
+   * Retrieves ingredients expiring in a range of dates.
+   *
+   * @param from  The first date to include.
+   * @param until The date after the last date to include.
+   * @return A list of ingredients expiring from {@code from} up to, but not including,
+   *      {@code until}, sorted by expiration date.
+   */
+  public List<Ingredient> getIngredientsExpiringBetween(LocalDate from, LocalDate until) {
+    if (!from.isBefore(until)) {
+      return new ArrayList<>();
+    }
+    return collectBatches(
+        expirationIndex.subMap(ExpiryKey.startOf(from), ExpiryKey.startOf(until)));
   }
   
   /**
@@ -240,18 +928,21 @@ public class FoodStorage {
   public void getFoodStorageAlphabetically() {
     ingredients.keySet().stream()
         .sorted(String.CASE_INSENSITIVE_ORDER)
-        .forEach(key -> {
-          double quantity = ingredients.get(key).stream()
-              .mapToDouble(Ingredient::getQuantity)
-              .sum();
-          if (ingredients.get(key).size() > 1) {
-            System.out.println(ingredients.get(key).getFirst().getName()
-                + " (Quantity: " + quantity + "):");
-            ingredients.get(key).forEach(ingredient -> System.out.println("- " + ingredient));
+        .forEach(key -> withBatchesOf(key, () -> {
+          IngredientBatches batches = ingredients.get(key);
+          if (batches == null) {
+            return null;
+          }
+          List<Ingredient> sortedBatches = batches.toSortedList();
+          if (batches.size() > 1) {
+            System.out.println(sortedBatches.getFirst().getName()
+                + " (Quantity: " + batches.getTotalQuantity() + "):");
+            sortedBatches.forEach(ingredient -> System.out.println("- " + ingredient));
           } else {
-            System.out.println(ingredients.get(key).getFirst());
+            System.out.println(sortedBatches.getFirst());
           }
-        });
+          return null;
+        }));
   }
   
   /**
@@ -267,24 +958,9 @@ public class FoodStorage {
   public boolean hasEnoughIngredientsForRecipe(
       FoodStorage foodStorage, Recipe recipe) {
     return recipe.getIngredientsList().stream()
-        .allMatch(recipeIngredient -> {
-          double totalAvailable
-              = foodStorage.getIngredients().values().stream()
-              .flatMap(List::stream)
-              .filter(storageIngredient ->
-                  storageIngredient.getName().equals(recipeIngredient.getName()))
-              .mapToDouble(storageIngredient -> {
-                if (!storageIngredient.getUnitMeasurement()
-                    .equals(recipeIngredient.getUnitMeasurement())) {
-                  return storageIngredient.getUnitMeasurement()
-                      .convertValue(storageIngredient.getQuantity(),
-                          recipeIngredient.getUnitMeasurement());
-                }
-                return storageIngredient.getQuantity();
-              })
-              .sum();
-          return totalAvailable >= recipeIngredient.getQuantity();
-        });
+        .allMatch(recipeIngredient -> foodStorage.getAvailableBaseQuantity(
+            recipeIngredient.findNameId(), recipeIngredient.getUnitMeasurement().getType())
+            >= recipeIngredient.getBaseQuantity());
   }
   
   /**
@@ -292,21 +968,17 @@ public class FoodStorage {
    *
    * @param foodStorage The FoodStorage instance to check against.
    * @param recipe      The Recipe to evaluate.
-   * @return A map containing the ingredient names as
-   *      keys and their total available quantities as values.
+   * @return A map containing the ingredient names as keys and their total
+   *      available quantities, in the unit used by the recipe, as values.
    */
   public Map<String, Double> getIngredientAvailabilityForRecipe(
       FoodStorage foodStorage, Recipe recipe) {
     Map<String, Double> availability = new HashMap<>();
-    recipe.getIngredientsList().forEach(recipeIngredient -> {
-      double totalAvailable = foodStorage.getIngredients().values().stream()
-          .flatMap(List::stream)
-          .filter(storageIngredient ->
-              storageIngredient.getName().equals(recipeIngredient.getName()))
-          .mapToDouble(Ingredient::getQuantity)
-          .sum();
-      availability.put(recipeIngredient.getName(), totalAvailable);
-    });
+    recipe.getIngredientsList().forEach(recipeIngredient ->
+        availability.put(recipeIngredient.getName(),
+            recipeIngredient.getUnitMeasurement().fromFixedPoint(
+                foodStorage.getAvailableBaseQuantity(recipeIngredient.findNameId(),
+                    recipeIngredient.getUnitMeasurement().getType()))));
     return availability;
   }
   
@@ -320,9 +992,12 @@ public class FoodStorage {
   public String toString() {
     StringBuilder stringBuilder = new StringBuilder();
     stringBuilder.append("Ingredients in storage:\n");
-    for (Map.Entry<String, ArrayList<Ingredient>> entry : ingredients.entrySet()) {
-      entry.getValue().forEach(ingredient ->
-          stringBuilder.append("  - ").append(ingredient).append("\n"));
+    for (String key : ingredients.keySet()) {
+      List<Ingredient> batches = sortedBatchesOf(key);
+      if (batches != null) {
+        batches.forEach(ingredient ->
+            stringBuilder.append("  - ").append(ingredient).append("\n"));
+      }
     }
     return stringBuilder.toString();
   }
@@ -0,0 +1,66 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+
+/**
+ * Listener that is told when the stock of an ingredient in a {@link FoodStorage} changes.
+ *
+ * <p>The listener is called after a batch is added, merged into an existing batch or
+ * consumed, and gets the normalized name of the ingredient that changed.</p>
+ *
+ * <p>Listeners that need the mutation itself, like a journal, can also override
+ * {@link #ingredientAdded} and {@link #batchConsumed}. These are called while the
+ * batches of the ingredient are still locked, so the calls for one ingredient come in the
+ * same order as the changes were made. They must therefore be quick and must not call
+ * back into the storage.</p>
+ *
+ * @author TriLe
+ */
+@FunctionalInterface
+public interface FoodStorageListener {
+  
+  /**
+   * Called after the stock of an ingredient has changed.
+   *
+   * @param ingredientKey the normalized name of the ingredient that changed
+   */
+  void ingredientChanged(String ingredientKey);
+  
+  /**
+   * Called before the storage adds, removes or takes anything. A listener that could not
+   * record the change, like a journal whose file failed, throws to reject it while the
+   * storage is still unchanged. Does nothing by default.
+   */
+  default void beforeStockChange() {
+  }
+  
+  /**
+   * Called when an ingredient has been added to the storage, before
+   * {@link #ingredientChanged}. Does nothing by default.
+   *
+   * @param ingredient the ingredient that was added
+   */
+  default void ingredientAdded(Ingredient ingredient) {
+  }
+  
+  /**
+   * Called for each batch a quantity has been taken from, by a removal or by cooking,
+   * before {@link #ingredientChanged}. The batch that was taken has the name, unit,
+   * expiration date and price of the batch it was taken from, and the exact quantity that
+   * was taken, so {@link FoodStorage#consumeBatch} can take the same quantity from the
+   * same batch again. Does nothing by default.
+   *
+   * @param taken the quantity that was taken, as a batch
+   */
+  default void batchConsumed(Ingredient taken) {
+  }
+  
+  /**
+   * Called after the {@link FoodStorage#setDensityTable density table} of the storage has
+   * been replaced. The stock is the same, but whether quantities given by mass and by volume
+   * are enough for each other can have changed for every ingredient. Does nothing by
+   * default.
+   */
+  default void densityTableChanged() {
+  }
+}
@@ -0,0 +1,117 @@
+package edu.ntnu.idi.idatt.storage;
+
+import java.util.Arrays;
+
+/**
+ * A {@link BatchTable} with one primitive array per value, so each value of every row
+ * is stored next to the same value of the other rows.
+ *
+ * @author TriLe
+ */
+final class HeapBatchTable implements BatchTable {
+  private int[] keyColumn;
+  private int[] nameColumn;
+  private byte[] unitColumn;
+  private long[] quantityColumn;
+  private long[] priceColumn;
+  private int[] epochDayColumn;
+  
+  /**
+   * Constructs a table with room for a number of rows.
+   *
+   * @param capacity the number of rows
+   */
+  HeapBatchTable(int capacity) {
+    this.keyColumn = new int[capacity];
+    this.nameColumn = new int[capacity];
+    this.unitColumn = new byte[capacity];
+    this.quantityColumn = new long[capacity];
+    this.priceColumn = new long[capacity];
+    this.epochDayColumn = new int[capacity];
+  }
+  
+  @Override
+  public int capacity() {
+    return keyColumn.length;
+  }
+  
+  @Override
+  public void grow(int capacity) {
+    keyColumn = Arrays.copyOf(keyColumn, capacity);
+    nameColumn = Arrays.copyOf(nameColumn, capacity);
+    unitColumn = Arrays.copyOf(unitColumn, capacity);
+    quantityColumn = Arrays.copyOf(quantityColumn, capacity);
+    priceColumn = Arrays.copyOf(priceColumn, capacity);
+    epochDayColumn = Arrays.copyOf(epochDayColumn, capacity);
+  }
+  
+  @Override
+  public int getKey(int row) {
+    return keyColumn[row];
+  }
+  
+  @Override
+  public void setKey(int row, int keyId) {
+    keyColumn[row] = keyId;
+  }
+  
+  @Override
+  public int getName(int row) {
+    return nameColumn[row];
+  }
+  
+  @Override
+  public void setName(int row, int nameId) {
+    nameColumn[row] = nameId;
+  }
+  
+  @Override
+  public byte getUnit(int row) {
+    return unitColumn[row];
+  }
+  
+  @Override
+  public void setUnit(int row, byte unit) {
+    unitColumn[row] = unit;
+  }
+  
+  @Override
+  public long getQuantity(int row) {
+    return quantityColumn[row];
+  }
+  
+  @Override
+  public void setQuantity(int row, long quantity) {
+    quantityColumn[row] = quantity;
+  }
+  
+  @Override
+  public long getPrice(int row) {
+    return priceColumn[row];
+  }
+  
+  @Override
+  public void setPrice(int row, long price) {
+    priceColumn[row] = price;
+  }
+  
+  @Override
+  public int getEpochDay(int row) {
+    return epochDayColumn[row];
+  }
+  
+  @Override
+  public void setEpochDay(int row, int epochDay) {
+    epochDayColumn[row] = epochDay;
+  }
+  
+  @Override
+  public void copyRow(int from, int to) {
+    keyColumn[to] = keyColumn[from];
+    nameColumn[to] = nameColumn[from];
+    unitColumn[to] = unitColumn[from];
+    quantityColumn[to] = quantityColumn[from];
+    priceColumn[to] = priceColumn[from];
+    epochDayColumn[to] = epochDayColumn[from];
+  }
+}
@@ -0,0 +1,320 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Unit;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * The batches of one ingredient name in the {@link FoodStorage}.
+ *
+ * <p>The batches of each {@link Unit.UnitType} are kept in a priority queue of their own,
+ * ordered by expiration date, so the batch of a type that expires first is always at the head
+ * and can be consumed first (FIFO) in O(log b). Batches without an expiration date are
+ * ordered last, so they are kept and only consumed when every dated batch is used up.</p>
+ *
+ * <p>Batches with the same expiration date, price and unit type are merged into one, so a
+ * batch is identified by these three. To find the batch to merge with without going
+ * through the queue, the batches are also kept in a hash map keyed by their expiration
+ * date, price and unit type, where a missing date is a key of its own.</p>
+ *
+ * <p>The total quantity of the batches is kept as running sums of fixed-point quantities, both
+ * for each {@link Unit} and for each {@link Unit.UnitType} in its canonical base unit
+ * (milligrams, microlitres and thousandths of a piece), so totals can be read without going
+ * through the batches, and adding and taking quantities never drifts.</p>
+ *
+ * @author TriLe
+ */
+final class IngredientBatches {
+  /**
+   * Orders batches by expiration date, with batches without a date last, and then by price.
+   * Batches of one unit type that are not merged differ in one of the two, so their order
+   * is total and a batch taken out of its queue and offered again is back where it was.
+   */
+  static final Comparator<Ingredient> BY_EXPIRATION_DATE = Comparator.comparing(
+      Ingredient::getExpirationDate, Comparator.<LocalDate>nullsLast(Comparator.naturalOrder()))
+      .thenComparingLong(Ingredient::getPriceMinorUnits);
+  
+  private final int nameId;
+  private final List<PriorityQueue<Ingredient>> batchesByType;
+  private final Map<MergeKey, Ingredient> batchesByMergeKey;
+  private final long[] baseUnitQuantities;
+  private final long[] quantitiesByUnit;
+  private int size;
+  
+  /**
+   * The expiration date, price and unit type that batches must share to be merged.
+   *
+   * @param expirationDate the expiration date, or {@code null} for batches without one
+   * @param price          the price in minor units
+   * @param type           the unit type
+   */
+  private record MergeKey(LocalDate expirationDate, long price, Unit.UnitType type) {
+    static MergeKey of(Ingredient batch) {
+      return new MergeKey(batch.getExpirationDate(), batch.getPriceMinorUnits(),
+          batch.getUnitMeasurement().getType());
+    }
+  }
+  
+  /**
+   * Constructs an empty collection of batches.
+   *
+   * @param nameId the id of the name of the ingredient
+   */
+  IngredientBatches(int nameId) {
+    this.nameId = nameId;
+    this.batchesByType = new ArrayList<>(Unit.UnitType.values().length);
+    for (int i = 0; i < Unit.UnitType.values().length; i++) {
+      batchesByType.add(new PriorityQueue<>(BY_EXPIRATION_DATE));
+    }
+    this.batchesByMergeKey = new HashMap<>();
+    this.baseUnitQuantities = new long[Unit.UnitType.values().length];
+    this.quantitiesByUnit = new long[Unit.values().length];
+  }
+  
+  /**
+   * Retrieves the id of the name of the ingredient.
+   *
+   * @return the id of the name
+   */
+  int getNameId() {
+    return nameId;
+  }
+  
+  /**
+   * Adds a new batch.
+   *
+   * @param ingredient the batch to add
+   */
+  void add(Ingredient ingredient) {
+    queueOf(ingredient).offer(ingredient);
+    size++;
+    batchesByMergeKey.put(MergeKey.of(ingredient), ingredient);
+    addToTotals(ingredient, ingredient.getBaseQuantity());
+  }
+  
+  /**
+   * Adds quantity to a batch that is already in this collection.
+   *
+   * @param batch        the existing batch
+   * @param baseQuantity the quantity to add, in base units
+   */
+  void increase(Ingredient batch, long baseQuantity) {
+    batch.addBaseQuantity(baseQuantity);
+    addToTotals(batch, baseQuantity);
+  }
+  
+  /**
+   * Adds a change in quantity of a batch to the running totals.
+   *
+   * @param batch        the batch whose quantity changed
+   * @param baseQuantity the change in quantity, in base units
+   */
+  private void addToTotals(Ingredient batch, long baseQuantity) {
+    Unit unit = batch.getUnitMeasurement();
+    quantitiesByUnit[unit.ordinal()] += baseQuantity;
+    baseUnitQuantities[unit.getType().ordinal()] += baseQuantity;
+  }
+  
+  /**
+   * Finds the batch with the given expiration date, price and unit type.
+   *
+   * @param expirationDate the expiration date, or {@code null} for a batch without one
+   * @param price          the price in minor units
+   * @param type           the unit type
+   * @return the matching batch, or {@code null} if there is none
+   */
+  Ingredient findMatching(LocalDate expirationDate, long price, Unit.UnitType type) {
+    return batchesByMergeKey.get(new MergeKey(expirationDate, price, type));
+  }
+  
+  /**
+   * Finds the queue that holds the batches of the unit type of a batch.
+   *
+   * @param batch the batch
+   * @return the queue of its unit type
+   */
+  private PriorityQueue<Ingredient> queueOf(Ingredient batch) {
+    return batchesByType.get(batch.getUnitMeasurement().getType().ordinal());
+  }
+  
+  /**
+   * Retrieves the batch of a unit type that expires first without removing it.
+   *
+   * @param type the unit type
+   * @return the batch that expires first, or {@code null} if there are no batches of the type
+   */
+  Ingredient peekFirst(Unit.UnitType type) {
+    return batchesByType.get(type.ordinal()).peek();
+  }
+  
+  /**
+   * Finds the only unit type of the batches.
+   *
+   * @return the unit type of every batch, or {@code null} if there are no batches or the
+   *     batches have more than one unit type
+   */
+  Unit.UnitType getOnlyUnitType() {
+    Unit.UnitType only = null;
+    for (Unit.UnitType type : Unit.UnitType.values()) {
+      if (!batchesByType.get(type.ordinal()).isEmpty()) {
+        if (only != null) {
+          return null;
+        }
+        only = type;
+      }
+    }
+    return only;
+  }
+  
+  /**
+   * Removes a batch that is in this collection. A batch at the head of its queue, like one
+   * consumed first, is polled in O(log b), and any other batch is searched for.
+   *
+   * @param batch the batch to remove
+   */
+  void remove(Ingredient batch) {
+    PriorityQueue<Ingredient> queue = queueOf(batch);
+    if (queue.peek() == batch ? queue.poll() != null : queue.remove(batch)) {
+      size--;
+      forget(batch);
+    }
+  }
+  
+  /**
+   * Takes a removed batch out of the merge index and the running totals.
+   *
+   * @param batch the batch that was removed from the queue
+   */
+  private void forget(Ingredient batch) {
+    batchesByMergeKey.remove(MergeKey.of(batch));
+    addToTotals(batch, -batch.getBaseQuantity());
+  }
+  
+  /**
+   * Reduces the quantity of a batch that is in this collection.
+   * The amount must be less than the quantity of the batch.
+   *
+   * @param batch        the batch to take from
+   * @param baseQuantity the quantity to take, in base units
+   */
+  void reduce(Ingredient batch, long baseQuantity) {
+    batch.addBaseQuantity(-baseQuantity);
+    addToTotals(batch, -baseQuantity);
+  }
+  
+  /**
+   * Retrieves the total quantity of all batches, adding up the quantities in the units of
+   * the batches. The sum is exact when all batches have the same unit.
+   *
+   * @return the sum of the quantities of the batches
+   */
+  double getTotalQuantity() {
+    double total = 0;
+    for (Unit unit : Unit.values()) {
+      if (quantitiesByUnit[unit.ordinal()] != 0) {
+        total += unit.fromFixedPoint(quantitiesByUnit[unit.ordinal()]);
+      }
+    }
+    return total;
+  }
+  
+  /**
+   * Retrieves the total quantity of the batches that can be converted to the given unit.
+   * Batches of another unit type are not counted.
+   *
+   * @param unit the unit to get the total in
+   * @return the total quantity in the given unit
+   */
+  double getTotalQuantity(Unit unit) {
+    return unit.fromFixedPoint(baseUnitQuantities[unit.getType().ordinal()]);
+  }
+  
+  /**
+   * Retrieves the total quantity of the batches of a unit type, in its base unit.
+   *
+   * @param type the unit type
+   * @return the total quantity as a fixed-point value
+   */
+  long getTotalBaseQuantity(Unit.UnitType type) {
+    return baseUnitQuantities[type.ordinal()];
+  }
+  
+  /**
+   * Copies the total quantities in the base unit of each unit type.
+   *
+   * @return a new array of the totals, indexed by the ordinal of the unit type
+   */
+  long[] copyBaseUnitQuantities() {
+    return baseUnitQuantities.clone();
+  }
+  
+  /**
+   * Visits the batches in order of expiration date, across the unit types, until the
+   * visitor returns false. Only the batches that are visited are taken out of their queues,
+   * in O(log b) each, and they are offered back before this returns, so the batches are the
+   * same afterwards as long as the visitor does not change them.
+   *
+   * @param visitor the visitor, which returns true to visit the next batch
+   */
+  void visitInExpiryOrder(Predicate<Ingredient> visitor) {
+    List<Ingredient> visited = new ArrayList<>();
+    try {
+      while (true) {
+        PriorityQueue<Ingredient> first = null;
+        for (PriorityQueue<Ingredient> queue : batchesByType) {
+          if (!queue.isEmpty() && (first == null
+              || BY_EXPIRATION_DATE.compare(queue.peek(), first.peek()) < 0)) {
+            first = queue;
+          }
+        }
+        if (first == null) {
+          return;
+        }
+        Ingredient batch = first.poll();
+        visited.add(batch);
+        if (!visitor.test(batch)) {
+          return;
+        }
+      }
+    } finally {
+      visited.forEach(batch -> queueOf(batch).offer(batch));
+    }
+  }
+  
+  /**
+   * Checks if there are no batches.
+   *
+   * @return true if there are no batches, false otherwise
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+  
+  /**
+   * Retrieves the number of batches.
+   *
+   * @return the number of batches
+   */
+  int size() {
+    return size;
+  }
+  
+  /**
+   * Copies the batches into a list sorted by expiration date.
+   *
+   * @return a new list of the batches, the first to expire first
+   */
+  List<Ingredient> toSortedList() {
+    List<Ingredient> sorted = new ArrayList<>(size);
+    batchesByType.forEach(sorted::addAll);
+    sorted.sort(BY_EXPIRATION_DATE);
+    return sorted;
+  }
+}
@@ -0,0 +1,169 @@
+package edu.ntnu.idi.idatt.storage;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * A {@link BatchTable} that keeps its rows outside the Java heap, in a {@link MemorySegment}.
+ *
+ * <p>Each row is a record of {@link #ROW} laid out one after the other in native memory.
+ * When the table grows, a larger segment is allocated in a new {@link Arena}, and the old
+ * arena is closed so its memory is released right away instead of waiting for the garbage
+ * collector.</p>
+ *
+ * @author TriLe
+ */
+final class OffHeapBatchTable implements BatchTable, AutoCloseable {
+  /**
+   * The layout of one row.
+   */
+  static final StructLayout ROW = MemoryLayout.structLayout(
+      ValueLayout.JAVA_INT.withName("key"),
+      ValueLayout.JAVA_INT.withName("name"),
+      ValueLayout.JAVA_INT.withName("epochDay"),
+      ValueLayout.JAVA_BYTE.withName("unit"),
+      MemoryLayout.paddingLayout(3),
+      ValueLayout.JAVA_LONG.withName("quantity"),
+      ValueLayout.JAVA_LONG.withName("price"));
+  
+  private static final long ROW_SIZE = ROW.byteSize();
+  private static final long KEY = offsetOf("key");
+  private static final long NAME = offsetOf("name");
+  private static final long EPOCH_DAY = offsetOf("epochDay");
+  private static final long UNIT = offsetOf("unit");
+  private static final long QUANTITY = offsetOf("quantity");
+  private static final long PRICE = offsetOf("price");
+  
+  private Arena arena;
+  private MemorySegment rows;
+  private int capacity;
+  
+  /**
+   * Constructs a table in native memory.
+   *
+   * @param capacity the number of rows
+   */
+  OffHeapBatchTable(int capacity) {
+    this.arena = Arena.ofShared();
+    this.rows = arena.allocate(capacity * ROW_SIZE, ROW.byteAlignment());
+    this.capacity = capacity;
+  }
+  
+  /**
+   * Finds the position of a value within a row.
+   *
+   * @param name the name of the value in {@link #ROW}
+   * @return the offset of the value in bytes
+   */
+  private static long offsetOf(String name) {
+    return ROW.byteOffset(PathElement.groupElement(name));
+  }
+  
+  /**
+   * Retrieves the number of bytes the rows take up.
+   *
+   * @return the size of the segment
+   */
+  long byteSize() {
+    return rows.byteSize();
+  }
+  
+  @Override
+  public int capacity() {
+    return capacity;
+  }
+  
+  /**
+   * Grows the table by copying the rows to a new segment.
+   *
+   * @param capacity the new number of rows, larger than the current capacity
+   */
+  @Override
+  public void grow(int capacity) {
+    Arena newArena = Arena.ofShared();
+    MemorySegment newRows = newArena.allocate(capacity * ROW_SIZE, ROW.byteAlignment());
+    MemorySegment.copy(rows, 0, newRows, 0, rows.byteSize());
+    arena.close();
+    this.arena = newArena;
+    this.rows = newRows;
+    this.capacity = capacity;
+  }
+  
+  @Override
+  public int getKey(int row) {
+    return rows.get(ValueLayout.JAVA_INT, row * ROW_SIZE + KEY);
+  }
+  
+  @Override
+  public void setKey(int row, int keyId) {
+    rows.set(ValueLayout.JAVA_INT, row * ROW_SIZE + KEY, keyId);
+  }
+  
+  @Override
+  public int getName(int row) {
+    return rows.get(ValueLayout.JAVA_INT, row * ROW_SIZE + NAME);
+  }
+  
+  @Override
+  public void setName(int row, int nameId) {
+    rows.set(ValueLayout.JAVA_INT, row * ROW_SIZE + NAME, nameId);
+  }
+  
+  @Override
+  public byte getUnit(int row) {
+    return rows.get(ValueLayout.JAVA_BYTE, row * ROW_SIZE + UNIT);
+  }
+  
+  @Override
+  public void setUnit(int row, byte unit) {
+    rows.set(ValueLayout.JAVA_BYTE, row * ROW_SIZE + UNIT, unit);
+  }
+  
+  @Override
+  public long getQuantity(int row) {
+    return rows.get(ValueLayout.JAVA_LONG, row * ROW_SIZE + QUANTITY);
+  }
+  
+  @Override
+  public void setQuantity(int row, long quantity) {
+    rows.set(ValueLayout.JAVA_LONG, row * ROW_SIZE + QUANTITY, quantity);
+  }
+  
+  @Override
+  public long getPrice(int row) {
+    return rows.get(ValueLayout.JAVA_LONG, row * ROW_SIZE + PRICE);
+  }
+  
+  @Override
+  public void setPrice(int row, long price) {
+    rows.set(ValueLayout.JAVA_LONG, row * ROW_SIZE + PRICE, price);
+  }
+  
+  @Override
+  public int getEpochDay(int row) {
+    return rows.get(ValueLayout.JAVA_INT, row * ROW_SIZE + EPOCH_DAY);
+  }
+  
+  @Override
+  public void setEpochDay(int row, int epochDay) {
+    rows.set(ValueLayout.JAVA_INT, row * ROW_SIZE + EPOCH_DAY, epochDay);
+  }
+  
+  @Override
+  public void copyRow(int from, int to) {
+    MemorySegment.copy(rows, from * ROW_SIZE, rows, to * ROW_SIZE, ROW_SIZE);
+  }
+  
+  /**
+   * Releases the memory of the table.
+   * The table cannot be used after it is closed.
+   */
+  @Override
+  public void close() {
+    arena.close();
+  }
+}
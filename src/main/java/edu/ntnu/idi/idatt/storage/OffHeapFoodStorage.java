@@ -0,0 +1,56 @@
+package edu.ntnu.idi.idatt.storage;
+
+/**
+ * A {@link ColumnarFoodStorage} that keeps its batches outside the Java heap.
+ *
+ * <p>The batches are records in a {@link java.lang.foreign.MemorySegment} in native memory.
+ * The garbage collector never has to look at them, and
+ * {@link edu.ntnu.idi.idatt.model.Ingredient} objects are only made when batches are
+ * returned from the storage. The names and the rows of each ingredient are still kept on
+ * the heap, but only once per ingredient and not once per batch.</p>
+ *
+ * <p>The memory only lives as long as the storage, so use a snapshot to save the storage.
+ * The memory is released when the storage is closed, and the storage cannot be used after
+ * that. This class is not thread-safe.</p>
+ *
+ * @author TriLe
+ */
+public final class OffHeapFoodStorage extends ColumnarFoodStorage implements AutoCloseable {
+  private static final int INITIAL_CAPACITY = 1024;
+  
+  private final OffHeapBatchTable table;
+  
+  /**
+   * Constructs an empty storage in native memory.
+   */
+  public OffHeapFoodStorage() {
+    this(new OffHeapBatchTable(INITIAL_CAPACITY));
+  }
+  
+  /**
+   * Constructs an empty storage with the given table.
+   *
+   * @param table The table to hold the batches.
+   */
+  private OffHeapFoodStorage(OffHeapBatchTable table) {
+    super(table);
+    this.table = table;
+  }
+  
+  /**
+   * Retrieves the number of bytes outside the heap used for the batches.
+   *
+   * @return The size of the memory holding the batches.
+   */
+  public long getOffHeapBytes() {
+    return table.byteSize();
+  }
+  
+  /**
+   * Releases the memory of the storage.
+   */
+  @Override
+  public void close() {
+    table.close();
+  }
+}
@@ -0,0 +1,97 @@
+package edu.ntnu.idi.idatt.storage;
+
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import java.util.Map;
+
+/**
+ * An immutable copy of the total quantities in a {@link FoodStorage}.
+ *
+ * <p>For every ingredient name id the snapshot holds the exact fixed-point total in the base
+ * unit of each {@link Unit.UnitType}, read from the running totals of the storage, together
+ * with the {@link DensityTable} the storage had. Since the snapshot never changes, it can be
+ * read by many threads at once without locking.</p>
+ *
+ * @author TriLe
+ */
+final class QuantitySnapshot {
+  private final Map<Integer, long[]> baseUnitQuantities;
+  private final DensityTable densityTable;
+  
+  /**
+   * Constructs a snapshot from copied quantities.
+   *
+   * @param baseUnitQuantities the base unit quantities of each name id,
+   *                           which must not be changed after the call
+   * @param densityTable       the densities to compare mass and volume with
+   */
+  QuantitySnapshot(Map<Integer, long[]> baseUnitQuantities, DensityTable densityTable) {
+    this.baseUnitQuantities = Map.copyOf(baseUnitQuantities);
+    this.densityTable = densityTable;
+  }
+  
+  /**
+   * Retrieves the total quantity of an ingredient, converted to the given unit.
+   *
+   * @param name the name of the ingredient, in any case
+   * @param unit the unit to get the quantity in
+   * @return the total quantity in the given unit, or 0 if the ingredient is not in the snapshot
+   */
+  double getTotalQuantity(String name, Unit unit) {
+    return getTotalQuantity(NameDictionary.find(name), unit);
+  }
+  
+  /**
+   * Retrieves the total quantity of an ingredient by the id of its name,
+   * converted to the given unit.
+   *
+   * @param nameId the id of the name of the ingredient
+   * @param unit   the unit to get the quantity in
+   * @return the total quantity in the given unit, or 0 if the ingredient is not in the snapshot
+   */
+  double getTotalQuantity(int nameId, Unit unit) {
+    return unit.fromFixedPoint(getTotalBaseQuantity(nameId, unit.getType()));
+  }
+  
+  /**
+   * Retrieves the exact total quantity of an ingredient of one unit type, in base units.
+   *
+   * @param nameId the id of the name of the ingredient
+   * @param type   the unit type to get the quantity of
+   * @return the fixed-point total in base units, or 0 if the ingredient is not in the snapshot
+   */
+  long getTotalBaseQuantity(int nameId, Unit.UnitType type) {
+    long[] quantities = baseUnitQuantities.get(nameId);
+    return quantities == null ? 0 : quantities[type.ordinal()];
+  }
+  
+  /**
+   * Retrieves the quantity of an ingredient that could be used as the given unit type,
+   * converting the other types with the densities of the snapshot.
+   *
+   * @param nameId the id of the name of the ingredient
+   * @param type   the unit type to get the quantity in
+   * @return the available quantity in base units, or 0 if the ingredient is not in the snapshot
+   */
+  long getAvailableBaseQuantity(int nameId, Unit.UnitType type) {
+    long[] quantities = baseUnitQuantities.get(nameId);
+    return quantities == null ? 0
+        : densityTable.convertibleBaseQuantity(nameId, quantities, type);
+  }
+  
+  /**
+   * Checks if there was enough of every ingredient of a recipe when the snapshot was taken.
+   * Gives the same answer as {@link FoodStorage#hasEnoughIngredientsForRecipe} on the storage.
+   *
+   * @param recipe the recipe to check
+   * @return true if all required ingredients are available in sufficient quantities
+   */
+  boolean hasEnoughIngredientsForRecipe(Recipe recipe) {
+    return recipe.getIngredientsList().stream()
+        .allMatch(recipeIngredient -> getAvailableBaseQuantity(recipeIngredient.findNameId(),
+            recipeIngredient.getUnitMeasurement().getType())
+            >= recipeIngredient.getBaseQuantity());
+  }
+}
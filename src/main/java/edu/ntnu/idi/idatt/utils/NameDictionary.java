@@ -0,0 +1,116 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Utility class that gives every ingredient name a number.
+ *
+ * <p>The first time a name is seen, its key from {@link NameNormalizer} is given the next
+ * free id, starting at 0. Every spelling of the name that gives the same key gets the same id,
+ * and the id never changes while the program runs. The key of each name is stored once, and
+ * ingredients, the food storage and the cookbook refer to it by id, so matching names is a
+ * comparison of two ints.</p>
+ *
+ * <p>A name that is given already normalized, like a key read back from storage, is found
+ * by its key without normalizing it again. Other spellings are normalized every time, so
+ * only the keys are kept and free-form names do not make the dictionary grow. The class
+ * can be used from several threads at once.</p>
+ *
+ * @author TriLe
+ */
+public final class NameDictionary {
+  /**
+   * The id returned by {@link #find(String)} for a name that has no id.
+   */
+  public static final int UNKNOWN = -1;
+  
+  private static final ConcurrentHashMap<String, Integer> IDS_BY_KEY = new ConcurrentHashMap<>();
+  private static volatile String[] keys = new String[64];
+  private static int size;
+  
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private NameDictionary() {
+  }
+  
+  /**
+   * Retrieves the id of a name, giving it the next free id if the name is new.
+   *
+   * @param name The name, in any case.
+   * @return The id of the name.
+   * @throws IllegalArgumentException if the name is null.
+   */
+  public static int idOf(String name) {
+    Integer id = name == null ? null : IDS_BY_KEY.get(name);
+    if (id != null) {
+      return id;
+    }
+    String key = NameNormalizer.normalize(name);
+    id = IDS_BY_KEY.get(key);
+    return id == null ? register(key) : id;
+  }
+  
+  /**
+   * Retrieves the id of a name without giving it one if it is new.
+   *
+   * @param name The name, in any case.
+   * @return The id of the name, or {@link #UNKNOWN} if the name has no id.
+   * @throws IllegalArgumentException if the name is null.
+   */
+  public static int find(String name) {
+    Integer id = name == null ? null : IDS_BY_KEY.get(name);
+    if (id == null) {
+      id = IDS_BY_KEY.get(NameNormalizer.normalize(name));
+    }
+    return id == null ? UNKNOWN : id;
+  }
+  
+  /**
+   * Retrieves the normalized key of an id.
+   * The same {@code String} instance is returned every time.
+   *
+   * @param id The id of the name.
+   * @return The key of the name.
+   * @throws IllegalArgumentException if no name has the id.
+   */
+  public static String keyOf(int id) {
+    String[] currentKeys = keys;
+    String key = id >= 0 && id < currentKeys.length ? currentKeys[id] : null;
+    if (key == null) {
+      throw new IllegalArgumentException("Unknown name id: " + id);
+    }
+    return key;
+  }
+  
+  /**
+   * Retrieves the number of names that have an id.
+   * Every id is lower than this number.
+   *
+   * @return The number of names.
+   */
+  public static synchronized int size() {
+    return size;
+  }
+  
+  /**
+   * Gives a key the next free id, unless another thread already did.
+   *
+   * @param key The normalized key.
+   * @return The id of the key.
+   */
+  private static synchronized int register(String key) {
+    Integer existing = IDS_BY_KEY.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    int id = size;
+    String[] grown = id == keys.length ? Arrays.copyOf(keys, id * 2) : keys;
+    grown[id] = key;
+    keys = grown;
+    size = id + 1;
+    IDS_BY_KEY.put(key, id);
+    return id;
+  }
+}
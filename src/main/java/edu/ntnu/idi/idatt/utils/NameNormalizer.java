@@ -0,0 +1,40 @@
+package edu.ntnu.idi.idatt.utils;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Utility class for turning names into lookup keys.
+ *
+ * <p>Names typed by users can differ in case, surrounding whitespace and in how special
+ * characters are encoded (for example "é" as one character or as "e" and an accent).
+ * The key of a name is the same for all these variants, so a name can be found with
+ * a single hash lookup instead of comparing it against every stored name.</p>
+ *
+ * <p>The key is made by:
+ * <ul>
+ *   <li>Trimming whitespace</li>
+ *   <li>Unicode normalization (NFKC)</li>
+ *   <li>Case folding, so that for example "ß" and "SS" give the same key</li>
+ * </ul>
+ * </p>
+ *
+ * @author TriLe
+ */
+public class NameNormalizer {
+  
+  /**
+   * Creates the lookup key of a name.
+   *
+   * @param name The name to normalize.
+   * @return The normalized key of the name.
+   * @throws IllegalArgumentException if the name is null.
+   */
+  public static String normalize(String name) {
+    if (name == null) {
+      throw new IllegalArgumentException("Name cannot be null");
+    }
+    String normalized = Normalizer.normalize(name.trim(), Normalizer.Form.NFKC);
+    return normalized.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+  }
+}
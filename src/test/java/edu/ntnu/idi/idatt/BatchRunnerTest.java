@@ -0,0 +1,132 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.console.BatchRunner;
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Batch Runner Tests")
+class BatchRunnerTest {
+  
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+  private BatchRunner batchRunner;
+  private StringWriter output;
+  
+  @BeforeEach
+  void setUp() {
+    foodStorage = new FoodStorage();
+    cookbook = new Cookbook();
+    batchRunner = new BatchRunner(foodStorage, cookbook);
+    output = new StringWriter();
+  }
+  
+  // Runs the commands and returns the number of failed commands
+  private int run(String commands) throws IOException {
+    return batchRunner.run(new BufferedReader(new StringReader(commands)),
+        new PrintWriter(output));
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Run Commands Without Prompts and Report Each Result")
+    void testRunCommands() throws IOException {
+      Recipe recipe = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 1);
+      recipe.addIngredientToRecipe(new Ingredient("Milk", 2, Unit.DESILITRE, 0));
+      cookbook.addRecipeToCookbook(recipe);
+      
+      int failed = run("""
+          # Nightly import
+          add Milk 1 L 2026-12-01 20
+          add "Olive oil" 500 mL - 80.5
+          
+          remove milk 0.2
+          cook pancakes 2
+          value
+          """);
+      
+      assertEquals(0, failed);
+      String[] lines = output.toString().split(System.lineSeparator());
+      assertEquals(6, lines.length);
+      assertEquals("2: OK added 1.0 L Milk", lines[0]);
+      assertEquals("3: OK added 500.0 mL Olive oil", lines[1]);
+      assertEquals("6: OK cooked 2.0 portions of Pancakes", lines[3]);
+      assertEquals("7: OK total value 100.50 NOK", lines[4]);
+      assertTrue(lines[5].startsWith("Ran 5 commands in "));
+      assertTrue(lines[5].endsWith("5 succeeded, 0 failed"));
+      assertEquals(0.4, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Run Many Commands in One Pass")
+    void testManyCommands() throws IOException {
+      StringBuilder commands = new StringBuilder();
+      for (int i = 0; i < 10_000; i++) {
+        commands.append("add Item").append(i % 100).append(" 1 kg - 2\n");
+      }
+      
+      assertEquals(0, run(commands.toString()));
+      assertEquals(100, foodStorage.getIngredientKeys().size());
+      assertEquals(100, foodStorage.getTotalQuantity("item7", Unit.KILOGRAM), 1e-9);
+      assertEquals(100, foodStorage.getBatchCount());
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Failed Commands Are Reported and the Run Goes On")
+    void testFailedCommands() throws IOException {
+      int failed = run("""
+          add Milk one L - 20
+          add Milk 1 NOK - 20
+          add Milk 1 L 2026-13-01 20
+          remove Salt 1
+          cook Soup 1
+          fly away
+          add "Milk 1 L - 20
+          add Egg 6 pcs - 30
+          """);
+      
+      assertEquals(7, failed);
+      String[] lines = output.toString().split(System.lineSeparator());
+      assertEquals("2: ERROR Invalid unit: NOK", lines[1]);
+      assertEquals("4: ERROR Ingredient salt does not exist in storage.", lines[3]);
+      assertEquals("5: ERROR Recipe Soup does not exist in the cookbook.", lines[4]);
+      assertEquals("6: ERROR Unknown command: fly", lines[5]);
+      assertEquals("7: ERROR Missing closing quote", lines[6]);
+      assertTrue(lines[7].startsWith("8: OK"));
+      assertTrue(lines[8].endsWith("1 succeeded, 7 failed"));
+      assertEquals(1, foodStorage.getBatchCount());
+    }
+    
+    @Test
+    @DisplayName("A Runner Needs a Storage and a Cookbook")
+    void testInvalidRunner() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          new BatchRunner(null, cookbook));
+      assertEquals("Food storage and cookbook cannot be null", exception.getMessage());
+    }
+  }
+}
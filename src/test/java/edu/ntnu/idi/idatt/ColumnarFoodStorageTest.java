@@ -0,0 +1,257 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ColumnarFoodStorage;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Test for ColumnarFoodStorage class")
+class ColumnarFoodStorageTest {
+  private ColumnarFoodStorage foodStorage;
+  
+  @BeforeEach
+  void setUp() {
+    foodStorage = new ColumnarFoodStorage();
+  }
+  
+  // Compares the batches of two lists by name, quantity, date and price
+  private void assertSameBatches(List<Ingredient> expected, List<Ingredient> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getName(), actual.get(i).getName());
+      assertEquals(expected.get(i).getQuantity(), actual.get(i).getQuantity(), 1e-9);
+      assertEquals(expected.get(i).getExpirationDate(), actual.get(i).getExpirationDate());
+      assertEquals(expected.get(i).getPrice(), actual.get(i).getPrice());
+    }
+  }
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Test that batches with the same date and price are merged")
+    void testMergeBatches() {
+      LocalDate date = LocalDate.now().plusDays(3);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, date, 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("milk", 2, Unit.LITRE, date, 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, 20));
+      
+      assertEquals(2, foodStorage.getBatchCount());
+      assertEquals(4, foodStorage.getTotalQuantity("MILK", Unit.LITRE), 1e-9);
+      assertEquals(40, foodStorage.getTotalValue());
+      assertEquals(3, foodStorage.searchForIngredientsInFoodStorage("Milk").getFirst()
+          .getQuantity(), 1e-9);
+      
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Milk", 1, Unit.LITRE, date.minusDays(1), 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, date, 25));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Milk", 1, Unit.LITRE, date.plusDays(1), 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 5, Unit.LITRE, date, 25));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 5, Unit.LITRE, 20));
+      assertEquals(5, foodStorage.getBatchCount());
+      assertEquals(17, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Test that removal takes the batch that expires first and keeps undated last")
+    void testRemoveFirstExpiring() {
+      LocalDate today = LocalDate.now();
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 6, Unit.PIECES, 30));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Egg", 4, Unit.PIECES, today.plusDays(5), 20));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Egg", 2, Unit.PIECES, today.plusDays(1), 10));
+      
+      assertEquals(3, foodStorage.removeIngredientFromFoodStorage("egg", 3));
+      
+      List<Ingredient> batches = foodStorage.searchForIngredientsInFoodStorage("Egg");
+      assertEquals(2, batches.size());
+      assertEquals(3, batches.get(0).getQuantity(), 1e-9);
+      assertEquals(today.plusDays(5), batches.get(0).getExpirationDate());
+      assertEquals(null, batches.get(1).getExpirationDate());
+      assertEquals(50, foodStorage.getTotalValue());
+      
+      foodStorage.removeIngredientFromFoodStorage("Egg", 9);
+      assertFalse(foodStorage.ingredientExist("Egg"));
+      assertTrue(foodStorage.isEmpty());
+      assertTrue(foodStorage.getIngredientKeys().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Test that removal only takes rows of the unit type of the first batch")
+    void testRemoveSkipsOtherUnitTypes() {
+      LocalDate today = LocalDate.now();
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Cheese", 1, Unit.KILOGRAM, today.plusDays(1), 30));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Cheese", 2, Unit.PIECES, today.plusDays(2), 15));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Cheese", 500, Unit.GRAM, today.plusDays(3), 20));
+      
+      assertEquals(1.2,
+          foodStorage.removeIngredientFromFoodStorage("cheese", 1.2, Unit.KILOGRAM), 1e-9);
+      
+      List<Ingredient> batches = foodStorage.searchForIngredientsInFoodStorage("Cheese");
+      assertEquals(2, batches.size());
+      assertEquals(2, batches.get(0).getQuantity(), 1e-9);
+      assertEquals(Unit.GRAM.toFixedPoint(300), batches.get(1).getBaseQuantity());
+      assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("cheese", 3, Unit.KILOGRAM));
+      assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("cheese", 1));
+      assertEquals(2, foodStorage.removeIngredientFromFoodStorage("cheese", 2, Unit.PIECES));
+      assertEquals(300, foodStorage.removeIngredientFromFoodStorage("cheese", 300));
+      assertFalse(foodStorage.ingredientExist("cheese"));
+    }
+    
+    @Test
+    @DisplayName("Test that the columns are compacted when most rows are removed")
+    void testCompaction() {
+      LocalDate date = LocalDate.now().plusDays(10);
+      for (int i = 0; i < 200; i++) {
+        foodStorage.addIngredientToFoodStorage(
+            new Ingredient("Item" + (i % 4), 1, Unit.PIECES, date.plusDays(i), 1));
+      }
+      assertEquals(200, foodStorage.getRowCount());
+      
+      for (int i = 0; i < 4; i++) {
+        foodStorage.removeIngredientFromFoodStorage("Item" + i, 45);
+      }
+      
+      assertEquals(20, foodStorage.getBatchCount());
+      assertTrue(foodStorage.getRowCount() < 200);
+      assertEquals(5, foodStorage.getTotalQuantity("item3", Unit.PIECES), 1e-9);
+      assertEquals(date.plusDays(183), foodStorage.searchForIngredientsInFoodStorage("Item3")
+          .getFirst().getExpirationDate());
+      assertEquals(20, foodStorage.getIngredientsExpiringAfter(date).size());
+    }
+    
+    @Test
+    @DisplayName("Test that a random sequence of operations gives the same state as FoodStorage")
+    void testParityWithFoodStorage() {
+      FoodStorage reference = new FoodStorage();
+      Random random = new Random(42);
+      LocalDate today = LocalDate.now();
+      
+      for (int i = 0; i < 5_000; i++) {
+        String name = "Item" + random.nextInt(12);
+        if (random.nextInt(3) > 0) {
+          int day = random.nextInt(40) - 10;
+          double quantity = 1 + random.nextInt(5);
+          double price = Math.floorMod(day, 3) * 5;
+          for (FoodStorage storage : List.of(reference, foodStorage)) {
+            storage.addIngredientToFoodStorage(day == -10
+                ? new Ingredient(name, quantity, Unit.KILOGRAM, price)
+                : new Ingredient(name, quantity, Unit.KILOGRAM, today.plusDays(day), price));
+          }
+        } else if (reference.ingredientExist(name)) {
+          double quantity = 1 + random.nextInt(8);
+          quantity = Math.min(quantity, reference.getTotalQuantity(name, Unit.KILOGRAM));
+          assertEquals(reference.removeIngredientFromFoodStorage(name, quantity),
+              foodStorage.removeIngredientFromFoodStorage(name, quantity), 1e-9);
+        }
+      }
+      
+      assertEquals(reference.getBatchCount(), foodStorage.getBatchCount());
+      assertEquals(reference.getTotalValue(), foodStorage.getTotalValue(), 1e-9);
+      assertEquals(reference.getIngredientKeys(), foodStorage.getIngredientKeys());
+      for (String key : reference.getIngredientKeys()) {
+        assertEquals(reference.getTotalQuantity(key, Unit.GRAM),
+            foodStorage.getTotalQuantity(key, Unit.GRAM), 1e-9);
+      }
+      assertSameBatches(reference.getExpiredIngredients(), foodStorage.getExpiredIngredients());
+      assertSameBatches(reference.getIngredientsExpiringAfter(today.plusDays(10)),
+          foodStorage.getIngredientsExpiringAfter(today.plusDays(10)));
+    }
+    
+    @Test
+    @DisplayName("Test that cooking gives the same state as FoodStorage until an item is short")
+    void testCookParityWithFoodStorage() {
+      FoodStorage reference = new FoodStorage();
+      LocalDate today = LocalDate.now();
+      for (int i = 0; i < 300; i++) {
+        for (FoodStorage storage : List.of(reference, foodStorage)) {
+          storage.addIngredientToFoodStorage(i % 2 == 0
+              ? new Ingredient("Item" + i % 3, 1 + i % 4, Unit.KILOGRAM, today.plusDays(i), 5)
+              : new Ingredient("Item" + i % 3, 100 * (1 + i % 4), Unit.GRAM,
+                  today.plusDays(i), 10));
+        }
+      }
+      Recipe recipe = new Recipe("Stew", "Test", "Test", 2);
+      recipe.addIngredientToRecipe(new Ingredient("Item0", 300, Unit.GRAM, 0));
+      recipe.addIngredientToRecipe(new Ingredient("Item1", 0.5, Unit.KILOGRAM, 0));
+      recipe.addIngredientToRecipe(new Ingredient("Item2", 2, Unit.KILOGRAM, 0));
+      
+      int cooked = 0;
+      while (true) {
+        try {
+          reference.cook(recipe, 3);
+        } catch (IllegalArgumentException e) {
+          Exception exception = assertThrows(IllegalArgumentException.class, () ->
+              foodStorage.cook(recipe, 3));
+          assertEquals(e.getMessage(), exception.getMessage());
+          break;
+        }
+        foodStorage.cook(recipe, 3);
+        cooked++;
+      }
+      
+      assertTrue(cooked > 10);
+      assertEquals(reference.getBatchCount(), foodStorage.getBatchCount());
+      assertEquals(reference.getTotalValue(), foodStorage.getTotalValue(), 1e-9);
+      for (String key : reference.getIngredientKeys()) {
+        assertEquals(reference.getTotalQuantity(key, Unit.GRAM),
+            foodStorage.getTotalQuantity(key, Unit.GRAM), 1e-6);
+      }
+      assertSameBatches(reference.getIngredientsExpiringAfter(today),
+          foodStorage.getIngredientsExpiringAfter(today));
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Test that adding null throws IllegalArgumentException")
+    void testAddNull() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.addIngredientToFoodStorage(null));
+      assertEquals("Ingredient cannot be null", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Test that removing a missing ingredient throws IllegalArgumentException")
+    void testRemoveMissing() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("Milk", 1));
+      assertEquals("Ingredient milk does not exist in storage.", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Test that removing more than available throws IllegalArgumentException")
+    void testRemoveTooMuch() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 2, Unit.LITRE, 20));
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("Milk", 3));
+      assertEquals("Invalid quantity to remove: 3.0. Available: 2.0", exception.getMessage());
+      assertEquals(2, foodStorage.getTotalQuantity("Milk", Unit.LITRE), 1e-9);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ConcurrentFoodStorage;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Stress tests for ConcurrentFoodStorage")
+class ConcurrentFoodStorageTest {
+  private static final int THREADS = 8;
+  private static final int NAMES = 16;
+  private static final int ITERATIONS = 5_000;
+  
+  private ConcurrentFoodStorage foodStorage;
+  
+  @BeforeEach
+  void setUp() {
+    foodStorage = new ConcurrentFoodStorage();
+  }
+  
+  // Starts the tasks at the same time on their own threads and waits for all of them
+  private void runConcurrently(List<Runnable> tasks) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (Runnable task : tasks) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        task.run();
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+  }
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Concurrent adds and FIFO removals conserve quantities")
+    void concurrentAddsAndRemovalsConserveQuantities() throws Exception {
+      AtomicLongArray added = new AtomicLongArray(NAMES);
+      AtomicLongArray removed = new AtomicLongArray(NAMES);
+      List<Runnable> tasks = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final long seed = t;
+        tasks.add(() -> {
+          Random random = new Random(seed);
+          for (int i = 0; i < ITERATIONS; i++) {
+            int name = random.nextInt(NAMES);
+            int quantity = 1 + random.nextInt(5);
+            foodStorage.addIngredientToFoodStorage(new Ingredient("Item" + name, quantity,
+                Unit.PIECES, LocalDate.now().plusDays(1 + random.nextInt(30)),
+                random.nextInt(3)));
+            added.addAndGet(name, quantity);
+            
+            int toRemove = 1 + random.nextInt(6);
+            try {
+              foodStorage.removeIngredientFromFoodStorage("item" + name, toRemove);
+              removed.addAndGet(name, toRemove);
+            } catch (IllegalArgumentException e) {
+              // Not enough in storage right now, which is fine
+            }
+          }
+        });
+      }
+      
+      runConcurrently(tasks);
+      
+      int batchCount = 0;
+      for (int name = 0; name < NAMES; name++) {
+        long expected = added.get(name) - removed.get(name);
+        List<Ingredient> batches = foodStorage.searchForIngredientsInFoodStorage("Item" + name);
+        double inBatches = batches.stream().mapToDouble(Ingredient::getQuantity).sum();
+        
+        assertEquals(expected, inBatches, 1e-6);
+        assertEquals(expected, foodStorage.getTotalQuantity("Item" + name, Unit.PIECES), 1e-6);
+        batchCount += batches.size();
+      }
+      assertEquals(batchCount, foodStorage.getBatchCount());
+    }
+    
+    @Test
+    @DisplayName("Concurrent removals on the same name never over-consume")
+    void concurrentRemovalsNeverOverConsume() throws Exception {
+      final int stock = 2_000;
+      for (int day = 1; day <= 20; day++) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", stock / 20.0,
+            Unit.PIECES, LocalDate.now().plusDays(day), 5));
+      }
+      AtomicLong consumed = new AtomicLong();
+      List<Runnable> tasks = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        tasks.add(() -> {
+          while (true) {
+            try {
+              foodStorage.removeIngredientFromFoodStorage("egg", 1);
+              consumed.incrementAndGet();
+            } catch (IllegalArgumentException e) {
+              return;
+            }
+          }
+        });
+      }
+      
+      runConcurrently(tasks);
+      
+      assertEquals(stock, consumed.get());
+      assertFalse(foodStorage.ingredientExist("egg"));
+      assertEquals(0, foodStorage.getBatchCount());
+      assertTrue(foodStorage.getIngredientsExpiringAfter(LocalDate.now()).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Concurrent cooks take every ingredient or none")
+    void concurrentCooksAreAtomic() throws Exception {
+      for (int name = 0; name < 4; name++) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Item" + name, 1_000,
+            Unit.PIECES, LocalDate.now().plusDays(1 + name), 1));
+      }
+      List<Recipe> recipes = new ArrayList<>();
+      for (int r = 0; r < 4; r++) {
+        // Every recipe uses three of the four names, in a different order
+        Recipe recipe = new Recipe("Recipe" + r, "Test", "Test", 1);
+        for (int i = 3; i >= 1; i--) {
+          recipe.addIngredientToRecipe(new Ingredient("Item" + (r + i) % 4, 1, Unit.PIECES, 0));
+        }
+        recipes.add(recipe);
+      }
+      AtomicLongArray cooked = new AtomicLongArray(4);
+      List<Runnable> tasks = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        final int offset = t;
+        tasks.add(() -> {
+          for (int i = 0; ; i++) {
+            int r = (i + offset) % 4;
+            try {
+              foodStorage.cook(recipes.get(r), 1);
+              cooked.incrementAndGet(r);
+            } catch (IllegalArgumentException e) {
+              return;
+            }
+          }
+        });
+      }
+      
+      runConcurrently(tasks);
+      
+      for (int name = 0; name < 4; name++) {
+        long used = 0;
+        for (int r = 0; r < 4; r++) {
+          used += (name - r + 4) % 4 != 0 ? cooked.get(r) : 0;
+        }
+        assertEquals(1_000 - used, foodStorage.getTotalQuantity("Item" + name, Unit.PIECES),
+            1e-9);
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Stripe count must be positive")
+    void stripeCountMustBePositive() {
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> new ConcurrentFoodStorage(0));
+      assertEquals("Stripe count must be positive", exception.getMessage());
+    }
+  }
+}
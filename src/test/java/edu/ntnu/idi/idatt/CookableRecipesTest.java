@@ -0,0 +1,137 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.CookableRecipes;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("CookableRecipes Tests")
+class CookableRecipesTest {
+  
+  private Cookbook cookbook;
+  private FoodStorage foodStorage;
+  private Recipe pastaDish;
+  
+  @BeforeEach
+  void setUp() {
+    cookbook = new Cookbook();
+    foodStorage = new FoodStorage();
+    pastaDish = new Recipe("PastaDish", "Simple pasta dish", "Cook pasta and add tomato", 2);
+    pastaDish.addIngredientToRecipe(new Ingredient("Tomato", 1, Unit.KILOGRAM, 20.0));
+    pastaDish.addIngredientToRecipe(new Ingredient("Pasta", 500, Unit.GRAM, 30.0));
+    cookbook.addRecipeToCookbook(pastaDish);
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Recipe Becomes Cookable when Ingredients are Added")
+    void testRecipeBecomesCookable() {
+      CookableRecipes cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
+      Set<Recipe> view = cookableRecipes.getCookableRecipes();
+      assertTrue(view.isEmpty());
+      
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Tomato", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 20.0));
+      assertTrue(view.isEmpty());
+      
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "pasta", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 30.0));
+      assertEquals(Set.of(pastaDish), view);
+    }
+    
+    @Test
+    @DisplayName("Recipe is no Longer Cookable when Ingredients are Used")
+    void testRecipeNoLongerCookable() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Tomato", 1.5, Unit.KILOGRAM, LocalDate.now().plusDays(5), 20.0));
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 30.0));
+      CookableRecipes cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
+      assertEquals(Set.of(pastaDish), cookableRecipes.getCookableRecipes());
+      
+      foodStorage.removeIngredientFromFoodStorage("Tomato", 1);
+      assertTrue(cookableRecipes.getCookableRecipes().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("View Follows Recipes Added to and Removed from the Cookbook")
+    void testViewFollowsCookbook() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 30.0));
+      CookableRecipes cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
+      
+      Recipe plainPasta = new Recipe("PlainPasta", "Plain pasta", "Cook pasta", 1);
+      plainPasta.addIngredientToRecipe(new Ingredient("Pasta", 200, Unit.GRAM, 30.0));
+      cookbook.addRecipeToCookbook(plainPasta);
+      assertEquals(Set.of(plainPasta), cookableRecipes.getCookableRecipes());
+      
+      cookbook.removeRecipeFromCookbook("PlainPasta");
+      assertTrue(cookableRecipes.getCookableRecipes().isEmpty());
+    }
+    
+    @Test
+    @DisplayName("View is Checked Again when the Density Table Changes")
+    void testViewFollowsDensityTable() {
+      Recipe plainPasta = new Recipe("PlainPasta", "Plain pasta", "Cook pasta", 1);
+      plainPasta.addIngredientToRecipe(new Ingredient("Pasta", 2, Unit.DESILITRE, 30.0));
+      cookbook.addRecipeToCookbook(plainPasta);
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 30.0));
+      CookableRecipes cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
+      assertTrue(cookableRecipes.getCookableRecipes().isEmpty());
+      
+      foodStorage.setDensityTable(new DensityTable(Map.of("Pasta", 0.6)));
+      assertEquals(Set.of(plainPasta), cookableRecipes.getCookableRecipes());
+      
+      foodStorage.setDensityTable(DensityTable.EMPTY);
+      assertTrue(cookableRecipes.getCookableRecipes().isEmpty());
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Create View with Null Cookbook")
+    void testNullCookbook() {
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> CookableRecipes.create(null, foodStorage));
+      assertEquals("Cookbook cannot be null", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Create View with Null Food Storage")
+    void testNullFoodStorage() {
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> CookableRecipes.create(cookbook, null));
+      assertEquals("Food storage cannot be null", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("View Cannot be Modified")
+    void testViewIsUnmodifiable() {
+      CookableRecipes cookableRecipes = CookableRecipes.create(cookbook, foodStorage);
+      assertThrows(UnsupportedOperationException.class,
+          () -> cookableRecipes.getCookableRecipes().add(pastaDish));
+    }
+  }
+}
@@ -12,8 +12,10 @@ import edu.ntnu.idi.idatt.model.Unit;
 import edu.ntnu.idi.idatt.storage.Cookbook;
 import edu.ntnu.idi.idatt.storage.FoodStorage;
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -56,6 +58,18 @@ class CookbookTest {
       assertEquals("Pasta", result.get().getKey());
     }
     
+    @Test
+    @DisplayName("Search and Remove Recipe Ignoring Case")
+    void testSearchAndRemoveIgnoringCase() {
+      cookbook.addRecipeToCookbook(new Recipe("Pancakes", "Fluffy", "Fry the batter", 4));
+      
+      assertTrue(cookbook.containsRecipe("PANCAKES"));
+      assertEquals("Pancakes", cookbook.searchForRecipeInCookbook("pancakes")
+          .orElseThrow().getKey());
+      assertTrue(cookbook.removeRecipeFromCookbook("pAnCaKeS"));
+      assertFalse(cookbook.containsRecipe("Pancakes"));
+    }
+    
     @Test
     @DisplayName("Remove Recipe Successfully")
     void testRemoveRecipe() {
@@ -93,12 +107,68 @@ class CookbookTest {
       assertEquals(1, suggestedRecipes.size());
       assertEquals("PastaDish", suggestedRecipes.get(0).getName());
     }
+    
+    @Test
+    @DisplayName("Suggest Recipes Matching Ingredient Names Case-Insensitively")
+    void testGetSuggestedRecipesIgnoresCase() {
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "tomato", 2, Unit.KILOGRAM,
+          LocalDate.now().plusDays(5), 20.0));
+      
+      Recipe recipe = new Recipe("Salad", "Tomato salad", "Cut the tomatoes", 1);
+      recipe.addIngredientToRecipe(new Ingredient(
+          "TOMATO ", 500, Unit.GRAM, 20.0));
+      cookbook.addRecipeToCookbook(recipe);
+      
+      List<Recipe> suggestedRecipes = cookbook.getSuggestedRecipes(foodStorage);
+      assertEquals(1, suggestedRecipes.size());
+      assertEquals("Salad", suggestedRecipes.get(0).getName());
+    }
+    
+    @Test
+    @DisplayName("Parallel Suggestion Gives the Same Recipes as Sequential")
+    void testGetSuggestedRecipesInParallel() {
+      FoodStorage foodStorage = new FoodStorage();
+      for (int i = 0; i < 20; i++) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient(
+            "Item" + i, 1 + i, Unit.KILOGRAM,
+            LocalDate.now().plusDays(5), 10.0));
+      }
+      for (int i = 0; i < 500; i++) {
+        Recipe recipe = new Recipe("Recipe" + i, "Recipe number " + i, "Mix", 1);
+        recipe.addIngredientToRecipe(new Ingredient(
+            "Item" + (i % 25), 1 + i % 7, Unit.KILOGRAM, 10.0));
+        recipe.addIngredientToRecipe(new Ingredient(
+            "item" + (i % 13), 500, Unit.GRAM, 10.0));
+        cookbook.addRecipeToCookbook(recipe);
+      }
+      
+      Set<Recipe> sequential = new HashSet<>(cookbook.getSuggestedRecipes(foodStorage));
+      List<Recipe> parallel = cookbook.getSuggestedRecipesInParallel(foodStorage, 8);
+      assertFalse(sequential.isEmpty());
+      assertEquals(sequential.size(), parallel.size());
+      assertEquals(sequential, new HashSet<>(parallel));
+    }
   }
   
   @Nested
   @DisplayName("Negative Tests")
   class NegativeTests {
     
+    @Test
+    @DisplayName("Recipes Cannot Be Changed Through getRecipes")
+    void testGetRecipesIsReadOnly() {
+      Recipe recipe = new Recipe("Pasta", "Delicious pasta", "Cook pasta and add sauce", 2);
+      cookbook.addRecipeToCookbook(recipe);
+      
+      assertThrows(UnsupportedOperationException.class,
+          () -> cookbook.getRecipes().put("soup", recipe));
+      assertThrows(UnsupportedOperationException.class,
+          () -> cookbook.getRecipes().remove("pasta"));
+      assertEquals(1, cookbook.getRecipes().size());
+    }
+    
     @Test
     @DisplayName("Add Duplicate Recipe")
     void testAddDuplicateRecipe() {
@@ -112,6 +182,19 @@ class CookbookTest {
       assertEquals(1, cookbook.getRecipes().size());
     }
     
+    @Test
+    @DisplayName("Add Duplicate Recipe with Different Case")
+    void testAddDuplicateRecipeDifferentCase() {
+      cookbook.addRecipeToCookbook(new Recipe("Pancakes", "Fluffy", "Fry the batter", 4));
+      boolean result = cookbook.addRecipeToCookbook(
+          new Recipe("pancakes ", "Thin", "Fry the batter thin", 2));
+      
+      assertFalse(result);
+      assertEquals(1, cookbook.getRecipes().size());
+      assertEquals("Fluffy", cookbook.searchForRecipeInCookbook("PANCAKES")
+          .orElseThrow().getValue().getDescription());
+    }
+    
     @Test
     @DisplayName("Add Null Recipe")
     void testAddNullRecipeToCookbook() {
@@ -177,6 +260,50 @@ class CookbookTest {
       assertTrue(suggestedRecipes.isEmpty());
     }
     
+    @Test
+    @DisplayName("Suggest Recipes with Missing Ingredient")
+    void testGetSuggestedRecipesMissingIngredient() {
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM,
+          LocalDate.now().plusDays(5), 30.0));
+      
+      Recipe recipe = new Recipe("PastaDish", "Simple pasta dish", "Cook pasta and add tomato", 2);
+      recipe.addIngredientToRecipe(new Ingredient(
+          "Tomato", 1, Unit.KILOGRAM, 20.0));
+      recipe.addIngredientToRecipe(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM, 30.0));
+      cookbook.addRecipeToCookbook(recipe);
+      
+      assertTrue(cookbook.getSuggestedRecipes(foodStorage).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Suggest Recipes after Recipe is Removed")
+    void testGetSuggestedRecipesAfterRemoval() {
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM,
+          LocalDate.now().plusDays(5), 30.0));
+      
+      Recipe recipe = new Recipe("PlainPasta", "Plain pasta", "Cook pasta", 1);
+      recipe.addIngredientToRecipe(new Ingredient(
+          "Pasta", 1, Unit.KILOGRAM, 30.0));
+      cookbook.addRecipeToCookbook(recipe);
+      cookbook.removeRecipeFromCookbook("PlainPasta");
+      
+      assertTrue(cookbook.getSuggestedRecipes(foodStorage).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Parallel Suggestion with Invalid Threshold")
+    void testGetSuggestedRecipesInParallelInvalidThreshold() {
+      FoodStorage foodStorage = new FoodStorage();
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> cookbook.getSuggestedRecipesInParallel(foodStorage, 0));
+      assertEquals("Parallel threshold must be positive", exception.getMessage());
+    }
+    
     @Test
     @DisplayName("Suggest Recipes with Null Food Storage")
     void testGetSuggestedRecipesNullFoodStorage() {
@@ -0,0 +1,135 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.DensityTable;
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ColumnarFoodStorage;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Density Table Tests")
+class DensityTableTest {
+  
+  // A recipe that needs 2 dL of flour for each portion
+  private Recipe flourRecipe() {
+    Recipe recipe = new Recipe("Bread", "Simple bread", "Mix and bake", 1);
+    recipe.addIngredientToRecipe(new Ingredient("Flour", 2, Unit.DESILITRE, 0));
+    return recipe;
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Convert Between Mass and Volume by Density")
+    void testConvert() {
+      DensityTable densities = DensityTable.withCommonDensities();
+      int flour = NameDictionary.idOf("flour");
+      assertEquals(0.53, densities.getDensity(" FLOUR"));
+      assertEquals(Unit.GRAM.toFixedPoint(106), densities.convertBaseQuantity(flour,
+          Unit.DESILITRE.toFixedPoint(2), Unit.UnitType.VOLUME, Unit.UnitType.MASS), 1);
+      
+      long[] quantities = new long[Unit.UnitType.values().length];
+      quantities[Unit.UnitType.MASS.ordinal()] = Unit.GRAM.toFixedPoint(530);
+      quantities[Unit.UnitType.VOLUME.ordinal()] = Unit.LITRE.toFixedPoint(1);
+      quantities[Unit.UnitType.NUMBER.ordinal()] = Unit.PIECES.toFixedPoint(3);
+      assertEquals(Unit.LITRE.toFixedPoint(2), densities.convertibleBaseQuantity(
+          flour, quantities, Unit.UnitType.VOLUME), 1);
+    }
+    
+    @Test
+    @DisplayName("Recipes in Volume Are Suggested From Stock in Mass")
+    void testFeasibilityAcrossTypes() {
+      Cookbook cookbook = new Cookbook();
+      cookbook.addRecipeToCookbook(flourRecipe());
+      for (FoodStorage foodStorage : List.of(new FoodStorage(), new ColumnarFoodStorage())) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Flour", 2000, Unit.GRAM,
+            LocalDate.now().plusDays(30), 15));
+        assertTrue(cookbook.getSuggestedRecipes(foodStorage).isEmpty());
+        
+        foodStorage.setDensityTable(DensityTable.withCommonDensities());
+        assertEquals(1, cookbook.getSuggestedRecipes(foodStorage).size());
+        assertEquals(1, cookbook.getSuggestedRecipesInParallel(foodStorage, 2).size());
+        assertEquals(2000 / 53.0, foodStorage.getIngredientAvailabilityForRecipe(
+            foodStorage, flourRecipe()).get("Flour"), 1e-4);
+      }
+    }
+    
+    @Test
+    @DisplayName("Cook Takes Batches of Another Type by Density")
+    void testCookAcrossTypes() {
+      for (FoodStorage foodStorage : List.of(new FoodStorage(), new ColumnarFoodStorage())) {
+        foodStorage.setDensityTable(new DensityTable(Map.of("Flour", 0.5)));
+        LocalDate today = LocalDate.now();
+        foodStorage.addIngredientToFoodStorage(
+            new Ingredient("Flour", 50, Unit.GRAM, today.plusDays(1), 5));
+        foodStorage.addIngredientToFoodStorage(
+            new Ingredient("Flour", 1, Unit.DESILITRE, today.plusDays(2), 5));
+        foodStorage.addIngredientToFoodStorage(
+            new Ingredient("Flour", 500, Unit.GRAM, today.plusDays(3), 10));
+        
+        foodStorage.cook(flourRecipe(), 2);
+        
+        List<Ingredient> flour = foodStorage.searchForIngredientsInFoodStorage("flour");
+        assertEquals(1, flour.size());
+        assertEquals(400, flour.get(0).getQuantity(), 1e-6);
+        assertEquals(10, foodStorage.getTotalValue(), 1e-9);
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Invalid Densities Are Rejected")
+    void testInvalidDensities() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          new DensityTable(Map.of("Flour", -0.5)));
+      assertEquals("Density of Flour must be positive", exception.getMessage());
+      assertThrows(IllegalArgumentException.class, () -> new DensityTable(null));
+      assertThrows(IllegalArgumentException.class, () ->
+          DensityTable.EMPTY.with(" ", 1.0));
+      assertThrows(IllegalArgumentException.class, () ->
+          new FoodStorage().setDensityTable(null));
+    }
+    
+    @Test
+    @DisplayName("Ingredients Without a Density Are Only Compared by Type")
+    void testWithoutDensity() {
+      DensityTable densities = DensityTable.withCommonDensities();
+      int stone = NameDictionary.idOf("Stone");
+      assertTrue(Double.isNaN(densities.getDensity("Stone")));
+      assertEquals(0, densities.convertBaseQuantity(stone, Unit.GRAM.toFixedPoint(100),
+          Unit.UnitType.MASS, Unit.UnitType.VOLUME));
+      assertEquals(0, densities.convertBaseQuantity(NameDictionary.idOf("Flour"),
+          Unit.PIECES.toFixedPoint(2), Unit.UnitType.NUMBER, Unit.UnitType.MASS));
+      
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.setDensityTable(densities);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Flour", 100, Unit.GRAM, 5));
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.cook(flourRecipe(), 1));
+      assertTrue(exception.getMessage().startsWith(
+          "Not enough flour to cook Bread. Needed: 2.0, available: 1.88"));
+      assertFalse(foodStorage.hasEnoughIngredientsForRecipe(foodStorage, flourRecipe()));
+      assertEquals(100, foodStorage.getTotalQuantity("flour", Unit.GRAM), 1e-9);
+    }
+  }
+}
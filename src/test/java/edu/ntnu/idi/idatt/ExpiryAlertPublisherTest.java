@@ -0,0 +1,257 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ExpiryAlert;
+import edu.ntnu.idi.idatt.storage.ExpiryAlertPublisher;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Test for ExpiryAlertPublisher class")
+class ExpiryAlertPublisherTest {
+  private static final LocalDate START = LocalDate.of(2025, 1, 10);
+  
+  private ManualClock clock;
+  private FoodStorage foodStorage;
+  private ExpiryAlertPublisher alertPublisher;
+  
+  // A clock that only moves when the test moves it
+  private static final class ManualClock extends Clock {
+    private Instant instant;
+    
+    ManualClock(LocalDate date) {
+      this.instant = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+    
+    void advanceDays(long days) {
+      instant = instant.plusSeconds(days * 86_400);
+    }
+    
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+  
+  // A subscriber that requests a fixed number of alerts and keeps them
+  private static final class CollectingSubscriber implements Flow.Subscriber<ExpiryAlert> {
+    private final long demand;
+    private final List<ExpiryAlert> alerts = new ArrayList<>();
+    private boolean completed;
+    
+    CollectingSubscriber(long demand) {
+      this.demand = demand;
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      if (demand > 0) {
+        subscription.request(demand);
+      }
+    }
+    
+    @Override
+    public void onNext(ExpiryAlert alert) {
+      alerts.add(alert);
+    }
+    
+    @Override
+    public void onError(Throwable throwable) {
+    }
+    
+    @Override
+    public void onComplete() {
+      completed = true;
+    }
+    
+    List<String> names() {
+      return alerts.stream().map(alert -> alert.ingredient().getName()).toList();
+    }
+  }
+  
+  @BeforeEach
+  void setUp() {
+    clock = new ManualClock(START);
+    foodStorage = new FoodStorage();
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Milk", 1, Unit.LITRE, START.plusDays(2), 20));
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Egg", 6, Unit.PIECES, START.plusDays(5), 30));
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Cheese", 1, Unit.KILOGRAM, START.plusDays(40), 90));
+    // Delivers the alerts on the calling thread, so they can be checked right away
+    alertPublisher = ExpiryAlertPublisher.create(foodStorage, clock, Runnable::run, 4);
+  }
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Test that batches crossing the horizon are announced once")
+    void testCrossingHorizon() {
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      alertPublisher.expiringWithin(3).subscribe(subscriber);
+      
+      alertPublisher.advance();
+      assertTrue(subscriber.alerts.isEmpty());
+      
+      clock.advanceDays(2);
+      alertPublisher.advance();
+      alertPublisher.advance();
+      assertEquals(List.of("Egg"), subscriber.names());
+      assertEquals(3, subscriber.alerts.getFirst().daysLeft());
+      assertEquals(3, subscriber.alerts.getFirst().horizonDays());
+      
+      clock.advanceDays(35);
+      alertPublisher.advance();
+      assertEquals(List.of("Egg", "Cheese"), subscriber.names());
+    }
+    
+    @Test
+    @DisplayName("Test that a batch added inside the horizon is announced")
+    void testAddedInsideHorizon() {
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      alertPublisher.expiringWithin(7).subscribe(subscriber);
+      
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Butter", 1, Unit.KILOGRAM, START.plusDays(7), 40));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Flour", 1, Unit.KILOGRAM, START.plusDays(8), 10));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Yoghurt", 1, Unit.LITRE, START.minusDays(1), 25));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1, Unit.KILOGRAM, 10));
+      
+      assertEquals(List.of("Butter", "Yoghurt"), subscriber.names());
+      assertEquals(-1, subscriber.alerts.get(1).daysLeft());
+      
+      clock.advanceDays(1);
+      alertPublisher.advance();
+      assertEquals(List.of("Butter", "Yoghurt", "Flour"), subscriber.names());
+    }
+    
+    @Test
+    @DisplayName("Test that subscribers with different horizons get their own alerts")
+    void testSeveralHorizons() {
+      CollectingSubscriber soon = new CollectingSubscriber(Long.MAX_VALUE);
+      CollectingSubscriber later = new CollectingSubscriber(Long.MAX_VALUE);
+      CollectingSubscriber alsoLater = new CollectingSubscriber(Long.MAX_VALUE);
+      alertPublisher.expiringWithin(1).subscribe(soon);
+      alertPublisher.expiringWithin(30).subscribe(later);
+      alertPublisher.expiringWithin(30).subscribe(alsoLater);
+      
+      clock.advanceDays(10);
+      alertPublisher.advance();
+      
+      assertEquals(List.of("Milk", "Egg"), soon.names());
+      assertEquals(List.of("Cheese"), later.names());
+      assertEquals(later.names(), alsoLater.names());
+      assertSame(alertPublisher.expiringWithin(30), alertPublisher.expiringWithin(30));
+    }
+    
+    @Test
+    @DisplayName("Test that a slow subscriber neither blocks the storage nor the others")
+    void testSlowSubscriber() {
+      CollectingSubscriber fast = new CollectingSubscriber(Long.MAX_VALUE);
+      CollectingSubscriber slow = new CollectingSubscriber(0);
+      alertPublisher.expiringWithin(10).subscribe(fast);
+      alertPublisher.expiringWithin(10).subscribe(slow);
+      
+      for (int i = 0; i < 20; i++) {
+        foodStorage.addIngredientToFoodStorage(
+            new Ingredient("Item" + i, 1, Unit.GRAM, START.plusDays(1), 1));
+      }
+      
+      assertEquals(20, fast.alerts.size());
+      assertTrue(slow.alerts.isEmpty());
+      assertTrue(alertPublisher.getDroppedCount() >= 20 - 4);
+      assertEquals(23, foodStorage.getBatchCount());
+    }
+    
+    @Test
+    @DisplayName("Test that added batches are announced on the executor, not by the writer")
+    void testAddedOnExecutor() {
+      List<Runnable> tasks = new ArrayList<>();
+      ExpiryAlertPublisher queued = ExpiryAlertPublisher.create(foodStorage, clock, tasks::add, 4);
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      queued.expiringWithin(7).subscribe(subscriber);
+      while (!tasks.isEmpty()) {
+        tasks.removeFirst().run();
+      }
+      
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Butter", 1, Unit.KILOGRAM, START.plusDays(7), 40));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Cream", 1, Unit.LITRE, START.plusDays(1), 30));
+      assertTrue(subscriber.alerts.isEmpty());
+      assertEquals(1, tasks.size());
+      
+      while (!tasks.isEmpty()) {
+        tasks.removeFirst().run();
+      }
+      assertEquals(List.of("Butter", "Cream"), subscriber.names());
+      queued.close();
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Test that invalid arguments throw IllegalArgumentException")
+    void testInvalidArguments() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          ExpiryAlertPublisher.create(null, clock));
+      assertEquals("Food storage cannot be null", exception.getMessage());
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          ExpiryAlertPublisher.create(foodStorage, clock, Runnable::run, 0));
+      assertEquals("Buffer capacity must be positive", exception.getMessage());
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          alertPublisher.expiringWithin(-1));
+      assertEquals("Horizon cannot be negative", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Test that closing completes the subscribers and stops the alerts")
+    void testClosed() {
+      CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+      alertPublisher.expiringWithin(3).subscribe(subscriber);
+      alertPublisher.start();
+      alertPublisher.close();
+      
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Butter", 1, Unit.KILOGRAM, START, 40));
+      assertTrue(subscriber.completed);
+      assertTrue(subscriber.alerts.isEmpty());
+      assertThrows(IllegalStateException.class, () -> alertPublisher.expiringWithin(3));
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.ExpirySweeper;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Test for ExpirySweeper class")
+class ExpirySweeperTest {
+  private static final LocalDate START = LocalDate.of(2025, 1, 10);
+  
+  private ManualClock clock;
+  private FoodStorage foodStorage;
+  private ExpirySweeper expirySweeper;
+  
+  // A clock that only moves when the test moves it
+  private static final class ManualClock extends Clock {
+    private Instant instant;
+    
+    ManualClock(LocalDate date) {
+      this.instant = date.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+    
+    void advanceDays(long days) {
+      instant = instant.plusSeconds(days * 86_400);
+    }
+    
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public Instant instant() {
+      return instant;
+    }
+  }
+  
+  @BeforeEach
+  void setUp() {
+    clock = new ManualClock(START);
+    foodStorage = new FoodStorage();
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Milk", 1, Unit.LITRE, START.minusDays(2), 20));
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Egg", 6, Unit.PIECES, START.plusDays(1), 30));
+    foodStorage.addIngredientToFoodStorage(
+        new Ingredient("Cheese", 1, Unit.KILOGRAM, START.plusDays(100), 90));
+    foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1, Unit.KILOGRAM, 10));
+    expirySweeper = ExpirySweeper.create(foodStorage, clock);
+  }
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Test that batches that expired before the sweeper was made are found")
+    void testInitiallyExpired() {
+      List<Ingredient> expired = expirySweeper.getExpiredIngredients();
+      assertEquals(1, expired.size());
+      assertEquals("Milk", expired.getFirst().getName());
+      assertEquals(20, expirySweeper.getExpiredValue(), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Test that batches expire when the day passes")
+    void testExpireAtDayBoundary() {
+      clock.advanceDays(1);
+      assertEquals(1, expirySweeper.getExpiredIngredients().size());
+      
+      clock.advanceDays(1);
+      List<Ingredient> expired = expirySweeper.getExpiredIngredients();
+      assertEquals(2, expired.size());
+      assertEquals("Egg", expired.get(1).getName());
+      assertEquals(50, expirySweeper.getExpiredValue(), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Test that batches beyond the wheel expire after it has turned")
+    void testOverflowBatches() {
+      clock.advanceDays(100);
+      assertEquals(2, expirySweeper.getExpiredIngredients().size());
+      
+      clock.advanceDays(1);
+      assertEquals(3, expirySweeper.getExpiredIngredients().size());
+      assertEquals(140, expirySweeper.getExpiredValue(), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Test that the sweeper follows additions and removals in the storage")
+    void testFollowsStorage() {
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Butter", 1, Unit.KILOGRAM, START.minusDays(1), 40));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Cheese", 1, Unit.KILOGRAM, START.plusDays(3), 50));
+      assertEquals(60, expirySweeper.getExpiredValue(), 1e-9);
+      
+      foodStorage.removeIngredientFromFoodStorage("milk", 1);
+      foodStorage.removeIngredientFromFoodStorage("cheese", 1);
+      assertEquals(List.of("Butter"), expirySweeper.getExpiredIngredients().stream()
+          .map(Ingredient::getName).toList());
+      
+      clock.advanceDays(200);
+      assertEquals(3, expirySweeper.getExpiredIngredients().size());
+      assertEquals(160, expirySweeper.getExpiredValue(), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Test that the sweeper gives the same result as the storage")
+    void testSameAsStorage() {
+      FoodStorage storage = new FoodStorage();
+      ExpirySweeper sweeper = ExpirySweeper.create(storage, Clock.systemDefaultZone());
+      LocalDate today = LocalDate.now();
+      for (int i = 0; i < 200; i++) {
+        storage.addIngredientToFoodStorage(new Ingredient("Item" + (i % 7), 1,
+            Unit.GRAM, today.plusDays(i % 90 - 30), i % 5));
+      }
+      storage.removeIngredientFromFoodStorage("Item3", 10);
+      
+      List<Ingredient> expected = storage.getExpiredIngredients();
+      assertEquals(expected, sweeper.getExpiredIngredients());
+      assertEquals(storage.calculateTotalValue(expected.stream()),
+          sweeper.getExpiredValue(), 1e-9);
+      sweeper.close();
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Test that a null storage or clock throws IllegalArgumentException")
+    void testNullArguments() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          ExpirySweeper.create(null, clock));
+      assertEquals("Food storage cannot be null", exception.getMessage());
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          ExpirySweeper.create(foodStorage, null));
+      assertEquals("Clock cannot be null", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Test that a closed sweeper stops following the storage")
+    void testClosed() {
+      expirySweeper.start();
+      expirySweeper.close();
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Butter", 1, Unit.KILOGRAM, START.minusDays(1), 40));
+      assertEquals(1, expirySweeper.getExpiredIngredients().size());
+      assertTrue(foodStorage.ingredientExist("Butter"));
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package edu.ntnu.idi.idatt;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -9,6 +10,7 @@ import edu.ntnu.idi.idatt.model.Ingredient;
 import edu.ntnu.idi.idatt.model.Recipe;
 import edu.ntnu.idi.idatt.model.Unit;
 import edu.ntnu.idi.idatt.storage.FoodStorage;
+import edu.ntnu.idi.idatt.storage.FoodStorageListener;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
@@ -56,6 +58,60 @@ class FoodStorageTest {
       assertEquals(3.0, foodStorage.getIngredients().get("rice").get(0).getQuantity());
     }
 
+    @Test
+    @DisplayName("Merging matches date and price, also for batches without a date")
+    void mergeMatchesDateAndPrice() {
+      LocalDate date = LocalDate.now().plusDays(10);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1.0, Unit.KILOGRAM, 10));
+      for (int i = 0; i < 300; i++) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1.0, Unit.KILOGRAM,
+            date.plusDays(i % 3), 10 + i % 3));
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1.0, Unit.KILOGRAM, 10));
+      }
+      
+      List<Ingredient> batches = foodStorage.getIngredients().get("salt");
+      assertEquals(4, batches.size());
+      assertEquals(301.0, batches.getLast().getQuantity());
+      assertEquals(100.0, batches.getFirst().getQuantity());
+      
+      foodStorage.removeIngredientFromFoodStorage("Salt", 100.0);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 2.0, Unit.KILOGRAM,
+          batches.getFirst().getExpirationDate(), batches.getFirst().getPrice()));
+      assertEquals(4, foodStorage.getBatchCount());
+      assertEquals(2.0, foodStorage.getIngredients().get("salt").getFirst().getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Quantities add up and are removed exactly, without drift")
+    void quantitiesDoNotDrift() {
+      LocalDate date = LocalDate.now().plusDays(5);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 0.1, Unit.LITRE, date, 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 0.2, Unit.LITRE, date, 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 3, Unit.DESILITRE, 20));
+      assertEquals(0.3, foodStorage.getIngredients().get("milk").getFirst().getQuantity());
+      assertEquals(0.6, foodStorage.getTotalQuantity("Milk", Unit.LITRE));
+      
+      foodStorage.removeIngredientFromFoodStorage("Milk", 0.1);
+      foodStorage.removeIngredientFromFoodStorage("Milk", 0.2);
+      assertEquals(1, foodStorage.getBatchCount());
+      assertEquals(0.3, foodStorage.getTotalQuantity("Milk", Unit.LITRE));
+    }
+    
+    @Test
+    @DisplayName("Values are summed exactly in minor units")
+    void valuesAreExact() {
+      LocalDate date = LocalDate.now().plusDays(5);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Tea", 1, Unit.PIECES, date, 0.3));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Tea", 1, Unit.PIECES, date, 0.1 + 0.2));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Tea", 1, Unit.PIECES, date, 0.2));
+      assertEquals(2, foodStorage.getBatchCount());
+      assertTrue(foodStorage.getIngredients().get("tea").stream()
+          .anyMatch(batch -> batch.getPrice() == 0.3 && batch.getQuantity() == 2.0));
+      assertEquals(50, foodStorage.getTotalValueMinorUnits());
+      assertEquals(0.5, foodStorage.getTotalValue());
+    }
+    
     
     @Test
     @DisplayName("Search for ingredients in FoodStorage by name")
@@ -85,6 +141,20 @@ class FoodStorageTest {
           "Search results should contain the second 'apple' ingredient");
     }
     
+    @Test
+    @DisplayName("Name lookups ignore case, surrounding whitespace and Unicode form")
+    void nameLookupsAreNormalized() {
+      Ingredient creme = new Ingredient("Cr\u00e8me fra\u00eeche", 1.0, Unit.LITRE,
+          LocalDate.now().plusDays(10), 35);
+      foodStorage.addIngredientToFoodStorage(creme);
+      
+      String decomposed = "  CRE\u0300ME FRAI\u0302CHE ";
+      
+      assertTrue(foodStorage.ingredientExist(decomposed));
+      assertEquals(List.of(creme), foodStorage.searchForIngredientsInFoodStorage(decomposed));
+      assertEquals(0.5, foodStorage.removeIngredientFromFoodStorage(decomposed, 0.5));
+    }
+    
     @Test
     @DisplayName("Remove ingredient reduces quantity correctly")
     void removeIngredientReducesQuantity() {
@@ -98,6 +168,39 @@ class FoodStorageTest {
       assertEquals(2.0, foodStorage.getIngredients().get("sugar").get(0).getQuantity());
     }
     
+    @Test
+    @DisplayName("Remove ingredient consumes the batch that expires first")
+    void removeIngredientConsumesFirstExpiringBatch() {
+      Ingredient later = new Ingredient("Milk", 2.0, Unit.LITRE,
+          LocalDate.now().plusDays(9), 40);
+      Ingredient sooner = new Ingredient("Milk", 1.0, Unit.LITRE,
+          LocalDate.now().plusDays(3), 20);
+      foodStorage.addIngredientToFoodStorage(later);
+      foodStorage.addIngredientToFoodStorage(sooner);
+      
+      foodStorage.removeIngredientFromFoodStorage("milk", 1.5);
+      
+      List<Ingredient> remaining = foodStorage.searchForIngredientsInFoodStorage("milk");
+      assertEquals(List.of(later), remaining);
+      assertEquals(1.5, later.getQuantity());
+    }
+    
+    @Test
+    @DisplayName("Batches without expiration date are kept and consumed last")
+    void batchesWithoutExpirationDateAreConsumedLast() {
+      Ingredient dated = new Ingredient("Salt", 1.0, Unit.KILOGRAM,
+          LocalDate.now().plusDays(100), 10);
+      Ingredient undated = new Ingredient("Salt", 2.0, Unit.KILOGRAM, 10);
+      foodStorage.addIngredientToFoodStorage(undated);
+      foodStorage.addIngredientToFoodStorage(dated);
+      
+      double removedQuantity = foodStorage.removeIngredientFromFoodStorage("salt", 1.0);
+      
+      assertEquals(1.0, removedQuantity);
+      assertEquals(List.of(undated), foodStorage.searchForIngredientsInFoodStorage("salt"));
+      assertEquals(2.0, undated.getQuantity());
+    }
+    
     @Test
     @DisplayName("Get expired ingredients")
     void getExpiredIngredients() {
@@ -133,6 +236,70 @@ class FoodStorageTest {
       assertEquals("Butter", result.get(0).getName());
     }
     
+    @Test
+    @DisplayName("Get ingredients expiring before a date sorted by expiration date")
+    void getIngredientsExpiringBeforeSorted() {
+      Ingredient late = new Ingredient("Yoghurt", 1.0, Unit.LITRE,
+          LocalDate.now().plusDays(6), 25);
+      Ingredient early = new Ingredient("Cream", 1.0, Unit.LITRE,
+          LocalDate.now().plusDays(2), 30);
+      Ingredient outside = new Ingredient("Rice", 1.0, Unit.KILOGRAM,
+          LocalDate.now().plusDays(30), 20);
+      
+      foodStorage.addIngredientToFoodStorage(late);
+      foodStorage.addIngredientToFoodStorage(outside);
+      foodStorage.addIngredientToFoodStorage(early);
+      
+      List<Ingredient> result = foodStorage
+          .getIngredientsExpiringBefore(LocalDate.now().plusDays(10));
+      
+      assertEquals(List.of(early, late), result);
+    }
+    
+    @Test
+    @DisplayName("Batches of different unit types with the same name, date and price are all found")
+    void sameNameDateAndPriceOfDifferentTypes() {
+      LocalDate date = LocalDate.now().minusDays(1);
+      Ingredient pieces = new Ingredient("Egg", 6, Unit.PIECES, date, 30);
+      Ingredient grams = new Ingredient("Egg", 300, Unit.GRAM, date, 30);
+      foodStorage.addIngredientToFoodStorage(pieces);
+      foodStorage.addIngredientToFoodStorage(grams);
+      
+      assertEquals(2, foodStorage.getBatchCount());
+      assertEquals(2, foodStorage.getIngredientsExpiringBefore(LocalDate.now()).size());
+      assertEquals(2, foodStorage.getExpiredIngredients().size());
+      assertEquals(2, foodStorage.getIngredientsExpiringBetween(date, LocalDate.now()).size());
+    }
+    
+    @Test
+    @DisplayName("Removing in a given unit only takes from batches of its unit type")
+    void removeInGivenUnit() {
+      LocalDate date = LocalDate.now().plusDays(2);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 6, Unit.PIECES, date, 30));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 300, Unit.GRAM, date, 30));
+      
+      assertEquals(300, foodStorage.removeIngredientFromFoodStorage("egg", 300, Unit.GRAM));
+      
+      assertEquals(1, foodStorage.getBatchCount());
+      assertEquals(6, foodStorage.getTotalQuantity("egg", Unit.PIECES), 1e-9);
+      assertEquals(2, foodStorage.removeIngredientFromFoodStorage("egg", 2, Unit.PIECES));
+      assertEquals(4, foodStorage.removeIngredientFromFoodStorage("egg", 4));
+      assertFalse(foodStorage.ingredientExist("egg"));
+    }
+    
+    @Test
+    @DisplayName("Removed batches are no longer returned by expiration date queries")
+    void removedBatchesLeaveExpirationQueries() {
+      Ingredient expired = new Ingredient("Bread", 1.0, Unit.PIECES,
+          LocalDate.now().minusDays(1), 10);
+      foodStorage.addIngredientToFoodStorage(expired);
+      
+      foodStorage.removeIngredientFromFoodStorage("bread", 1.0);
+      
+      assertTrue(foodStorage.getExpiredIngredients().isEmpty());
+      assertTrue(foodStorage.getIngredientsExpiringBefore(LocalDate.now()).isEmpty());
+    }
+    
     @Test
     @DisplayName("Get ingredients sorted alphabetically")
     void getFoodStorageAlphabetically() {
@@ -169,6 +336,28 @@ class FoodStorageTest {
       assertEquals(50, totalValue);
     }
     
+    @Test
+    @DisplayName("Aggregates follow adds, merges and removals")
+    void aggregatesFollowChanges() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Flour", 500, Unit.GRAM,
+          LocalDate.now().plusDays(3), 12));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Flour", 1.0, Unit.KILOGRAM,
+          LocalDate.now().plusDays(8), 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Flour", 500, Unit.GRAM,
+          LocalDate.now().plusDays(3), 12));
+      
+      assertEquals(32.0, foodStorage.getTotalValue());
+      assertEquals(2, foodStorage.getBatchCount());
+      assertEquals(2.0, foodStorage.getTotalQuantity("flour", Unit.KILOGRAM), 1e-9);
+      assertEquals(0.0, foodStorage.getTotalQuantity("flour", Unit.LITRE));
+      
+      foodStorage.removeIngredientFromFoodStorage("flour", 1000);
+      
+      assertEquals(20.0, foodStorage.getTotalValue());
+      assertEquals(1, foodStorage.getBatchCount());
+      assertEquals(1000.0, foodStorage.getTotalQuantity("FLOUR", Unit.GRAM), 1e-9);
+    }
+    
     @Test
     @DisplayName("Check ingredient availability for recipe")
     void checkIngredientAvailabilityForRecipe() {
@@ -204,6 +393,34 @@ class FoodStorageTest {
       assertEquals(1, availability.size());
       assertEquals(3.0, availability.get("Flour"));
     }
+    
+    @Test
+    @DisplayName("Cook takes scaled quantities FIFO with unit conversion")
+    void cookTakesScaledQuantitiesFifo() {
+      LocalDate today = LocalDate.now();
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Milk", 1.0, Unit.LITRE, today.plusDays(5), 20));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Milk", 5.0, Unit.DESILITRE, today.plusDays(2), 10));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Milk", 2.0, Unit.PIECES, today.plusDays(1), 10));
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Flour", 1.0, Unit.KILOGRAM, today.plusDays(30), 15));
+      
+      Recipe recipe = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+      recipe.addIngredientToRecipe(new Ingredient("Milk", 4.0, Unit.DESILITRE, 0));
+      recipe.addIngredientToRecipe(new Ingredient("Flour", 150.0, Unit.GRAM, 0));
+      foodStorage.cook(recipe, 8);
+      
+      List<Ingredient> milk = foodStorage.searchForIngredientsInFoodStorage("milk");
+      assertEquals(2, milk.size());
+      assertEquals(Unit.PIECES, milk.get(0).getUnitMeasurement());
+      assertEquals(0.7, milk.get(1).getQuantity(), 1e-9);
+      assertEquals(0.7, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+      assertEquals(0.7, foodStorage.getTotalQuantity("flour", Unit.KILOGRAM), 1e-9);
+      assertEquals(3, foodStorage.getBatchCount());
+      assertEquals(45, foodStorage.getTotalValue(), 1e-9);
+    }
   }
   
   @Test
@@ -258,5 +475,79 @@ class FoodStorageTest {
       });
       assertEquals("Ingredient salt does not exist in storage.", exception.getMessage());
     }
+    
+    @Test
+    @DisplayName("Remove without a unit from batches of more than one unit type throws exception")
+    void removeWithoutUnitFromMixedTypesThrowsException() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 6, Unit.PIECES, 30));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 300, Unit.GRAM, 30));
+      
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("egg", 3));
+      assertEquals("Ingredient egg is stored in more than one unit type, "
+          + "so the unit must be given.", exception.getMessage());
+      assertEquals(2, foodStorage.getBatchCount());
+    }
+    
+    @Test
+    @DisplayName("Cook with a short ingredient throws and takes nothing")
+    void cookWithShortIngredientTakesNothing() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1.0, Unit.LITRE,
+          LocalDate.now().plusDays(5), 20));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 2.0, Unit.PIECES, 10));
+      Recipe recipe = new Recipe("Omelette", "Eggs", "Whisk and fry", 1);
+      recipe.addIngredientToRecipe(new Ingredient("Milk", 1.0, Unit.DESILITRE, 0));
+      recipe.addIngredientToRecipe(new Ingredient("Egg", 3.0, Unit.PIECES, 0));
+      
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.cook(recipe, 1));
+      assertEquals("Not enough egg to cook Omelette. Needed: 3.0, available: 2.0",
+          exception.getMessage());
+      assertEquals(1.0, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+      assertEquals(2.0, foodStorage.getTotalQuantity("egg", Unit.PIECES), 1e-9);
+      
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.cook(recipe, 0));
+      assertEquals("Portions must be positive", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Consume from a batch that does not match throws exception")
+    void consumeUnmatchedBatchThrowsException() {
+      LocalDate date = LocalDate.now().plusDays(5);
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1.0, Unit.LITRE, date, 20));
+      
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.consumeBatch(new Ingredient("Milk", 1.0, Unit.LITRE, date, 25)));
+      assertEquals("No batch of milk to take 1.0 L from.", exception.getMessage());
+      assertThrows(IllegalArgumentException.class, () ->
+          foodStorage.consumeBatch(new Ingredient("Milk", 2.0, Unit.LITRE, date, 20)));
+      
+      foodStorage.consumeBatch(new Ingredient("Milk", 4.0, Unit.DESILITRE, date, 20));
+      assertEquals(0.6, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("A listener that rejects a change leaves the storage unchanged")
+    void rejectedChangeLeavesStorageUnchanged() {
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1.0, Unit.LITRE, 20));
+      foodStorage.addListener(new FoodStorageListener() {
+        @Override
+        public void ingredientChanged(String ingredientKey) {
+        }
+        
+        @Override
+        public void beforeStockChange() {
+          throw new IllegalStateException("Rejected");
+        }
+      });
+      
+      assertThrows(IllegalStateException.class, () ->
+          foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1.0, Unit.KILOGRAM, 10)));
+      assertThrows(IllegalStateException.class, () ->
+          foodStorage.removeIngredientFromFoodStorage("milk", 0.5));
+      assertEquals(1, foodStorage.getBatchCount());
+      assertEquals(1.0, foodStorage.getTotalQuantity("milk", Unit.LITRE), 1e-9);
+    }
   }
 }
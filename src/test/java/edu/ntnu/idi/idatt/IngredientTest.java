@@ -8,6 +8,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import edu.ntnu.idi.idatt.model.Ingredient;
 import edu.ntnu.idi.idatt.model.Unit;
 import java.time.LocalDate;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -60,6 +61,17 @@ class IngredientTest {
       assertEquals(5.5, ingredient.getQuantity());
     }
     
+    @Test
+    @DisplayName("Should keep every update made from several threads")
+    void shouldKeepConcurrentUpdates() {
+      IntStream.range(0, 100_000).parallel().forEach(i -> ingredient.updateQuantity(0.001));
+      assertEquals(Unit.KILOGRAM.toFixedPoint(102.5), ingredient.getBaseQuantity());
+      assertEquals(Unit.KILOGRAM.toFixedPoint(2.5), ingredient.addBaseQuantity(
+          -Unit.KILOGRAM.toFixedPoint(100)));
+      assertThrows(IllegalArgumentException.class, () ->
+          ingredient.addBaseQuantity(-ingredient.getBaseQuantity()));
+    }
+    
     @Test
     @DisplayName("Should set quantity correctly")
     void shouldSetQuantityCorrectly() {
@@ -67,6 +79,19 @@ class IngredientTest {
       assertEquals(4.0, ingredient.getQuantity());
     }
     
+    @Test
+    @DisplayName("Should create Ingredient from exact values")
+    void shouldCreateIngredientFromExactValues() {
+      Ingredient exact = Ingredient.ofExactValues("Milk", 300_001, Unit.LITRE, null, 1999);
+      assertEquals(300_001, exact.getBaseQuantity());
+      assertEquals(1999, exact.getPriceMinorUnits());
+      assertEquals(null, exact.getExpirationDate());
+      assertThrows(IllegalArgumentException.class, () ->
+          Ingredient.ofExactValues("Milk", 0, Unit.LITRE, null, 1999));
+      assertThrows(IllegalArgumentException.class, () ->
+          Ingredient.ofExactValues("Milk", 1, Unit.LITRE, null, -1));
+    }
+    
     @Test
     @DisplayName("Should return correct expiration date")
     void shouldReturnCorrectExpirationDate() {
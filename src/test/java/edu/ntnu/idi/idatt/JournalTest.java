@@ -0,0 +1,250 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.persistence.Journal;
+import edu.ntnu.idi.idatt.storage.ColumnarFoodStorage;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Journal Tests")
+class JournalTest {
+  
+  private Path journalFile;
+  
+  @BeforeEach
+  void setUp() throws IOException {
+    journalFile = Files.createTempFile("food-storage", ".journal");
+    Files.delete(journalFile);
+  }
+  
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(journalFile);
+  }
+  
+  // Makes some changes to a new storage and cookbook while the journal is open
+  private void writeJournal() throws IOException {
+    FoodStorage foodStorage = new FoodStorage();
+    Cookbook cookbook = new Cookbook();
+    try (Journal journal = Journal.open(journalFile, foodStorage, cookbook, 2, 0)) {
+      assertEquals(0, journal.getReplayedRecordCount());
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Milk", 2, Unit.LITRE, LocalDate.now().plusDays(3), 25.0));
+      foodStorage.addIngredientToFoodStorage(new Ingredient(
+          "Milk", 1, Unit.LITRE, LocalDate.now().plusDays(7), 25.0));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 500, Unit.GRAM, 10.0));
+      foodStorage.removeIngredientFromFoodStorage("milk", 2.5);
+      
+      Recipe pancakes = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+      pancakes.addIngredientToRecipe(new Ingredient("Milk", 5, Unit.DESILITRE, 25.0));
+      cookbook.addRecipeToCookbook(pancakes);
+      cookbook.addRecipeToCookbook(new Recipe("Toast", "Toast", "Toast the bread", 1));
+      cookbook.removeRecipeFromCookbook("toast");
+    }
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Replay Restores Storage and Cookbook")
+    void testReplayRestoresState() throws IOException {
+      writeJournal();
+      
+      FoodStorage foodStorage = new FoodStorage();
+      Cookbook cookbook = new Cookbook();
+      try (Journal journal = Journal.open(journalFile, foodStorage, cookbook)) {
+        assertEquals(8, journal.getReplayedRecordCount());
+      }
+      
+      List<Ingredient> milk = foodStorage.searchForIngredientsInFoodStorage("Milk");
+      assertEquals(1, milk.size());
+      assertEquals(0.5, milk.getFirst().getQuantity(), 1e-9);
+      assertEquals(LocalDate.now().plusDays(7), milk.getFirst().getExpirationDate());
+      assertEquals(500, foodStorage.getTotalQuantity("Salt", Unit.GRAM), 1e-9);
+      
+      assertEquals(1, cookbook.getRecipes().size());
+      Recipe pancakes = cookbook.searchForRecipeInCookbook("pancakes").orElseThrow().getValue();
+      assertEquals("Mix and fry", pancakes.getProcedure());
+      assertEquals(Unit.DESILITRE, pancakes.getIngredientsList().getFirst().getUnitMeasurement());
+    }
+    
+    @Test
+    @DisplayName("Torn Record at the End is Dropped")
+    void testTornRecordIsDropped() throws IOException {
+      writeJournal();
+      long validSize = Files.size(journalFile);
+      Files.write(journalFile, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+      
+      FoodStorage foodStorage = new FoodStorage();
+      Cookbook cookbook = new Cookbook();
+      try (Journal journal = Journal.open(journalFile, foodStorage, cookbook)) {
+        assertEquals(8, journal.getReplayedRecordCount());
+        assertEquals(validSize, Files.size(journalFile));
+        foodStorage.addIngredientToFoodStorage(new Ingredient(
+            "Eggs", 12, Unit.PIECES, LocalDate.now().plusDays(10), 40.0));
+      }
+      
+      FoodStorage reopened = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, reopened, new Cookbook())) {
+        assertEquals(9, journal.getReplayedRecordCount());
+      }
+      assertTrue(reopened.ingredientExist("eggs"));
+    }
+    
+    @Test
+    @DisplayName("Closed Journal Stops Logging")
+    void testCloseStopsLogging() throws IOException {
+      FoodStorage foodStorage = new FoodStorage();
+      Journal journal = Journal.open(journalFile, foodStorage, new Cookbook());
+      journal.close();
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1, Unit.KILOGRAM, 10.0));
+      
+      FoodStorage reopened = new FoodStorage();
+      try (Journal reopenedJournal = Journal.open(journalFile, reopened, new Cookbook())) {
+        assertEquals(0, reopenedJournal.getReplayedRecordCount());
+      }
+      assertFalse(reopened.ingredientExist("salt"));
+    }
+    
+    @Test
+    @DisplayName("Replayed Quantities Are Exact and Removal Keeps to One Unit Type")
+    void testReplayIsExact() throws IOException {
+      FoodStorage foodStorage = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, foodStorage, new Cookbook())) {
+        for (int i = 0; i < 10; i++) {
+          foodStorage.addIngredientToFoodStorage(new Ingredient(
+              "Cheese", 0.1, Unit.KILOGRAM, LocalDate.now().plusDays(1), 30.0));
+        }
+        foodStorage.addIngredientToFoodStorage(new Ingredient(
+            "Cheese", 2, Unit.PIECES, LocalDate.now().plusDays(2), 19.99));
+        foodStorage.removeIngredientFromFoodStorage("cheese", 0.7, Unit.KILOGRAM);
+      }
+      assertEquals(2, foodStorage.getBatchCount());
+      assertEquals(2, foodStorage.getTotalQuantity("cheese", Unit.PIECES), 1e-9);
+      
+      FoodStorage reopened = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, reopened, new Cookbook())) {
+        assertEquals(12, journal.getReplayedRecordCount());
+      }
+      List<Ingredient> live = foodStorage.searchForIngredientsInFoodStorage("cheese");
+      List<Ingredient> replayed = reopened.searchForIngredientsInFoodStorage("cheese");
+      assertEquals(live.size(), replayed.size());
+      for (int i = 0; i < live.size(); i++) {
+        assertEquals(live.get(i).getBaseQuantity(), replayed.get(i).getBaseQuantity());
+        assertEquals(live.get(i).getUnitMeasurement(), replayed.get(i).getUnitMeasurement());
+        assertEquals(live.get(i).getPriceMinorUnits(), replayed.get(i).getPriceMinorUnits());
+      }
+      assertEquals(Unit.KILOGRAM.toFixedPoint(0.3), replayed.getFirst().getBaseQuantity());
+    }
+    
+    @Test
+    @DisplayName("Replay Reads a Journal Larger Than One Chunk")
+    void testReplayLargeJournal() throws IOException {
+      FoodStorage foodStorage = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, foodStorage, new Cookbook(), 1024, 0)) {
+        for (int i = 0; i < 30_000; i++) {
+          foodStorage.addIngredientToFoodStorage(new Ingredient(
+              "Rice", 1, Unit.KILOGRAM, LocalDate.now().plusDays(i), 30.0));
+        }
+      }
+      assertTrue(Files.size(journalFile) > 1024 * 1024);
+      
+      FoodStorage reopened = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, reopened, new Cookbook())) {
+        assertEquals(30_000, journal.getReplayedRecordCount());
+      }
+      assertEquals(30_000, reopened.getBatchCount());
+      assertEquals(30_000, reopened.getTotalQuantity("rice", Unit.KILOGRAM), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Replayed Cooking Takes the Same Batches")
+    void testReplayCookedRecipe() throws IOException {
+      Recipe sandwich = new Recipe("Sandwich", "Cheese sandwich", "Slice the cheese", 1);
+      sandwich.addIngredientToRecipe(new Ingredient("Cheese", 0.5, Unit.KILOGRAM, 0));
+      for (FoodStorage foodStorage : List.of(new FoodStorage(), new ColumnarFoodStorage())) {
+        Files.deleteIfExists(journalFile);
+        try (Journal journal = Journal.open(journalFile, foodStorage, new Cookbook())) {
+          foodStorage.addIngredientToFoodStorage(new Ingredient(
+              "Cheese", 2, Unit.PIECES, LocalDate.now().plusDays(1), 20.0));
+          foodStorage.addIngredientToFoodStorage(new Ingredient(
+              "Cheese", 1, Unit.KILOGRAM, LocalDate.now().plusDays(5), 120.0));
+          foodStorage.cook(sandwich, 1);
+        }
+        
+        FoodStorage reopened = new FoodStorage();
+        try (Journal journal = Journal.open(journalFile, reopened, new Cookbook())) {
+          assertEquals(3, journal.getReplayedRecordCount());
+        }
+        List<Ingredient> live = foodStorage.searchForIngredientsInFoodStorage("cheese");
+        List<Ingredient> replayed = reopened.searchForIngredientsInFoodStorage("cheese");
+        assertEquals(live.toString(), replayed.toString());
+        assertEquals(2, replayed.get(0).getQuantity(), 1e-9);
+        assertEquals(Unit.KILOGRAM.toFixedPoint(0.5), replayed.get(1).getBaseQuantity());
+        assertEquals(foodStorage.getTotalValueMinorUnits(), reopened.getTotalValueMinorUnits());
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Open Journal with Invalid Sync Batch Size")
+    void testInvalidSyncBatchSize() {
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> Journal.open(journalFile, new FoodStorage(), new Cookbook(), 0, 10));
+      assertEquals("Sync batch size must be positive", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Open File that is not a Journal")
+    void testNotAJournal() throws IOException {
+      Files.writeString(journalFile, "Not a journal at all");
+      IOException exception = assertThrows(IOException.class,
+          () -> Journal.open(journalFile, new FoodStorage(), new Cookbook()));
+      assertEquals("Not a journal file", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Open a Journal that is Already Open")
+    void testAlreadyOpen() throws IOException {
+      FoodStorage foodStorage = new FoodStorage();
+      try (Journal journal = Journal.open(journalFile, foodStorage, new Cookbook())) {
+        FoodStorage second = new FoodStorage();
+        IOException exception = assertThrows(IOException.class,
+            () -> Journal.open(journalFile, second, new Cookbook()));
+        assertEquals("Journal " + journalFile + " is already in use by another writer",
+            exception.getMessage());
+        
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 1, Unit.KILOGRAM, 10));
+        assertFalse(second.ingredientExist("salt"));
+      }
+      try (Journal journal = Journal.open(journalFile, new FoodStorage(), new Cookbook())) {
+        assertEquals(1, journal.getReplayedRecordCount());
+      }
+    }
+  }
+}
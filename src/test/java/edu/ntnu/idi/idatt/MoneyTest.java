@@ -0,0 +1,69 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.Unit;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Money Tests")
+class MoneyTest {
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Amounts Are Rounded to Minor Units")
+    void testOf() {
+      assertEquals(1250, Money.of(12.5, Unit.KR).minorUnits());
+      assertEquals(30, Money.of(0.1 + 0.2, Unit.KR).minorUnits());
+      assertEquals(12.5, Money.of(12.499, Unit.KR).getAmount());
+    }
+    
+    @Test
+    @DisplayName("Sums Are Exact")
+    void testPlusAndMinus() {
+      Money sum = Money.of(0.1, Unit.EUR).plus(Money.of(0.2, Unit.EUR));
+      assertEquals(Money.of(0.3, Unit.EUR), sum);
+      assertEquals(Money.of(-0.2, Unit.EUR),
+          Money.of(0.1, Unit.EUR).minus(Money.of(0.3, Unit.EUR)));
+      assertTrue(Money.of(1, Unit.EUR).compareTo(sum) > 0);
+    }
+    
+    @Test
+    @DisplayName("Formats With Two Decimals and the Currency Symbol")
+    void testToString() {
+      assertEquals("12.50 NOK", Money.of(12.5, Unit.KR).toString());
+      assertEquals("0.05 €", Money.of(0.05, Unit.EUR).toString());
+      assertEquals("-3.07 $", Money.of(-3.07, Unit.USD).toString());
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Money Needs a Currency Unit")
+    void testInvalidCurrency() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          new Money(100, Unit.KILOGRAM));
+      assertEquals("Invalid currency unit.", exception.getMessage());
+      assertThrows(IllegalArgumentException.class, () -> new Money(100, null));
+    }
+    
+    @Test
+    @DisplayName("Amounts in Different Currencies Cannot Be Combined")
+    void testDifferentCurrencies() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          Money.of(1, Unit.KR).plus(Money.of(1, Unit.EUR)));
+      assertEquals("Cannot combine NOK with EUR", exception.getMessage());
+    }
+  }
+}
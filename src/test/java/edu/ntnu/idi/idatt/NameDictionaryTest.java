@@ -0,0 +1,121 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import edu.ntnu.idi.idatt.utils.NameDictionary;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Test for NameDictionary class")
+class NameDictionaryTest {
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Test that spellings of the same name get the same id and key")
+    void testSameIdForSpellings() {
+      int id = NameDictionary.idOf("Crème Fraîche");
+      
+      assertEquals(id, NameDictionary.idOf("  crème fraîche "));
+      assertEquals(id, NameDictionary.idOf("CRÈME FRAÎCHE"));
+      assertEquals(id, NameDictionary.find("Crème fraîche"));
+      assertEquals("crème fraîche", NameDictionary.keyOf(id));
+      assertSame(NameDictionary.keyOf(id), NameDictionary.keyOf(id));
+      assertNotEquals(id, NameDictionary.idOf("Crème"));
+    }
+    
+    @Test
+    @DisplayName("Test that ingredients carry the id of their name")
+    void testIngredientNameId() {
+      Ingredient milk = new Ingredient("Milk", 1, Unit.LITRE, 20);
+      Ingredient lowerCaseMilk = new Ingredient("milk", 2, Unit.DESILITRE, 10);
+      
+      assertEquals(milk.getNameId(), lowerCaseMilk.getNameId());
+      assertEquals("milk", NameDictionary.keyOf(milk.getNameId()));
+      assertTrue(milk.getNameId() < NameDictionary.size());
+    }
+    
+    @Test
+    @DisplayName("Test that names added from many threads get one id each")
+    void testConcurrentIds() throws InterruptedException {
+      Set<Integer> ids = ConcurrentHashMap.newKeySet();
+      List<Thread> threads = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        threads.add(Thread.ofPlatform().start(() -> {
+          for (int i = 0; i < 500; i++) {
+            ids.add(NameDictionary.idOf("Concurrent name " + i));
+          }
+        }));
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      
+      assertEquals(500, ids.size());
+      for (int i = 0; i < 500; i++) {
+        assertEquals("concurrent name " + i,
+            NameDictionary.keyOf(NameDictionary.find("Concurrent Name " + i)));
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Test that an unknown name is not given an id by find")
+    void testFindUnknown() {
+      int size = NameDictionary.size();
+      assertEquals(NameDictionary.UNKNOWN, NameDictionary.find("Never added name"));
+      assertEquals(size, NameDictionary.size());
+    }
+    
+    @Test
+    @DisplayName("Test that looking up a recipe does not give its names an id")
+    void testLookupKeepsDictionary() {
+      int size = NameDictionary.size();
+      Recipe recipe = new Recipe("Lookup", "Only looked up", "Nothing", 1);
+      recipe.addIngredientToRecipe(new Ingredient("Never stored name", 1, Unit.GRAM, 0));
+      FoodStorage foodStorage = new FoodStorage();
+      assertFalse(foodStorage.hasEnoughIngredientsForRecipe(foodStorage, recipe));
+      assertEquals(0, foodStorage.getIngredientAvailabilityForRecipe(foodStorage, recipe)
+          .get("Never stored name"));
+      assertEquals(NameDictionary.UNKNOWN, recipe.getIngredientsList().getFirst().findNameId());
+      assertEquals(size, NameDictionary.size());
+    }
+    
+    @Test
+    @DisplayName("Test that an unknown id throws IllegalArgumentException")
+    void testUnknownId() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          NameDictionary.keyOf(-1));
+      assertEquals("Unknown name id: -1", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Test that a null name throws IllegalArgumentException")
+    void testNullName() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          NameDictionary.idOf(null));
+      assertEquals("Name cannot be null", exception.getMessage());
+    }
+  }
+}
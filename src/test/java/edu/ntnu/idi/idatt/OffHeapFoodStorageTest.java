@@ -0,0 +1,89 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.OffHeapFoodStorage;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Test for OffHeapFoodStorage class")
+class OffHeapFoodStorageTest {
+  
+  // Adds batches that need the storage to grow, then removes most of them again
+  private void fillAndDrain(OffHeapFoodStorage foodStorage) {
+    LocalDate date = LocalDate.now().plusDays(1);
+    for (int i = 0; i < 3_000; i++) {
+      foodStorage.addIngredientToFoodStorage(
+          new Ingredient("Item" + (i % 3), 2, Unit.GRAM, date.plusDays(i), 1));
+    }
+    for (int i = 0; i < 3; i++) {
+      foodStorage.removeIngredientFromFoodStorage("item" + i, 1_991);
+    }
+  }
+  
+  @Nested
+  @DisplayName("Positive tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Test that batches in native memory grow, shrink and are read back")
+    void testNativeMemory() {
+      try (OffHeapFoodStorage foodStorage = new OffHeapFoodStorage()) {
+        fillAndDrain(foodStorage);
+        
+        assertEquals(15, foodStorage.getBatchCount());
+        assertEquals(9, foodStorage.getTotalQuantity("Item0", Unit.GRAM), 1e-9);
+        assertTrue(foodStorage.getOffHeapBytes() >= 3_000L * 32);
+        List<Ingredient> batches = foodStorage.searchForIngredientsInFoodStorage("Item0");
+        assertEquals(1, batches.getFirst().getQuantity(), 1e-9);
+        assertEquals(LocalDate.now().plusDays(2_986), batches.getFirst().getExpirationDate());
+      }
+    }
+    
+    @Test
+    @DisplayName("Test that the cookbook suggests recipes from an off-heap storage")
+    void testSuggestedRecipes() {
+      try (OffHeapFoodStorage foodStorage = new OffHeapFoodStorage()) {
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, 20));
+        foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 4, Unit.PIECES, 30));
+        Recipe omelette = new Recipe("Omelette", "Eggs and milk", "Whisk and fry", 1);
+        omelette.addIngredientToRecipe(new Ingredient("Milk", 1, Unit.DESILITRE, 0));
+        omelette.addIngredientToRecipe(new Ingredient("Egg", 3, Unit.PIECES, 0));
+        Cookbook cookbook = new Cookbook();
+        cookbook.addRecipeToCookbook(omelette);
+        
+        assertEquals(List.of(omelette), cookbook.getSuggestedRecipes(foodStorage));
+        foodStorage.removeIngredientFromFoodStorage("Egg", 2);
+        assertTrue(cookbook.getSuggestedRecipes(foodStorage).isEmpty());
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Test that a closed storage cannot be used")
+    void testClosed() {
+      OffHeapFoodStorage foodStorage = new OffHeapFoodStorage();
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, 20));
+      foodStorage.close();
+      
+      assertThrows(IllegalStateException.class, () ->
+          foodStorage.searchForIngredientsInFoodStorage("Milk"));
+      assertFalse(foodStorage.isEmpty());
+    }
+  }
+}
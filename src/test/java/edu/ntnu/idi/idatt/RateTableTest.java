@@ -0,0 +1,126 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Money;
+import edu.ntnu.idi.idatt.model.RateTable;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.persistence.RateTableFile;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Rate Table Tests")
+class RateTableTest {
+  
+  private Path ratesFile;
+  
+  @BeforeEach
+  void setUp() throws IOException {
+    ratesFile = Files.createTempFile("currency-rates", ".txt");
+  }
+  
+  @AfterEach
+  void tearDown() throws IOException {
+    Files.deleteIfExists(ratesFile);
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Parse Versioned Rates and Convert Between Currencies")
+    void testParseAndConvert() {
+      RateTable rates = RateTable.parse(List.of(
+          "# Rates of 1 NOK", "version=3", "", "USD = 0.1", "EUR=0.08"));
+      assertEquals(3, rates.getVersion());
+      assertEquals(1.0, rates.getRate(Unit.KR));
+      assertFalse(rates.hasRate(Unit.JPY));
+      
+      assertEquals(Money.of(1.5, Unit.USD), rates.convert(Money.of(15, Unit.KR), Unit.USD));
+      assertEquals(Money.of(1.2, Unit.EUR), rates.convert(Money.of(1.5, Unit.USD), Unit.EUR));
+    }
+    
+    @Test
+    @DisplayName("Total Value in Several Currencies From One Pass")
+    void testTotalValues() {
+      FoodStorage foodStorage = new FoodStorage();
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Milk", 1, Unit.LITRE, 20.0));
+      foodStorage.addIngredientToFoodStorage(new Ingredient("Egg", 6, Unit.PIECES, 30.5));
+      RateTable rates = RateTable.parse(List.of("version=1", "USD=0.1", "EUR=0.08"));
+      
+      Map<Unit, Money> totals = foodStorage.getTotalValues(
+          rates, List.of(Unit.KR, Unit.USD, Unit.EUR));
+      assertEquals(Money.of(50.5, Unit.KR), totals.get(Unit.KR));
+      assertEquals(Money.of(5.05, Unit.USD), totals.get(Unit.USD));
+      assertEquals(Money.of(4.04, Unit.EUR), totals.get(Unit.EUR));
+      assertEquals(totals, foodStorage.calculateTotalValues(foodStorage.getIngredients()
+          .values().stream().flatMap(List::stream), rates, totals.keySet()));
+    }
+    
+    @Test
+    @DisplayName("Reload Swaps In Only Newer Tables")
+    void testReload() throws IOException {
+      RateTableFile rateTableFile = new RateTableFile(ratesFile);
+      assertSame(RateTable.defaults(), rateTableFile.current());
+      
+      Files.write(ratesFile, List.of("version=2", "USD=0.1"));
+      assertTrue(rateTableFile.reload());
+      RateTable loaded = rateTableFile.current();
+      assertEquals(0.1, loaded.getRate(Unit.USD));
+      
+      Files.write(ratesFile, List.of("version=1", "USD=0.2"));
+      assertFalse(rateTableFile.reload());
+      assertSame(loaded, rateTableFile.current());
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Invalid Tables Are Rejected")
+    void testInvalidTables() {
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          RateTable.parse(List.of("USD=0.1")));
+      assertEquals("Rate table has no version", exception.getMessage());
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          RateTable.parse(List.of("version=1", "USD=-1")));
+      assertEquals("Rate of USD must be positive", exception.getMessage());
+      exception = assertThrows(IllegalArgumentException.class, () ->
+          RateTable.parse(List.of("version=1", "kg=1")));
+      assertEquals("Invalid currency unit.", exception.getMessage());
+      assertThrows(IllegalArgumentException.class, () ->
+          RateTable.parse(List.of("version=1", "USD")));
+    }
+    
+    @Test
+    @DisplayName("A Broken File Keeps the Current Table")
+    void testBrokenFile() throws IOException {
+      RateTableFile rateTableFile = new RateTableFile(ratesFile);
+      Files.write(ratesFile, List.of("version=5", "USD=abc"));
+      assertThrows(IllegalArgumentException.class, rateTableFile::reload);
+      assertSame(RateTable.defaults(), rateTableFile.current());
+      
+      Exception exception = assertThrows(IllegalArgumentException.class, () ->
+          RateTable.defaults().convert(Money.of(1, Unit.KR), null));
+      assertEquals("No rate for currency null", exception.getMessage());
+    }
+  }
+}
@@ -62,6 +62,15 @@ class RecipeTest {
       assertEquals(300, ingredient1.getQuantity());
     }
     
+    @Test
+    @DisplayName("Should update quantity if ingredient exists with a different case")
+    void shouldUpdateQuantityForExistingIngredientInAnyCase() {
+      recipe.addIngredientToRecipe(ingredient1);
+      recipe.addIngredientToRecipe(new Ingredient(" FLOUR ", 100, Unit.GRAM, 5.0));
+      assertEquals(1, recipe.getIngredientsList().size());
+      assertEquals(300, ingredient1.getQuantity());
+    }
+    
     
     @Test
     @DisplayName("toString should return formatted recipe details")
@@ -0,0 +1,136 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Ingredient;
+import edu.ntnu.idi.idatt.model.Recipe;
+import edu.ntnu.idi.idatt.model.Unit;
+import edu.ntnu.idi.idatt.persistence.Snapshot;
+import edu.ntnu.idi.idatt.storage.Cookbook;
+import edu.ntnu.idi.idatt.storage.FoodStorage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Snapshot Tests")
+class SnapshotTest {
+  
+  private Path snapshotFile;
+  private FoodStorage foodStorage;
+  private Cookbook cookbook;
+  
+  @BeforeEach
+  void setUp() throws IOException {
+    snapshotFile = Files.createTempFile("food-storage", ".snapshot");
+    snapshotFile.toFile().deleteOnExit();
+    foodStorage = new FoodStorage();
+    foodStorage.addIngredientToFoodStorage(new Ingredient(
+        "Milk", 2, Unit.LITRE, LocalDate.now().plusDays(7), 25.0));
+    foodStorage.addIngredientToFoodStorage(new Ingredient(
+        "milk", 1, Unit.LITRE, LocalDate.now().plusDays(3), 20.0));
+    foodStorage.addIngredientToFoodStorage(new Ingredient("Crème fraîche", 3, Unit.DESILITRE,
+        LocalDate.now().plusDays(10), 30.0));
+    foodStorage.addIngredientToFoodStorage(new Ingredient("Salt", 500, Unit.GRAM, 10.0));
+    
+    cookbook = new Cookbook();
+    Recipe pancakes = new Recipe("Pancakes", "Thin pancakes", "Mix and fry", 4);
+    pancakes.addIngredientToRecipe(new Ingredient("Milk", 5, Unit.DESILITRE, 25.0));
+    pancakes.addIngredientToRecipe(new Ingredient("Salt", 2, Unit.GRAM, 10.0));
+    cookbook.addRecipeToCookbook(pancakes);
+    cookbook.addRecipeToCookbook(new Recipe("Toast", "Toast", "Toast the bread", 1));
+  }
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Load Snapshot into Storage and Cookbook")
+    void testWriteAndLoad() throws IOException {
+      Snapshot.write(snapshotFile, foodStorage, cookbook);
+      
+      FoodStorage loadedStorage = new FoodStorage();
+      Cookbook loadedCookbook = new Cookbook();
+      try (Snapshot snapshot = Snapshot.open(snapshotFile)) {
+        assertEquals(4, snapshot.getBatchCount());
+        assertEquals(2, snapshot.getRecipeCount());
+        snapshot.loadInto(loadedStorage, loadedCookbook);
+      }
+      
+      assertEquals(foodStorage.getBatchCount(), loadedStorage.getBatchCount());
+      assertEquals(foodStorage.getTotalValueMinorUnits(), loadedStorage.getTotalValueMinorUnits());
+      List<Ingredient> milk = foodStorage.searchForIngredientsInFoodStorage("milk");
+      List<Ingredient> loadedMilk = loadedStorage.searchForIngredientsInFoodStorage("milk");
+      for (int i = 0; i < milk.size(); i++) {
+        assertEquals(milk.get(i).getBaseQuantity(), loadedMilk.get(i).getBaseQuantity());
+        assertEquals(milk.get(i).getPriceMinorUnits(), loadedMilk.get(i).getPriceMinorUnits());
+      }
+      assertEquals(3, loadedStorage.getTotalQuantity("MILK", Unit.LITRE), 1e-9);
+      assertEquals(0.3, loadedStorage.getTotalQuantity("crème fraîche", Unit.LITRE), 1e-9);
+      assertNull(loadedStorage.searchForIngredientsInFoodStorage("Salt")
+          .getFirst().getExpirationDate());
+      
+      Recipe pancakes = loadedCookbook.searchForRecipeInCookbook("Pancakes")
+          .orElseThrow().getValue();
+      assertEquals("Mix and fry", pancakes.getProcedure());
+      assertEquals(2, pancakes.getIngredientsList().size());
+      assertTrue(loadedCookbook.containsRecipe("Toast"));
+    }
+    
+    @Test
+    @DisplayName("Read Batches Lazily from the Mapping")
+    void testSearchForIngredients() throws IOException {
+      Snapshot.write(snapshotFile, foodStorage, cookbook);
+      
+      try (Snapshot snapshot = Snapshot.open(snapshotFile)) {
+        List<Ingredient> milk = snapshot.searchForIngredients(" MILK ");
+        assertEquals(2, milk.size());
+        assertEquals(LocalDate.now().plusDays(3), milk.get(0).getExpirationDate());
+        assertEquals(LocalDate.now().plusDays(7), milk.get(1).getExpirationDate());
+        assertEquals(1, snapshot.searchForIngredients("Crème fraîche").size());
+        assertTrue(snapshot.searchForIngredients("Butter").isEmpty());
+      }
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Open Snapshot with Corrupted Content")
+    void testCorruptedSnapshot() throws IOException {
+      Snapshot.write(snapshotFile, foodStorage, cookbook);
+      try (FileChannel channel = FileChannel.open(snapshotFile, StandardOpenOption.WRITE)) {
+        channel.write(ByteBuffer.wrap(new byte[] {42}), 100);
+      }
+      
+      IOException exception = assertThrows(IOException.class,
+          () -> Snapshot.open(snapshotFile));
+      assertEquals("Snapshot checksum does not match", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Open File that is not a Snapshot")
+    void testNotASnapshot() throws IOException {
+      Files.writeString(snapshotFile, "Not a snapshot, but long enough to hold a header. "
+          + "Still not a snapshot.");
+      IOException exception = assertThrows(IOException.class,
+          () -> Snapshot.open(snapshotFile));
+      assertEquals("Not a snapshot file", exception.getMessage());
+    }
+  }
+}
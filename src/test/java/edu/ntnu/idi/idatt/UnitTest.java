@@ -0,0 +1,116 @@
+package edu.ntnu.idi.idatt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ntnu.idi.idatt.model.Unit;
+import java.util.List;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+
+@DisplayName("Unit Tests")
+class UnitTest {
+  
+  @Nested
+  @DisplayName("Positive Tests")
+  class PositiveTests {
+    
+    @Test
+    @DisplayName("Convert Between Units of the Same Type")
+    void testConvert() {
+      assertEquals(1500, Unit.KILOGRAM.convert(1.5, Unit.GRAM), 1e-9);
+      assertEquals(2.5, Unit.DESILITRE.convert(25, Unit.LITRE), 1e-9);
+      assertEquals(3, Unit.PIECES.convert(3, Unit.PIECES), 1e-9);
+    }
+    
+    @Test
+    @DisplayName("Table Conversion Matches Validated Conversion")
+    void testConvertMatchesConvertValue() {
+      for (Unit from : Unit.values()) {
+        for (Unit to : Unit.values()) {
+          if (from.getType() == to.getType()) {
+            assertEquals(from.convertValue(7.0, to), from.convert(7.0, to), 1e-9);
+          }
+        }
+      }
+    }
+    
+    @Test
+    @DisplayName("Find Unit by Symbol or Code in Any Case")
+    void testFromSymbol() {
+      assertEquals(Unit.KILOGRAM, Unit.fromSymbol("KG"));
+      assertEquals(Unit.MILLILITRE, Unit.fromSymbol("ml"));
+      assertEquals(Unit.RUS, Unit.fromSymbol("rub"));
+      assertEquals(Unit.EUR, Unit.fromSymbol("€"));
+    }
+    
+    @Test
+    @DisplayName("Ambiguous Symbol Gives Every Candidate")
+    void testCandidatesFromSymbol() {
+      assertEquals(List.of(Unit.CNY, Unit.JPY), Unit.candidatesFromSymbol("¥"));
+      assertEquals(Unit.CNY, Unit.fromSymbol("¥"));
+    }
+    
+    @Test
+    @DisplayName("Strict Mode Finds ISO Codes")
+    void testFromCode() {
+      assertEquals(Unit.KR, Unit.fromCode("NOK"));
+      assertEquals(Unit.RUS, Unit.fromCode("RUB"));
+      assertEquals(Unit.JPY, Unit.fromCode("jpy"));
+      assertEquals(Unit.GRAM, Unit.fromCode("g"));
+    }
+    
+    @Test
+    @DisplayName("Fixed-Point Values Share the Base Unit of Their Type")
+    void testFixedPoint() {
+      assertEquals(1_500_000, Unit.KILOGRAM.toFixedPoint(1.5));
+      assertEquals(1_500_000, Unit.GRAM.toFixedPoint(1500));
+      assertEquals(100_000, Unit.DESILITRE.toFixedPoint(1));
+      assertEquals(2_000, Unit.PIECES.toFixedPoint(2));
+      assertEquals(0.3, Unit.LITRE.fromFixedPoint(Unit.LITRE.toFixedPoint(0.1)
+          + Unit.LITRE.toFixedPoint(0.2)));
+      assertEquals(250, Unit.MILLILITRE.fromFixedPoint(Unit.DESILITRE.toFixedPoint(2.5)));
+    }
+  }
+  
+  @Nested
+  @DisplayName("Negative Tests")
+  class NegativeTests {
+    
+    @Test
+    @DisplayName("Convert Between Units of Different Types Gives Sentinel")
+    void testConvertIncompatible() {
+      assertTrue(Double.isNaN(Unit.KILOGRAM.convert(1, Unit.LITRE)));
+      assertTrue(Double.isNaN(Unit.PIECES.conversionFactorTo(Unit.GRAM)));
+    }
+    
+    @Test
+    @DisplayName("Find Unit by Unknown Symbol")
+    void testFromUnknownSymbol() {
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> Unit.fromSymbol("furlong"));
+      assertEquals("Invalid unit: furlong", exception.getMessage());
+      assertTrue(Unit.candidatesFromSymbol(null).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("Strict Mode Rejects Display Symbols and Enum Names")
+    void testFromCodeRejectsSymbols() {
+      assertThrows(IllegalArgumentException.class, () -> Unit.fromCode("¥"));
+      assertThrows(IllegalArgumentException.class, () -> Unit.fromCode("KR"));
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> Unit.fromCode("RUS"));
+      assertEquals("Invalid unit code: RUS", exception.getMessage());
+    }
+    
+    @Test
+    @DisplayName("Validated Conversion Between Incompatible Units Throws")
+    void testConvertValueIncompatible() {
+      assertThrows(IllegalArgumentException.class,
+          () -> Unit.KILOGRAM.convertValue(1.0, Unit.LITRE));
+    }
+  }
+}